@@ -0,0 +1,55 @@
+package com.squid.core.config;
+
+import com.squid.core.service.BackgroundLoadController;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Feeds the latency of latency-sensitive requests (encrypt/decrypt paths by
+ * default) to the background load controller. Async and streaming requests
+ * are skipped: their first dispatch says nothing about their duration.
+ */
+@Component
+public class RequestLatencyFilter extends OncePerRequestFilter {
+
+    private final BackgroundLoadController loadController;
+    private final String[] pathPrefixes;
+
+    public RequestLatencyFilter(BackgroundLoadController loadController,
+                                @Value("${squid.dynamic.adaptive.request-paths:/api/v1/crypto,/api/v1/encrypted}")
+                                String[] pathPrefixes) {
+        this.loadController = loadController;
+        this.pathPrefixes = Arrays.stream(pathPrefixes).map(String::trim).filter(p -> !p.isEmpty())
+            .toArray(String[]::new);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String prefix : pathPrefixes) {
+            if (path.startsWith(prefix)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                loadController.recordRequest(System.nanoTime() - start);
+            }
+        }
+    }
+}
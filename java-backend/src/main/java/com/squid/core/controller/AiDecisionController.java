@@ -3,7 +3,9 @@ package com.squid.core.controller;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.squid.core.crypto.Hex;
 import com.squid.core.ipc.IPCMain;
+import com.squid.core.service.AIDecisionStateService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,14 +23,11 @@ import org.springframework.web.bind.annotation.RestController;
 public class AiDecisionController {
 
     private final ObjectMapper mapper = new ObjectMapper();
-<<<<<<< HEAD
-    private final com.squid.core.service.AIDecisionStateService aiState;
+    private final AIDecisionStateService aiState;
 
-    public AiDecisionController(com.squid.core.service.AIDecisionStateService aiState) {
+    public AiDecisionController(AIDecisionStateService aiState) {
         this.aiState = aiState;
     }
-=======
->>>>>>> fba0213b8c706e3610af4a9df4b8d765ed2eab80
 
     @PostMapping("/decide")
     public ResponseEntity<JsonNode> decide(@RequestBody JsonNode body) {
@@ -37,16 +36,11 @@ public class AiDecisionController {
             String payloadJson = body.toString();
             String pythonResp = IPCMain.callPythonOnce(payloadJson);
             JsonNode parsed = mapper.readTree(pythonResp);
-<<<<<<< HEAD
             try {
                 java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-256");
                 byte[] h = md.digest(pythonResp.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                StringBuilder sb = new StringBuilder();
-                for (byte b : h) sb.append(String.format("%02x", b));
-                aiState.setLastDecisionHashHex(sb.toString());
+                aiState.setLastDecisionHashHex(Hex.encode(h));
             } catch (Exception ignored) {}
-=======
->>>>>>> fba0213b8c706e3610af4a9df4b8d765ed2eab80
             return ResponseEntity.ok(parsed);
         } catch (Exception e) {
             ObjectNode err = mapper.createObjectNode();
@@ -1,11 +1,16 @@
 package com.squid.core.controller;
 
+import com.squid.core.crypto.Hex;
 import com.squid.core.model.EncryptDecryptModels;
 import com.squid.core.service.CryptoPipelineService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 
 /**
  * REST controller exposing the explicit Encrypt / Decrypt pipeline.
@@ -49,6 +54,50 @@ public class CryptoPipelineController {
         }
     }
 
+    /**
+     * Streaming encrypt: request body (application/octet-stream) is read and
+     * sealed segment by segment straight into the response, so payload
+     * size is not bounded by heap.
+     */
+    @PostMapping(value = "/stream/encrypt",
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void encryptStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        try {
+            pipelineService.encryptStream(request.getInputStream(), response.getOutputStream());
+        } catch (Exception e) {
+            failStream(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streaming decrypt of a body produced by /stream/encrypt. Tampered or
+     * truncated input aborts the response.
+     */
+    @PostMapping(value = "/stream/decrypt",
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void decryptStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        try {
+            pipelineService.decryptStream(request.getInputStream(), response.getOutputStream());
+        } catch (Exception e) {
+            failStream(response, HttpServletResponse.SC_BAD_REQUEST);
+        }
+    }
+
+    private void failStream(HttpServletResponse response, int status) throws IOException {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.sendError(status);
+        } else {
+            // Part of the body is already on the wire: abort the connection
+            // instead of completing a response the client could mistake for whole
+            throw new IOException("stream aborted");
+        }
+    }
+
     /**
      * Expose recent crypto operations for dashboards.
      */
@@ -84,7 +133,7 @@ public class CryptoPipelineController {
                 String s = (String) seedObj;
                 try {
                     // Try hex first
-                    seedBytes = s.matches("^[0-9a-fA-F]+$") ? hexToBytes(s) : s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    seedBytes = s.matches("^[0-9a-fA-F]+$") ? Hex.decode(s) : s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
                 } catch (Exception ignored) {
                     seedBytes = s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
                 }
@@ -106,14 +155,4 @@ public class CryptoPipelineController {
             return ResponseEntity.internalServerError().body(error);
         }
     }
-
-    private byte[] hexToBytes(String hex) {
-        int len = hex.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
-                    + Character.digit(hex.charAt(i+1), 16));
-        }
-        return data;
-    }
 }
@@ -1,10 +1,16 @@
 package com.squid.core.controller;
 
+import com.squid.core.crypto.Hex;
 import com.squid.core.model.MerkleTreeTransitionEvent;
 import com.squid.core.service.DynamicMerkleTreeService;
+import com.squid.core.service.InstanceService;
+import com.squid.core.service.MerkleTransitionStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Map;
@@ -20,6 +26,9 @@ public class DynamicMerkleTreeController {
     @Autowired
     private DynamicMerkleTreeService merkleTreeService;
 
+    @Autowired
+    private InstanceService instanceService;
+
     /**
      * Get current Merkle Tree status
      * GET /api/v1/merkle/status
@@ -174,6 +183,124 @@ public class DynamicMerkleTreeController {
         }
     }
 
+    /**
+     * Query transition history by type, instance and time range, newest first
+     * GET /api/v1/merkle/history/query?type=ADD_LEAVES&instance=default&from=0&to=1700003600000&before=500&limit=100
+     * Response: { "events": [...], "nextCursor": 401, "hasMore": true }
+     */
+    @GetMapping("/history/query")
+    public ResponseEntity<Map<String, Object>> queryHistory(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String instance,
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to,
+            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long before,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (from > to || limit <= 0 || limit > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(merkleTreeService.queryTransitions(type, instance, from, to, before, limit));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Count transition history matching the filters of /history/query
+     * GET /api/v1/merkle/history/count?type=ADD_LEAVES&from=1700000000000
+     */
+    @GetMapping("/history/count")
+    public ResponseEntity<Map<String, Object>> countHistory(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String instance,
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) {
+        if (from > to) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(Map.of("count", merkleTreeService.countTransitions(type, instance, from, to)));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Page through autonomous engine transitions by sequence number
+     * GET /api/v1/merkle/transitions?cursor=0&limit=100
+     * Response: { "transitions": [...], "nextCursor": 100 }
+     */
+    @GetMapping("/transitions")
+    public ResponseEntity<Map<String, Object>> getTransitions(
+            @RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (cursor < 0 || limit <= 0 || limit > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(merkleTreeService.getAutonomousTransitions(cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Push feed of transitions, replacing polling of history and status.
+     * GET /api/v1/merkle/stream?instance=default&cursor=120&eventCursor=4
+     * Events: "transitions" and "events" (batches), "status" (when the root
+     * changed), "dropped" (records skipped for a client that fell behind).
+     * Without cursors the stream starts from now; a reconnecting EventSource
+     * resumes from its Last-Event-ID. Unknown and finalized instances get
+     * 404; the stream ends when the instance's tree is closed.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Object>>> stream(
+            @RequestParam(defaultValue = DynamicMerkleTreeService.DEFAULT_TREE) String instance,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Long eventCursor,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        long transitionsFrom = cursor != null ? cursor : -1;
+        long eventsFrom = eventCursor != null ? eventCursor : -1;
+        long[] resume = MerkleTransitionStream.parseEventId(lastEventId);
+        if (resume != null) {
+            transitionsFrom = resume[0];
+            eventsFrom = resume[1];
+        }
+        try {
+            if (!DynamicMerkleTreeService.DEFAULT_TREE.equals(instance)) {
+                InstanceService.SquidInstance inst = instanceService.get(instance);
+                if (inst == null || "FINALIZED".equals(inst.status)) {
+                    return ResponseEntity.notFound().build();
+                }
+                // reopen a tree that was evicted while idle
+                merkleTreeService.openTree(instance, instanceService.getLeafHexes(instance));
+            }
+            return ResponseEntity.ok(merkleTreeService.streamTransitions(instance, transitionsFrom, eventsFrom));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Autonomous engine transitions in a time range (epoch millis, to exclusive)
+     * GET /api/v1/merkle/transitions/range?from=1700000000000&to=1700003600000&limit=100
+     */
+    @GetMapping("/transitions/range")
+    public ResponseEntity<Map<String, Object>> getTransitionsInRange(
+            @RequestParam long from,
+            @RequestParam long to,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (from > to || limit <= 0 || limit > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(merkleTreeService.getAutonomousTransitionsBetween(from, to, limit));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Get audit trail
      * GET /api/v1/merkle/audit
@@ -197,15 +324,10 @@ public class DynamicMerkleTreeController {
         try {
             Map<String, Object> status = merkleTreeService.getTreeStatus();
             Map<String, Object> stats = new java.util.HashMap<>(status);
-            stats.put("historySize", merkleTreeService.getTransitionHistory().size());
+            stats.put("historySize", merkleTreeService.countTransitions(null, null, 0, Long.MAX_VALUE));
             
             // Add event type breakdown
-            java.util.Map<String, Long> eventCounts = new java.util.HashMap<>();
-            merkleTreeService.getTransitionHistory().forEach(e ->
-                eventCounts.put(e.getEventType(),
-                    eventCounts.getOrDefault(e.getEventType(), 0L) + 1)
-            );
-            stats.put("eventCounts", eventCounts);
+            stats.put("eventCounts", merkleTreeService.getTransitionCountsByType());
             
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
@@ -253,10 +375,7 @@ public class DynamicMerkleTreeController {
                 md.update(seed.getBytes(java.nio.charset.StandardCharsets.UTF_8));
                 md.update((byte) ':');
                 md.update(Integer.toString(i).getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                byte[] h = md.digest();
-                StringBuilder sb = new StringBuilder();
-                for (byte bb : h) sb.append(String.format("%02x", bb));
-                newLeaves.add(sb.toString());
+                newLeaves.add(Hex.encode(md.digest()));
             }
 
             Map<String, Object> result = merkleTreeService.addLeaves(newLeaves, "generate_from_seed_http");
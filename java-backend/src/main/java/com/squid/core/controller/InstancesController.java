@@ -62,6 +62,8 @@ public class InstancesController {
             @SuppressWarnings("unchecked")
             Map<String, Object> config = (Map<String, Object>) body.getOrDefault("config", new LinkedHashMap<>());
             Map<String, Object> result = instanceService.create(name, config);
+            String id = (String) result.get("id");
+            dynamicService.openTree(id, instanceService.getLeafHexes(id));
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             e.printStackTrace();
@@ -181,6 +183,45 @@ public class InstancesController {
         }
     }
 
+    /**
+     * Status of the instance's dynamic tree (reopened if it was evicted).
+     * GET /api/v1/instances/{id}/tree
+     */
+    @GetMapping("/{id}/tree")
+    public ResponseEntity<Map<String, Object>> getTree(@PathVariable String id) {
+        if (instanceService.get(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(dynamicService.openTree(id, instanceService.getLeafHexes(id)));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Page through the autonomous transitions of the instance's dynamic tree.
+     * GET /api/v1/instances/{id}/tree/transitions?cursor=0&limit=100
+     */
+    @GetMapping("/{id}/tree/transitions")
+    public ResponseEntity<Map<String, Object>> getTreeTransitions(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (instanceService.get(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (cursor < 0 || limit <= 0 || limit > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            dynamicService.openTree(id, instanceService.getLeafHexes(id));
+            return ResponseEntity.ok(dynamicService.getAutonomousTransitions(id, cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Get the full history of an instance.
      * GET /api/v1/instances/{id}/history
@@ -221,6 +262,7 @@ public class InstancesController {
             String finalSeedHex = aiState.getLastFinalSeedHex();
 
             Map<String,Object> out = instanceService.cancel(id, globalRoot, signature, finalSeedHex);
+            dynamicService.closeTree(id);
             return ResponseEntity.ok(out);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -1,5 +1,6 @@
 package com.squid.core.controller;
 
+import com.squid.core.crypto.Hash32;
 import com.squid.core.lock.InstanceLockManager;
 import com.squid.core.merkle.*;
 import com.squid.core.optimization.OptimizationService;
@@ -42,7 +43,7 @@ public class MerkleTreeOperationsController {
         
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("instanceId", instanceId);
-        response.put("rootHash", tree.getRootHash());
+        response.put("rootHash", toHex(tree.getRootHash()));
         
         // constroi representacao hierarquica
         List<Map<String, Object>> hierarchicalNodes = buildHierarchicalStructure(tree);
@@ -150,7 +151,7 @@ public class MerkleTreeOperationsController {
             Map<String, Object> response = new LinkedHashMap<>();
             response.put("operation", "cascade_removal");
             response.put("result", result.toMap());
-            response.put("newRootHash", tree.getRootHash());
+            response.put("newRootHash", toHex(tree.getRootHash()));
             response.put("versioningEnabled", true);
             
             return ResponseEntity.ok(response);
@@ -328,6 +329,10 @@ public class MerkleTreeOperationsController {
         });
     }
     
+    private static String toHex(Hash32 hash) {
+        return hash != null ? hash.toHex() : null;
+    }
+    
     private MerkleTreeVersioning getOrCreateVersioning(String instanceId) {
         return instanceVersions.computeIfAbsent(instanceId, MerkleTreeVersioning::new);
     }
@@ -360,8 +365,8 @@ public class MerkleTreeOperationsController {
                                           MerkleTreeStructure tree, int depth) {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("id", node.getNodeId());
-        map.put("hash", node.getHash());
-        map.put("hashShort", node.getHash().substring(0, Math.min(16, node.getHash().length())) + "...");
+        map.put("hash", node.getHash().toHex());
+        map.put("hashShort", node.getHash().toShortHex(16) + "...");
         map.put("state", node.getState());
         map.put("depth", depth);
         map.put("isLeaf", node.isLeaf());
@@ -369,8 +374,9 @@ public class MerkleTreeOperationsController {
         
         // encontra filhos (nos que tem este como pai)
         List<Map<String, Object>> children = new ArrayList<>();
-        for (MerkleTreeStructure.MerkleNode n : tree.getAllNodes()) {
-            if (node.getNodeId().equals(n.getParentId())) {
+        for (String childId : tree.getChildren(node.getNodeId())) {
+            MerkleTreeStructure.MerkleNode n = tree.findNode(childId);
+            if (n != null) {
                 children.add(nodeToMap(n, tree, depth + 1));
             }
         }
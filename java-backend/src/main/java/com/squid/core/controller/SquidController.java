@@ -1,12 +1,25 @@
 package com.squid.core.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.squid.core.model.*;
 import com.squid.core.service.SquidCoreService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @CrossOrigin
@@ -14,9 +27,19 @@ import java.util.List;
 @RequestMapping("/api/v1")
 public class SquidController {
 
+    private static final int MAX_BATCH_VERIFY = 100_000;
+    // Flush in batches, and never auto-close the array: an aborted batch must
+    // not look like a complete JSON document to the client
+    private static final ObjectMapper BATCH_MAPPER = new ObjectMapper()
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET, JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
     @Autowired
     private SquidCoreService squidService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/generate")
     public ResponseEntity<EnhancedGenerateResponse> generate(@Valid @RequestBody GenerateRequest request) {
         try {
@@ -37,6 +60,70 @@ public class SquidController {
         }
     }
 
+    /**
+     * Bulk verification for reconciliation jobs.
+     * Body: JSON array of verify requests (only merkle_root and signature are used).
+     * Results are verified in parallel and streamed back as a JSON array in
+     * request order.
+     * The body is read element by element and rejected as soon as it holds
+     * more than MAX_BATCH_VERIFY requests, so an oversized batch is never
+     * materialized.
+     */
+    @PostMapping(value = "/verify/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void verifyBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<VerifyRequest> requests = new ArrayList<>();
+        ObjectReader reader = objectMapper.readerFor(VerifyRequest.class);
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Body must be a JSON array of verify requests");
+                return;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Truncated batch");
+                    return;
+                }
+                if (requests.size() == MAX_BATCH_VERIFY) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "Batch too large: more than " + MAX_BATCH_VERIFY);
+                    return;
+                }
+                requests.add(reader.readValue(parser));
+            }
+        } catch (JsonProcessingException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed batch: " + e.getOriginalMessage());
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator json = BATCH_MAPPER.getFactory().createGenerator(response.getOutputStream())) {
+            json.writeStartArray();
+            int[] written = {0};
+            squidService.verifyBatch(requests, result -> {
+                try {
+                    BATCH_MAPPER.writeValue(json, result);
+                    if (++written[0] % 256 == 0) {
+                        json.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        } catch (IOException e) {
+            throw e;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (Exception e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } else {
+                throw new IOException("batch verification aborted", e);
+            }
+        }
+    }
+
     @GetMapping("/public/root")
     public ResponseEntity<PublicRootResponse> getPublicRoot() {
         try {
@@ -38,6 +38,18 @@ public class SystemStatusController {
         }
     }
 
+    /**
+     * PQC backend status and KEM pool metrics.
+     */
+    @GetMapping("/pqc")
+    public ResponseEntity<Map<String, Object>> getPqcStatus() {
+        try {
+            return ResponseEntity.ok(statusService.getPqcStatus());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Convenience endpoint returning a compact summary for cryptographic
      * operations, suitable for the QT and React dashboards.
@@ -1,181 +1,528 @@
 package com.squid.core.crypto;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * JSON Canonicalization implementation following RFC 8785 (JCS)
  * Ensures deterministic serialization for cryptographic operations
+ *
+ * Input is consumed as a Jackson token stream (no tree is built) and UTF-8
+ * is written straight into a byte array, an OutputStream or a
+ * MessageDigest. Members of an object are buffered only until the object
+ * closes and are then emitted sorted by UTF-16 code units; output outside
+ * any object is flushed to the sink in 8 KiB chunks.
+ *
+ * Floating-point values use the ECMAScript Number-to-String format;
+ * integers keep their exact digits. Duplicate keys keep the last value.
  */
 public class CanonicalJson {
-    
+
     private static final ObjectMapper MAPPER = new ObjectMapper();
-    
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+
     /**
      * Canonicalize a JSON object to deterministic byte representation
      */
     public static byte[] canonicalize(Object obj) throws IOException {
-        JsonNode node = MAPPER.valueToTree(obj);
-        String canonical = canonicalizeNode(node);
-        return canonical.getBytes(StandardCharsets.UTF_8);
+        try (JsonParser parser = tokens(obj)) {
+            return new Writer(null).write(parser).toByteArray();
+        }
     }
-    
+
     /**
      * Canonicalize a JSON string
      */
     public static byte[] canonicalize(String json) throws IOException {
-        JsonNode node = MAPPER.readTree(json);
-        String canonical = canonicalizeNode(node);
-        return canonical.getBytes(StandardCharsets.UTF_8);
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            return new Writer(null).write(parser).toByteArray();
+        }
     }
-    
-    private static String canonicalizeNode(JsonNode node) {
-        if (node.isNull()) {
-            return "null";
-        } else if (node.isBoolean()) {
-            return node.asBoolean() ? "true" : "false";
-        } else if (node.isNumber()) {
-            return canonicalizeNumber(node);
-        } else if (node.isTextual()) {
-            return canonicalizeString(node.asText());
-        } else if (node.isArray()) {
-            return canonicalizeArray((ArrayNode) node);
-        } else if (node.isObject()) {
-            return canonicalizeObject((ObjectNode) node);
-        } else {
-            throw new IllegalArgumentException("Unsupported JSON node type");
+
+    /**
+     * Canonicalize a JSON object directly into a stream
+     */
+    public static void canonicalize(Object obj, OutputStream out) throws IOException {
+        try (JsonParser parser = tokens(obj)) {
+            new Writer(out::write).write(parser);
         }
     }
-    
-    private static String canonicalizeNumber(JsonNode node) {
-        if (node.isInt() || node.isLong()) {
-            return String.valueOf(node.asLong());
-        } else if (node.isFloat() || node.isDouble()) {
-            double value = node.asDouble();
-            if (Double.isInfinite(value) || Double.isNaN(value)) {
-                throw new IllegalArgumentException("Invalid number: " + value);
+
+    /**
+     * Canonicalize a JSON string directly into a stream
+     */
+    public static void canonicalize(String json, OutputStream out) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            new Writer(out::write).write(parser);
+        }
+    }
+
+    /**
+     * Hash of the canonical form of a JSON object, without materializing it
+     */
+    public static byte[] digest(Object obj, MessageDigest md) throws IOException {
+        try (JsonParser parser = tokens(obj)) {
+            new Writer(md::update).write(parser);
+        }
+        return md.digest();
+    }
+
+    /**
+     * Hash of the canonical form of a JSON string, without materializing it
+     */
+    public static byte[] digest(String json, MessageDigest md) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            new Writer(md::update).write(parser);
+        }
+        return md.digest();
+    }
+
+    /**
+     * Verify that two JSON representations are canonically equivalent
+     */
+    public static boolean areEquivalent(String json1, String json2) {
+        try {
+            byte[] canonical1 = canonicalize(json1);
+            byte[] canonical2 = canonicalize(json2);
+            return java.util.Arrays.equals(canonical1, canonical2);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Serialize a POJO into a token buffer (native numbers, no text round trip)
+     */
+    private static JsonParser tokens(Object obj) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+        MAPPER.writeValue(buffer, obj);
+        return buffer.asParser();
+    }
+
+    /**
+     * Destination of canonical bytes
+     */
+    private interface Sink {
+        void write(byte[] data, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Single-pass canonical writer. All output goes through one growable
+     * buffer; an object's members are laid out in it as they are parsed and
+     * then rewritten in sorted order at the object's start offset.
+     */
+    private static final class Writer {
+
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        private static final Comparator<Member> BY_KEY = Comparator.comparing(m -> m.key);
+
+        private final Sink sink;
+        private byte[] buf = new byte[1024];
+        private int size;
+        private int openObjects;
+
+        Writer(Sink sink) {
+            this.sink = sink;
+        }
+
+        Writer write(JsonParser parser) throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("Empty JSON document");
             }
-            
-            // Use scientific notation for very large/small numbers
-            if (Math.abs(value) >= 1e21 || (Math.abs(value) <= 1e-6 && value != 0)) {
-                return String.format("%.15e", value).replaceAll("e\\+0+", "e").replaceAll("e-0+", "e-");
-            } else {
-                // Remove trailing zeros and unnecessary decimal point
-                String result = String.format("%.15f", value);
-                result = result.replaceAll("0+$", "");
-                result = result.replaceAll("\\.$", "");
-                return result;
+            value(parser, token);
+            if (sink != null && size > 0) {
+                sink.write(buf, 0, size);
+                size = 0;
             }
-        } else {
-            return node.asText();
+            return this;
         }
-    }
-    
-    private static String canonicalizeString(String str) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('"');
-        
-        for (int i = 0; i < str.length(); i++) {
-            char c = str.charAt(i);
-            
-            switch (c) {
-                case '"':
-                    sb.append("\\\"");
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void value(JsonParser parser, JsonToken token) throws IOException {
+            switch (token) {
+                case START_OBJECT:
+                    object(parser);
+                    break;
+                case START_ARRAY:
+                    array(parser);
                     break;
-                case '\\':
-                    sb.append("\\\\");
+                case VALUE_STRING:
+                    string(parser.getText());
                     break;
-                case '\b':
-                    sb.append("\\b");
+                case VALUE_NUMBER_INT:
+                    if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                        ascii(parser.getBigIntegerValue().toString());
+                    } else {
+                        integer(parser.getLongValue());
+                    }
                     break;
-                case '\f':
-                    sb.append("\\f");
+                case VALUE_NUMBER_FLOAT:
+                    number(parser.getDoubleValue());
                     break;
-                case '\n':
-                    sb.append("\\n");
+                case VALUE_TRUE:
+                    ascii("true");
                     break;
-                case '\r':
-                    sb.append("\\r");
+                case VALUE_FALSE:
+                    ascii("false");
                     break;
-                case '\t':
-                    sb.append("\\t");
+                case VALUE_NULL:
+                    ascii("null");
                     break;
+                case VALUE_EMBEDDED_OBJECT:
+                    // byte[] fields of POJOs; Jackson renders these as base64 text
+                    if (parser.getEmbeddedObject() instanceof byte[]) {
+                        string(Base64.getEncoder().encodeToString((byte[]) parser.getEmbeddedObject()));
+                        break;
+                    }
+                    throw new IllegalArgumentException("Unsupported JSON node type");
                 default:
-                    if (c < ' ') {
-                        sb.append(String.format("\\u%04x", (int) c));
+                    throw new IllegalArgumentException("Unsupported JSON node type");
+            }
+        }
+
+        private void object(JsonParser parser) throws IOException {
+            int mark = size;
+            openObjects++;
+            List<Member> members = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                int start = size;
+                value(parser, parser.nextToken());
+                members.add(new Member(key, start, size - start));
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("Unterminated JSON object");
+            }
+            openObjects--;
+
+            // Stable sort: of duplicate keys the last one in input order is kept
+            members.sort(BY_KEY);
+            int out = size;
+            put('{');
+            boolean first = true;
+            for (int i = 0; i < members.size(); i++) {
+                Member m = members.get(i);
+                if (i + 1 < members.size() && members.get(i + 1).key.equals(m.key)) {
+                    continue;
+                }
+                if (!first) {
+                    put(',');
+                }
+                first = false;
+                string(m.key);
+                put(':');
+                ensure(m.length);
+                System.arraycopy(buf, m.offset, buf, size, m.length);
+                size += m.length;
+            }
+            put('}');
+
+            // Move the sorted rendering over the raw member values
+            int length = size - out;
+            System.arraycopy(buf, out, buf, mark, length);
+            size = mark + length;
+            maybeFlush();
+        }
+
+        private void array(JsonParser parser) throws IOException {
+            put('[');
+            boolean first = true;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("Unterminated JSON array");
+                }
+                if (!first) {
+                    put(',');
+                }
+                first = false;
+                value(parser, token);
+                maybeFlush();
+            }
+            put(']');
+        }
+
+        private void string(String s) {
+            put('"');
+            int len = s.length();
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                ensure(6);
+                if (c < 0x80) {
+                    if (c >= 0x20 && c != '"' && c != '\\') {
+                        buf[size++] = (byte) c;
+                    } else {
+                        escape(c);
+                    }
+                } else if (c < 0x800) {
+                    buf[size++] = (byte) (0xC0 | (c >> 6));
+                    buf[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        buf[size++] = (byte) (0xF0 | (cp >> 18));
+                        buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                        buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                        buf[size++] = (byte) (0x80 | (cp & 0x3F));
                     } else {
-                        sb.append(c);
+                        // Lone surrogate: same replacement as String.getBytes(UTF_8)
+                        buf[size++] = '?';
                     }
+                } else {
+                    buf[size++] = (byte) (0xE0 | (c >> 12));
+                    buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            put('"');
+        }
+
+        private void escape(char c) {
+            buf[size++] = '\\';
+            switch (c) {
+                case '"':  buf[size++] = '"'; break;
+                case '\\': buf[size++] = '\\'; break;
+                case '\b': buf[size++] = 'b'; break;
+                case '\f': buf[size++] = 'f'; break;
+                case '\n': buf[size++] = 'n'; break;
+                case '\r': buf[size++] = 'r'; break;
+                case '\t': buf[size++] = 't'; break;
+                default:
+                    buf[size++] = 'u';
+                    buf[size++] = '0';
+                    buf[size++] = '0';
+                    buf[size++] = HEX[c >> 4];
+                    buf[size++] = HEX[c & 0xF];
                     break;
             }
         }
-        
-        sb.append('"');
-        return sb.toString();
-    }
-    
-    private static String canonicalizeArray(ArrayNode array) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        
-        for (int i = 0; i < array.size(); i++) {
-            if (i > 0) {
-                sb.append(',');
-            }
-            sb.append(canonicalizeNode(array.get(i)));
-        }
-        
-        sb.append(']');
-        return sb.toString();
+
+        private void integer(long value) {
+            if (value == Long.MIN_VALUE) {
+                ascii(Long.toString(value));
+                return;
+            }
+            ensure(20);
+            if (value < 0) {
+                buf[size++] = '-';
+                value = -value;
+            }
+            int start = size;
+            do {
+                buf[size++] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+            // digits were written least significant first
+            for (int i = start, j = size - 1; i < j; i++, j--) {
+                byte t = buf[i];
+                buf[i] = buf[j];
+                buf[j] = t;
+            }
+        }
+
+        /**
+         * ECMAScript Number.prototype.toString for finite doubles
+         * (RFC 8785 section 3.2.2.3).
+         */
+        private void number(double value) {
+            if (Double.isInfinite(value) || Double.isNaN(value)) {
+                throw new IllegalArgumentException("Invalid number: " + value);
+            }
+            if (value == 0.0) {
+                put('0'); // also -0
+                return;
+            }
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                // Integral and exactly representable: the shortest form is the integer itself
+                integer((long) value);
+                return;
+            }
+
+            Digits d = Digits.of(Math.abs(value));
+            int k = d.length;
+            int n = d.pointPosition;
+            ensure(k + 30);
+            if (value < 0) {
+                buf[size++] = '-';
+            }
+            if (k <= n && n <= 21) {
+                digits(d, 0, k);
+                zeros(n - k);
+            } else if (0 < n && n <= 21) {
+                digits(d, 0, n);
+                buf[size++] = '.';
+                digits(d, n, k);
+            } else if (-6 < n && n <= 0) {
+                buf[size++] = '0';
+                buf[size++] = '.';
+                zeros(-n);
+                digits(d, 0, k);
+            } else {
+                int exponent = n - 1;
+                digits(d, 0, 1);
+                if (k > 1) {
+                    buf[size++] = '.';
+                    digits(d, 1, k);
+                }
+                buf[size++] = 'e';
+                buf[size++] = (byte) (exponent > 0 ? '+' : '-');
+                integer(Math.abs(exponent));
+            }
+        }
+
+        private void digits(Digits d, int from, int to) {
+            for (int i = from; i < to; i++) {
+                buf[size++] = (byte) d.digits[i];
+            }
+        }
+
+        private void zeros(int count) {
+            ensure(count);
+            for (int i = 0; i < count; i++) {
+                buf[size++] = '0';
+            }
+        }
+
+        private void ascii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                buf[size++] = (byte) s.charAt(i);
+            }
+        }
+
+        private void put(char c) {
+            ensure(1);
+            buf[size++] = (byte) c;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        private void maybeFlush() throws IOException {
+            if (sink != null && openObjects == 0 && size >= FLUSH_THRESHOLD) {
+                sink.write(buf, 0, size);
+                size = 0;
+            }
+        }
     }
-    
-    private static String canonicalizeObject(ObjectNode object) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('{');
-        
-        // Sort keys alphabetically
-        List<String> keys = new ArrayList<>();
-        Iterator<String> fieldNames = object.fieldNames();
-        while (fieldNames.hasNext()) {
-            keys.add(fieldNames.next());
-        }
-        Collections.sort(keys);
-        
-        boolean first = true;
-        for (String key : keys) {
-            if (!first) {
-                sb.append(',');
-            }
-            first = false;
-            
-            sb.append(canonicalizeString(key));
-            sb.append(':');
-            sb.append(canonicalizeNode(object.get(key)));
-        }
-        
-        sb.append('}');
-        return sb.toString();
+
+    private static final class Member {
+        final String key;
+        final int offset;
+        final int length;
+
+        Member(String key, int offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
     }
-    
+
     /**
-     * Verify that two JSON representations are canonically equivalent
+     * Shortest round-trip decimal digits of a positive double, as
+     * value = 0.d1d2...dk x 10^pointPosition.
      */
-    public static boolean areEquivalent(String json1, String json2) {
-        try {
-            byte[] canonical1 = canonicalize(json1);
-            byte[] canonical2 = canonicalize(json2);
-            return java.util.Arrays.equals(canonical1, canonical2);
-        } catch (IOException e) {
-            return false;
+    private static final class Digits {
+        final char[] digits;
+        final int length;
+        final int pointPosition;
+
+        private Digits(char[] digits, int length, int pointPosition) {
+            this.digits = digits;
+            this.length = length;
+            this.pointPosition = pointPosition;
+        }
+
+        static Digits of(double value) {
+            String repr = Double.toString(value);
+            char[] raw = new char[repr.length()];
+            int k = 0;
+            int point = -1;
+            int exponent = 0;
+            int i = 0;
+            for (; i < repr.length(); i++) {
+                char c = repr.charAt(i);
+                if (c == '.') {
+                    point = k;
+                } else if (c == 'E') {
+                    exponent = Integer.parseInt(repr, i + 1, repr.length(), 10);
+                    break;
+                } else {
+                    raw[k++] = c;
+                }
+            }
+            int n = (point < 0 ? k : point) + exponent;
+            int lead = 0;
+            while (lead < k - 1 && raw[lead] == '0') {
+                lead++;
+                n--;
+            }
+            int end = k;
+            while (end > lead + 1 && raw[end - 1] == '0') {
+                end--;
+            }
+            char[] digits = Arrays.copyOfRange(raw, lead, end);
+            if (digits.length >= 16 || (value < Double.MIN_NORMAL && digits.length > 1)) {
+                // Double.toString before JDK 19 is not always shortest
+                // (1e23 -> 9.999999999999999E22, Double.MIN_VALUE -> 4.9E-324)
+                // nor closest at 17 digits (3.1500000000000003E25 ->
+                // 3.1500000000000002E25), so these are redone exactly
+                return shortest(digits.length, value);
+            }
+            return new Digits(digits, digits.length, n);
+        }
+
+        /**
+         * ECMAScript digit selection from the exact binary value: for each
+         * length from {@code maxLength} down, the two decimals of that
+         * length around the value (its floor and ceiling) are the only ones
+         * that can parse back to it. Keep the closer one that does (ties
+         * to an even last digit) and stop at the first length where neither
+         * does, since no shorter decimal can then round-trip either.
+         */
+        private static Digits shortest(int maxLength, double value) {
+            BigDecimal exact = new BigDecimal(value);
+            BigDecimal best = exact.round(new MathContext(17, RoundingMode.HALF_EVEN));
+            for (int len = Math.min(maxLength, 17); len >= 1; len--) {
+                BigDecimal down = exact.round(new MathContext(len, RoundingMode.FLOOR));
+                BigDecimal up = exact.round(new MathContext(len, RoundingMode.CEILING));
+                boolean downOk = down.doubleValue() == value;
+                boolean upOk = up.doubleValue() == value;
+                if (downOk && upOk) {
+                    int side = exact.subtract(down).compareTo(up.subtract(exact));
+                    best = side < 0 || (side == 0 && !down.unscaledValue().testBit(0)) ? down : up;
+                } else if (downOk || upOk) {
+                    best = downOk ? down : up;
+                } else {
+                    break;
+                }
+            }
+            best = best.stripTrailingZeros();
+            char[] digits = best.unscaledValue().toString().toCharArray();
+            return new Digits(digits, digits.length, digits.length - best.scale());
         }
     }
 }
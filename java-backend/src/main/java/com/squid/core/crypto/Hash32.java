@@ -0,0 +1,171 @@
+package com.squid.core.crypto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Immutable 32-byte hash (SHA-256 / BLAKE2b-256 sized) used by the Merkle
+ * stack instead of 64-char hex strings.
+ *
+ * The value is held as four big-endian longs, so equals/hashCode are a few
+ * word compares and ordering matches unsigned byte order. Jackson reads and
+ * writes it as lowercase hex, which keeps the JSON contract unchanged.
+ */
+public final class Hash32 implements Comparable<Hash32> {
+
+    public static final int LENGTH = 32;
+    public static final Hash32 ZERO = new Hash32(0L, 0L, 0L, 0L);
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final long w0;
+    private final long w1;
+    private final long w2;
+    private final long w3;
+
+    private Hash32(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+    }
+
+    /**
+     * Wrap exactly 32 bytes.
+     *
+     * @throws IllegalArgumentException for any other length
+     */
+    public static Hash32 of(byte[] bytes) {
+        if (bytes == null || bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Hash32 requires 32 bytes, got "
+                    + (bytes == null ? "null" : bytes.length));
+        }
+        return new Hash32(word(bytes, 0), word(bytes, 8), word(bytes, 16), word(bytes, 24));
+    }
+
+    /**
+     * Parse 64 hex characters (either case).
+     *
+     * @throws IllegalArgumentException for malformed input
+     */
+    @JsonCreator
+    public static Hash32 fromHex(String hex) {
+        if (hex == null || hex.length() != LENGTH * 2) {
+            throw new IllegalArgumentException("Hash32 requires 64 hex characters");
+        }
+        return of(Hex.decode(hex));
+    }
+
+    public static Hash32 sha256(byte[] data) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        return of(md.digest(data));
+    }
+
+    public static Hash32 sha256(String text) {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parent hash: SHA-256(left || right) over the raw 32-byte values.
+     */
+    public static Hash32 combine(Hash32 left, Hash32 right) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        left.update(md);
+        right.update(md);
+        return of(md.digest());
+    }
+
+    /**
+     * Feed the 32 raw bytes into a digest.
+     */
+    public void update(MessageDigest md) {
+        byte[] buf = new byte[LENGTH];
+        writeTo(buf, 0);
+        md.update(buf);
+    }
+
+    public void writeTo(byte[] dst, int offset) {
+        putWord(dst, offset, w0);
+        putWord(dst, offset + 8, w1);
+        putWord(dst, offset + 16, w2);
+        putWord(dst, offset + 24, w3);
+    }
+
+    public byte[] toBytes() {
+        byte[] out = new byte[LENGTH];
+        writeTo(out, 0);
+        return out;
+    }
+
+    @JsonValue
+    public String toHex() {
+        return Hex.encode(toBytes());
+    }
+
+    /**
+     * Leading hex characters, for display only.
+     */
+    public String toShortHex(int chars) {
+        String hex = toHex();
+        return hex.substring(0, Math.min(chars, hex.length()));
+    }
+
+    public boolean isZero() {
+        return (w0 | w1 | w2 | w3) == 0L;
+    }
+
+    @Override
+    public int compareTo(Hash32 o) {
+        int c = Long.compareUnsigned(w0, o.w0);
+        if (c == 0) c = Long.compareUnsigned(w1, o.w1);
+        if (c == 0) c = Long.compareUnsigned(w2, o.w2);
+        if (c == 0) c = Long.compareUnsigned(w3, o.w3);
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Hash32)) return false;
+        Hash32 h = (Hash32) o;
+        return w0 == h.w0 && w1 == h.w1 && w2 == h.w2 && w3 == h.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        // Already uniformly distributed, a fold of one word is enough
+        return (int) (w0 ^ (w0 >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    private static long word(byte[] b, int off) {
+        long v = 0L;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFFL);
+        }
+        return v;
+    }
+
+    private static void putWord(byte[] b, int off, long v) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+}
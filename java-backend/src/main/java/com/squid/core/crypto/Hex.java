@@ -0,0 +1,75 @@
+package com.squid.core.crypto;
+
+/**
+ * Table-driven lowercase hex codec shared by the whole backend.
+ * Hashes are kept binary internally; hex is only produced at the JSON,
+ * log and database boundaries.
+ */
+public final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Hex() {
+    }
+
+    public static String encode(byte[] bytes) {
+        return encode(bytes, 0, bytes.length);
+    }
+
+    public static String encode(byte[] bytes, int offset, int length) {
+        char[] out = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int v = bytes[offset + i] & 0xFF;
+            out[i * 2] = DIGITS[v >>> 4];
+            out[i * 2 + 1] = DIGITS[v & 0x0F];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decode hex (either case).
+     *
+     * @throws IllegalArgumentException on odd length or a non-hex character
+     */
+    public static byte[] decode(CharSequence hex) {
+        int len = hex.length();
+        if ((len & 1) != 0) {
+            throw new IllegalArgumentException("Odd hex length: " + len);
+        }
+        byte[] out = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            out[i / 2] = (byte) (nibble(hex, i) << 4 | nibble(hex, i + 1));
+        }
+        return out;
+    }
+
+    public static boolean isHex(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || VALUES[c] < 0) {
+                return false;
+            }
+        }
+        return s.length() > 0;
+    }
+
+    private static int nibble(CharSequence hex, int index) {
+        char c = hex.charAt(index);
+        int v = c < 128 ? VALUES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException("Invalid hex character '" + c + "' at " + index);
+        }
+        return v;
+    }
+}
@@ -0,0 +1,171 @@
+package com.squid.core.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+
+/**
+ * Chunked AES-256-GCM in the STREAM construction (Hoang et al.).
+ *
+ * The plaintext is cut into fixed-size segments; each one is sealed
+ * independently with nonce = prefix(7) || counter(4) || lastFlag(1), so
+ * memory use is bounded by one segment regardless of payload size.
+ * Reordering, duplication and truncation are all detected: the counter
+ * fixes each segment's position and only the final segment carries the
+ * last flag. The final segment is always shorter than a full one (an
+ * empty final segment is emitted when the length is an exact multiple).
+ *
+ * Callers supply the caller-specific header as associated data for every
+ * segment. Plaintext of a segment is only released after its tag checks,
+ * but a truncated stream is only reported once the end is reached.
+ */
+public final class StreamingAead {
+
+    public static final int NONCE_PREFIX_LENGTH = 7;
+    public static final int TAG_LENGTH = 16;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private StreamingAead() {
+    }
+
+    /**
+     * Encrypt everything readable from {@code in} into {@code out}.
+     *
+     * @return number of plaintext bytes consumed
+     */
+    public static long encrypt(byte[] key, byte[] noncePrefix, byte[] associatedData, int segmentSize,
+                               ReadableByteChannel in, WritableByteChannel out)
+            throws IOException, GeneralSecurityException {
+        checkParameters(key, noncePrefix, segmentSize);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
+        ByteBuffer plain = ByteBuffer.allocate(segmentSize);
+        ByteBuffer sealed = ByteBuffer.allocate(segmentSize + TAG_LENGTH);
+
+        long total = 0;
+        int counter = 0;
+        while (true) {
+            plain.clear();
+            int n = fill(in, plain);
+            total += n;
+            boolean last = n < segmentSize;
+
+            plain.flip();
+            sealed.clear();
+            cipher.init(Cipher.ENCRYPT_MODE, keySpec, nonce(noncePrefix, counter, last));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData);
+            }
+            cipher.doFinal(plain, sealed);
+            sealed.flip();
+            writeFully(out, sealed);
+
+            if (last) {
+                return total;
+            }
+            counter = nextCounter(counter);
+        }
+    }
+
+    /**
+     * Decrypt a segment stream produced by {@link #encrypt} into {@code out}.
+     *
+     * @return number of plaintext bytes written
+     */
+    public static long decrypt(byte[] key, byte[] noncePrefix, byte[] associatedData, int segmentSize,
+                               ReadableByteChannel in, WritableByteChannel out)
+            throws IOException, GeneralSecurityException {
+        checkParameters(key, noncePrefix, segmentSize);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
+        ByteBuffer sealed = ByteBuffer.allocate(segmentSize + TAG_LENGTH);
+        ByteBuffer plain = ByteBuffer.allocate(segmentSize);
+
+        long total = 0;
+        int counter = 0;
+        while (true) {
+            sealed.clear();
+            int n = fill(in, sealed);
+            boolean last = n < sealed.capacity();
+            if (n < TAG_LENGTH) {
+                throw new EOFException("Truncated stream: segment " + counter + " is incomplete");
+            }
+
+            sealed.flip();
+            plain.clear();
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, nonce(noncePrefix, counter, last));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData);
+            }
+            // AEADBadTagException here covers tampering, reordering and truncation
+            cipher.doFinal(sealed, plain);
+            plain.flip();
+            total += plain.remaining();
+            writeFully(out, plain);
+
+            if (last) {
+                return total;
+            }
+            counter = nextCounter(counter);
+        }
+    }
+
+    private static GCMParameterSpec nonce(byte[] prefix, int counter, boolean last) {
+        byte[] iv = new byte[NONCE_PREFIX_LENGTH + 5];
+        System.arraycopy(prefix, 0, iv, 0, NONCE_PREFIX_LENGTH);
+        iv[7] = (byte) (counter >>> 24);
+        iv[8] = (byte) (counter >>> 16);
+        iv[9] = (byte) (counter >>> 8);
+        iv[10] = (byte) counter;
+        iv[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, iv);
+    }
+
+    private static int nextCounter(int counter) {
+        if (counter == -1) {
+            throw new IllegalStateException("Segment counter exhausted");
+        }
+        return counter + 1;
+    }
+
+    private static void checkParameters(byte[] key, byte[] noncePrefix, int segmentSize) {
+        if (key == null || key.length != 32) {
+            throw new IllegalArgumentException("StreamingAead requires a 256-bit key");
+        }
+        if (noncePrefix == null || noncePrefix.length != NONCE_PREFIX_LENGTH) {
+            throw new IllegalArgumentException("Nonce prefix must be " + NONCE_PREFIX_LENGTH + " bytes");
+        }
+        if (segmentSize < 1024 || segmentSize > 16 * 1024 * 1024) {
+            throw new IllegalArgumentException("Segment size out of range: " + segmentSize);
+        }
+    }
+
+    /**
+     * Read until the buffer is full or the channel is exhausted.
+     */
+    private static int fill(ReadableByteChannel in, ByteBuffer buf) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            int n = in.read(buf);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+}
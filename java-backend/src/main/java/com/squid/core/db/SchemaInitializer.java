@@ -47,6 +47,7 @@ public class SchemaInitializer implements CommandLineRunner {
             createMerkleNodesTable(conn, isPostgres, isMySQL);
             createProbabilityModelsTable(conn, isPostgres, isMySQL);
             createDecoyOperationsTable(conn, isPostgres, isMySQL);
+            createMerkleTransitionEventsTable(conn);
 
             log.info("SQUID schema initialized successfully.");
         } catch (Exception e) {
@@ -180,6 +181,29 @@ public class SchemaInitializer implements CommandLineRunner {
         execSafe(conn, "CREATE INDEX IF NOT EXISTS idx_decoy_ts ON decoy_operations(timestamp)");
     }
 
+    // ────────── merkle_transition_events ──────────
+
+    private void createMerkleTransitionEventsTable(Connection conn) throws Exception {
+        // seq is assigned by the application; ts_ms is epoch millis for keyset/range scans
+        String sql = "CREATE TABLE IF NOT EXISTS merkle_transition_events (" +
+                "seq BIGINT PRIMARY KEY, " +
+                "event_id VARCHAR(36), " +
+                "instance_id VARCHAR(128), " +
+                "event_type VARCHAR(50), " +
+                "ts_ms BIGINT, " +
+                "trigger_reason TEXT, " +
+                "previous_root VARCHAR(128), " +
+                "new_root VARCHAR(128), " +
+                "node_count INT, " +
+                "leaf_changed_count INT, " +
+                "details TEXT" +
+                ")";
+        exec(conn, sql);
+        execSafe(conn, "CREATE INDEX IF NOT EXISTS idx_mte_type ON merkle_transition_events(event_type, seq)");
+        execSafe(conn, "CREATE INDEX IF NOT EXISTS idx_mte_instance ON merkle_transition_events(instance_id, seq)");
+        execSafe(conn, "CREATE INDEX IF NOT EXISTS idx_mte_ts ON merkle_transition_events(ts_ms)");
+    }
+
     // ────────── helpers ──────────
 
     private void exec(Connection conn, String sql) throws Exception {
@@ -1,12 +1,12 @@
 package com.squid.core.db;
 
+import com.squid.core.crypto.Hash32;
+import com.squid.core.model.MerkleTreeTransitionEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.sql.*;
 import java.time.Instant;
 import java.util.*;
@@ -198,6 +198,196 @@ public class SquidDatabaseService {
         return out;
     }
 
+    // ───────────────── MERKLE TRANSITION EVENTS ─────────────────
+
+    private static final String TRANSITION_EVENT_COLUMNS =
+            "seq,event_id,instance_id,event_type,ts_ms,trigger_reason,previous_root,new_root," +
+            "node_count,leaf_changed_count,details";
+
+    /**
+     * Batch-insert transition events in one transaction; the caller assigns
+     * their sequence numbers. Returns the number stored: all of them, or 0
+     * when the batch failed and was rolled back.
+     */
+    public int insertTransitionEvents(List<MerkleTreeTransitionEvent> events) {
+        String sql = "INSERT INTO merkle_transition_events(" + TRANSITION_EVENT_COLUMNS + ") " +
+                     "VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                for (MerkleTreeTransitionEvent e : events) {
+                    ps.setLong(1, e.getSequence());
+                    ps.setString(2, e.getId());
+                    ps.setString(3, e.getInstanceId());
+                    ps.setString(4, e.getEventType());
+                    ps.setLong(5, e.getTimestamp().toEpochMilli());
+                    ps.setString(6, e.getTriggerReason());
+                    ps.setString(7, e.getPreviousRootHash());
+                    ps.setString(8, e.getNewRootHash());
+                    ps.setInt(9, e.getNodeCount());
+                    ps.setInt(10, e.getLeafChangedCount());
+                    ps.setString(11, e.getDetails());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                // nothing of a failed batch is kept, so the caller can retry it whole
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return events.size();
+        } catch (Exception e) {
+            log.error("insertTransitionEvents failed: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Highest stored transition event sequence, or -1 when there is none.
+     *
+     * @throws IllegalStateException when the table cannot be read; -1 would
+     *         restart sequences over existing rows
+     */
+    public long getMaxTransitionEventSeq() {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(seq),-1) FROM merkle_transition_events")) {
+            return rs.next() ? rs.getLong(1) : -1L;
+        } catch (SQLException e) {
+            log.error("getMaxTransitionEventSeq failed: {}", e.getMessage());
+            throw new IllegalStateException("Cannot read merkle_transition_events", e);
+        }
+    }
+
+    /**
+     * Keyset page of transition events with sequence below {@code beforeSeq},
+     * newest first. Null type or instance and an open time range
+     * ({@code 0}, {@code Long.MAX_VALUE}) match everything.
+     */
+    public List<MerkleTreeTransitionEvent> queryTransitionEvents(String eventType, String instanceId,
+                                                                 long fromMs, long toMs,
+                                                                 long beforeSeq, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + TRANSITION_EVENT_COLUMNS + " FROM merkle_transition_events WHERE seq < ?" +
+                     transitionEventFilter(eventType, instanceId, fromMs, toMs, params) +
+                     " ORDER BY seq DESC LIMIT " + limit;
+        params.add(0, beforeSeq);
+        return selectTransitionEvents(sql, params);
+    }
+
+    /**
+     * Transition events of one instance (null = all) with sequence in
+     * [fromSeq, toSeq), oldest first.
+     */
+    public List<MerkleTreeTransitionEvent> getTransitionEventsFrom(String instanceId,
+                                                                   long fromSeq, long toSeq, int limit) {
+        List<Object> params = new ArrayList<>(Arrays.asList(fromSeq, toSeq));
+        String sql = "SELECT " + TRANSITION_EVENT_COLUMNS + " FROM merkle_transition_events " +
+                     "WHERE seq >= ? AND seq < ?" +
+                     transitionEventFilter(null, instanceId, 0, Long.MAX_VALUE, params) +
+                     " ORDER BY seq ASC LIMIT " + limit;
+        return selectTransitionEvents(sql, params);
+    }
+
+    /**
+     * Number of transition events below {@code beforeSeq} matching the
+     * filters of {@link #queryTransitionEvents}.
+     */
+    public long countTransitionEvents(String eventType, String instanceId,
+                                      long fromMs, long toMs, long beforeSeq) {
+        List<Object> params = new ArrayList<>();
+        params.add(beforeSeq);
+        String sql = "SELECT COUNT(*) FROM merkle_transition_events WHERE seq < ?" +
+                     transitionEventFilter(eventType, instanceId, fromMs, toMs, params);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = prepare(conn, sql, params);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        } catch (Exception e) {
+            log.error("countTransitionEvents failed: {}", e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * Transition event counts per type, for events below {@code beforeSeq}.
+     */
+    public Map<String, Long> countTransitionEventsByType(long beforeSeq) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        String sql = "SELECT event_type, COUNT(*) FROM merkle_transition_events WHERE seq < ? " +
+                     "GROUP BY event_type";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = prepare(conn, sql, Collections.singletonList(beforeSeq));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (Exception e) {
+            log.error("countTransitionEventsByType failed: {}", e.getMessage());
+        }
+        return counts;
+    }
+
+    private static String transitionEventFilter(String eventType, String instanceId,
+                                                long fromMs, long toMs, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (eventType != null) {
+            where.append(" AND event_type = ?");
+            params.add(eventType);
+        }
+        if (instanceId != null) {
+            where.append(" AND instance_id = ?");
+            params.add(instanceId);
+        }
+        if (fromMs > 0) {
+            where.append(" AND ts_ms >= ?");
+            params.add(fromMs);
+        }
+        if (toMs < Long.MAX_VALUE) {
+            where.append(" AND ts_ms < ?");
+            params.add(toMs);
+        }
+        return where.toString();
+    }
+
+    private List<MerkleTreeTransitionEvent> selectTransitionEvents(String sql, List<Object> params) {
+        List<MerkleTreeTransitionEvent> out = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = prepare(conn, sql, params);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                MerkleTreeTransitionEvent e = new MerkleTreeTransitionEvent();
+                e.setSequence(rs.getLong("seq"));
+                e.setId(rs.getString("event_id"));
+                e.setInstanceId(rs.getString("instance_id"));
+                e.setEventType(rs.getString("event_type"));
+                e.setTimestamp(Instant.ofEpochMilli(rs.getLong("ts_ms")));
+                e.setTriggerReason(rs.getString("trigger_reason"));
+                e.setPreviousRootHash(rs.getString("previous_root"));
+                e.setNewRootHash(rs.getString("new_root"));
+                e.setNodeCount(rs.getInt("node_count"));
+                e.setLeafChangedCount(rs.getInt("leaf_changed_count"));
+                e.setDetails(rs.getString("details"));
+                out.add(e);
+            }
+        } catch (Exception e) {
+            log.error("selectTransitionEvents failed: {}", e.getMessage());
+        }
+        return out;
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, List<Object> params) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+        return ps;
+    }
+
     // ───────────────── PROBABILITY MODELS ─────────────────
 
     public void insertProbabilityModel(double sr, double cc, String decision, double entropy) {
@@ -269,7 +459,8 @@ public class SquidDatabaseService {
 
     public Map<String, Long> getTableCounts() {
         Map<String, Long> counts = new LinkedHashMap<>();
-        String[] tables = {"users", "audit_logs", "merkle_nodes", "probability_models", "decoy_operations"};
+        String[] tables = {"users", "audit_logs", "merkle_nodes", "probability_models", "decoy_operations",
+                           "merkle_transition_events"};
         try (Connection conn = dataSource.getConnection();
              Statement st = conn.createStatement()) {
             for (String t : tables) {
@@ -329,14 +520,6 @@ public class SquidDatabaseService {
     }
 
     private String sha256Hex(String input) {
-        try {
-            byte[] digest = MessageDigest.getInstance("SHA-256")
-                    .digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            return "error";
-        }
+        return Hash32.sha256(input).toHex();
     }
 }
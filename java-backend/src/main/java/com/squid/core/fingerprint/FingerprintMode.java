@@ -1,14 +1,30 @@
 package com.squid.core.fingerprint;
 
 /**
- * Operational modes for hardware fingerprinting.
+ * Operational modes for hardware fingerprinting, each with a cost budget
+ * for a fresh capture on the calling thread.
  *
- * FULL      -> microarchitectural + temporal + triggers
- * REDUCED   -> temporal + triggers
- * SOFTWARE  -> software-only fallback
+ * FULL      -> microarchitectural + temporal + triggers   (budget 2 ms)
+ * REDUCED   -> quick temporal probe only                  (budget 50 µs)
+ * SOFTWARE  -> software-only fallback, no timing probes   (budget 10 µs)
+ *
+ * Signals a mode does not probe (e.g. execution variability for REDUCED)
+ * come from the background sampler statistics. Probes that would overrun
+ * the budget are skipped the same way, and the snapshot lists them as
+ * skipped (see {@link FingerprintSnapshot#isComplete}).
  */
 public enum FingerprintMode {
-    FULL,
-    REDUCED,
-    SOFTWARE
-}
\ No newline at end of file
+    FULL(2_000_000L),
+    REDUCED(50_000L),
+    SOFTWARE(10_000L);
+
+    private final long budgetNanos;
+
+    FingerprintMode(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+}
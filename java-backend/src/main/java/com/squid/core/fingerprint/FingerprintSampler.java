@@ -0,0 +1,289 @@
+package com.squid.core.fingerprint;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous low-priority sampler behind HardwareFingerprintService.
+ *
+ * A daemon thread first warms up the measured kernels (so the JIT has
+ * compiled them before anything is recorded), then takes a few samples
+ * every interval into fixed-size rolling windows. After each batch it
+ * publishes immutable median/MAD statistics through volatile fields, so
+ * readers never block and never run timing loops themselves.
+ *
+ * The baseline is the first full temporal window after warm-up and is
+ * established on the sampler thread; until then {@link #getDrift()} reads
+ * as 0.
+ *
+ * Timing loops run under a measurement lock shared with fresh captures
+ * (see HardwareFingerprintService), taken per batch so a capture waits at
+ * most for one batch and never runs concurrently with a sample.
+ */
+public class FingerprintSampler {
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int WARMUP_CHUNK = 16;
+    private static final int TEMPORAL_PER_BATCH = 4;
+    private static final int SPECULATIVE_WINDOW = 32;
+
+    // Scales MAD to a standard-deviation estimate for normally distributed samples
+    private static final double MAD_TO_SIGMA = 1.4826;
+
+    private final TemporalFingerprint temporal;
+    private final MicroarchitecturalFingerprint micro;
+    private final long intervalMillis;
+    private final Object measureLock;
+
+    private final RollingWindow temporalWindow;
+    private final RollingWindow speculativeWindow = new RollingWindow(SPECULATIVE_WINDOW);
+
+    private volatile Stats temporalStats = Stats.EMPTY;
+    private volatile Stats speculativeStats = Stats.EMPTY;
+    private volatile Baseline baseline;
+    private volatile Thread thread;
+
+    public FingerprintSampler(TemporalFingerprint temporal, MicroarchitecturalFingerprint micro,
+                              long intervalMillis, int windowSize) {
+        this(temporal, micro, intervalMillis, windowSize, new Object());
+    }
+
+    /**
+     * @param measureLock held around every timing loop; share it with any
+     *                    other code that measures on the same machine
+     */
+    public FingerprintSampler(TemporalFingerprint temporal, MicroarchitecturalFingerprint micro,
+                              long intervalMillis, int windowSize, Object measureLock) {
+        this.temporal = temporal;
+        this.micro = micro;
+        this.intervalMillis = Math.max(1L, intervalMillis);
+        this.measureLock = measureLock;
+        this.temporalWindow = new RollingWindow(Math.max(16, windowSize));
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread t = new Thread(this::run, "fingerprint-sampler");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        thread = t;
+        t.start();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public boolean isBaselineReady() {
+        return baseline != null;
+    }
+
+    /**
+     * Baseline median loop time in ns, or 0 while it is being established.
+     */
+    public double getBaselineMedianNs() {
+        Baseline b = baseline;
+        return b == null ? 0.0 : b.medianNs;
+    }
+
+    /**
+     * Hash of the baseline hardware signature, or null while it is being
+     * established.
+     */
+    public byte[] getBaselineSignatureHash() {
+        Baseline b = baseline;
+        return b == null ? null : b.signatureHash.clone();
+    }
+
+    public Stats getTemporalStats() {
+        return temporalStats;
+    }
+
+    public Stats getSpeculativeStats() {
+        return speculativeStats;
+    }
+
+    /**
+     * Relative drift of the rolling temporal median from the baseline median.
+     */
+    public double getDrift() {
+        return drift(temporalStats.median);
+    }
+
+    /**
+     * Relative drift of an externally measured median from the baseline.
+     */
+    public double drift(double medianNs) {
+        Baseline b = baseline;
+        return b == null ? 0.0 : relativeDrift(medianNs, b.medianNs);
+    }
+
+    /**
+     * Relative drift of the rolling speculative-loop median from its baseline.
+     */
+    public double getSpeculativeDrift() {
+        return speculativeDrift(speculativeStats.median);
+    }
+
+    /**
+     * Relative drift of an externally measured speculative-loop median.
+     */
+    public double speculativeDrift(double medianNs) {
+        Baseline b = baseline;
+        return b == null ? 0.0 : relativeDrift(medianNs, b.speculativeMedianNs);
+    }
+
+    private static double relativeDrift(double medianNs, double baselineNs) {
+        if (baselineNs <= 0.0 || medianNs <= 0.0) {
+            return 0.0;
+        }
+        return Math.abs(medianNs - baselineNs) / baselineNs;
+    }
+
+    /**
+     * Robust execution variability in [0,1]: tanh of the MAD-derived sigma
+     * over the median of the temporal window.
+     */
+    public double getVariability() {
+        Stats s = temporalStats;
+        if (s.median <= 0.0) {
+            return 0.0;
+        }
+        return Math.tanh(MAD_TO_SIGMA * s.mad / s.median);
+    }
+
+    private void run() {
+        try {
+            warmUp();
+            while (!Thread.currentThread().isInterrupted()) {
+                sampleBatch();
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < WARMUP_ITERATIONS && !Thread.currentThread().isInterrupted(); i += WARMUP_CHUNK) {
+            synchronized (measureLock) {
+                for (int j = 0; j < WARMUP_CHUNK; j++) {
+                    temporal.sampleLoopTime();
+                }
+                micro.sampleSpeculativeLoop();
+            }
+        }
+    }
+
+    private void sampleBatch() {
+        synchronized (measureLock) {
+            for (int i = 0; i < TEMPORAL_PER_BATCH; i++) {
+                temporalWindow.add(temporal.sampleLoopTime());
+            }
+            speculativeWindow.add(micro.sampleSpeculativeLoop());
+        }
+
+        temporalStats = temporalWindow.stats();
+        speculativeStats = speculativeWindow.stats();
+
+        if (baseline == null && temporalWindow.isFull() && speculativeWindow.isFull()) {
+            long[] spec = speculativeWindow.snapshot();
+            HardwareSignature sig = micro.generateSignature(spec);
+            baseline = new Baseline(temporalStats.median, speculativeStats.median, sig.getSignatureHash());
+        }
+    }
+
+    /**
+     * Median and median absolute deviation of one window.
+     */
+    public static final class Stats {
+        static final Stats EMPTY = new Stats(0, 0.0, 0.0);
+
+        private final int count;
+        private final double median;
+        private final double mad;
+
+        Stats(int count, double median, double mad) {
+            this.count = count;
+            this.median = median;
+            this.mad = mad;
+        }
+
+        public int getCount() { return count; }
+        public double getMedian() { return median; }
+        public double getMad() { return mad; }
+    }
+
+    private static final class Baseline {
+        final double medianNs;
+        final double speculativeMedianNs;
+        final byte[] signatureHash;
+
+        Baseline(double medianNs, double speculativeMedianNs, byte[] signatureHash) {
+            this.medianNs = medianNs;
+            this.speculativeMedianNs = speculativeMedianNs;
+            this.signatureHash = signatureHash;
+        }
+    }
+
+    /**
+     * Ring of the most recent samples. Only touched by the sampler thread.
+     */
+    private static final class RollingWindow {
+        private final long[] ring;
+        private final long[] scratch;
+        private int next;
+        private int size;
+
+        RollingWindow(int capacity) {
+            this.ring = new long[capacity];
+            this.scratch = new long[capacity];
+        }
+
+        void add(long value) {
+            ring[next] = value;
+            next = (next + 1) % ring.length;
+            if (size < ring.length) {
+                size++;
+            }
+        }
+
+        boolean isFull() {
+            return size == ring.length;
+        }
+
+        long[] snapshot() {
+            return Arrays.copyOf(ring, size);
+        }
+
+        Stats stats() {
+            if (size == 0) {
+                return Stats.EMPTY;
+            }
+            System.arraycopy(ring, 0, scratch, 0, size);
+            Arrays.sort(scratch, 0, size);
+            double median = median(scratch, size);
+            for (int i = 0; i < size; i++) {
+                scratch[i] = Math.abs(Math.round(ring[i] - median));
+            }
+            Arrays.sort(scratch, 0, size);
+            return new Stats(size, median, median(scratch, size));
+        }
+
+    }
+
+    /**
+     * Median of the first {@code n} entries of a sorted array.
+     */
+    static double median(long[] sorted, int n) {
+        if (n == 0) {
+            return 0.0;
+        }
+        return (n & 1) == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2.0;
+    }
+}
@@ -1,5 +1,9 @@
 package com.squid.core.fingerprint;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Immutable snapshot of the current hardware fingerprint state reduced to a
  * safe, operational form (no raw timing vectors or microarchitectural data).
@@ -11,17 +15,35 @@ public class FingerprintSnapshot {
     private final boolean virtualizationSuspected;
     private final double executionVariability;
     private final long capturedAtMillis;
+    private final long costNanos;         // time spent in probes; expected cost for sampler-derived snapshots
+    private final List<String> probes;    // probes that ran; empty for sampler-derived snapshots
+    private final List<String> skipped;   // tier probes replaced by sampler statistics
 
     public FingerprintSnapshot(FingerprintMode mode,
                                double confidenceScore,
                                boolean virtualizationSuspected,
                                double executionVariability,
                                long capturedAtMillis) {
+        this(mode, confidenceScore, virtualizationSuspected, executionVariability, capturedAtMillis,
+                0L, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public FingerprintSnapshot(FingerprintMode mode,
+                               double confidenceScore,
+                               boolean virtualizationSuspected,
+                               double executionVariability,
+                               long capturedAtMillis,
+                               long costNanos,
+                               List<String> probes,
+                               List<String> skipped) {
         this.mode = mode;
         this.confidenceScore = confidenceScore;
         this.virtualizationSuspected = virtualizationSuspected;
         this.executionVariability = executionVariability;
         this.capturedAtMillis = capturedAtMillis;
+        this.costNanos = costNanos;
+        this.probes = Collections.unmodifiableList(new ArrayList<>(probes));
+        this.skipped = Collections.unmodifiableList(new ArrayList<>(skipped));
     }
 
     public FingerprintMode getMode() {
@@ -43,4 +65,47 @@ public class FingerprintSnapshot {
     public long getCapturedAtMillis() {
         return capturedAtMillis;
     }
+
+    public long getBudgetNanos() {
+        return mode.getBudgetNanos();
+    }
+
+    /**
+     * Time spent in probes on the capturing thread; for sampler-derived
+     * snapshots, what a fresh capture of this mode is expected to cost.
+     */
+    public long getCostNanos() {
+        return costNanos;
+    }
+
+    /**
+     * Share of the mode's cost budget used by this capture.
+     */
+    public double getBudgetUsed() {
+        return (double) costNanos / mode.getBudgetNanos();
+    }
+
+    public List<String> getProbes() {
+        return probes;
+    }
+
+    /**
+     * Probes of the mode's tier that did not run (over budget, or not a
+     * fresh capture) and whose signal comes from the sampler statistics.
+     */
+    public List<String> getSkippedProbes() {
+        return skipped;
+    }
+
+    /**
+     * True when every probe of the mode's tier was measured for this
+     * snapshot; gates that require fresh measurements must check it.
+     */
+    public boolean isComplete() {
+        return skipped.isEmpty();
+    }
+
+    public long getAgeMillis() {
+        return Math.max(0L, System.currentTimeMillis() - capturedAtMillis);
+    }
 }
\ No newline at end of file
@@ -2,13 +2,32 @@ package com.squid.core.fingerprint;
 
 import com.squid.core.crypto.HardwareEntropy;
 import com.squid.core.crypto.HardwareTriggers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Operationalizes the low-level fingerprinting primitives into a single
  * confidence score and mode, without ever exposing raw fingerprint data.
+ *
+ * Timing loops run on a dedicated low-priority {@link FingerprintSampler}
+ * thread that keeps rolling median/MAD statistics and establishes the
+ * baseline asynchronously after JIT warm-up. Every
+ * squid.fingerprint.refresh-interval-ms the latest statistics are turned
+ * into one snapshot per mode, which hot paths read via {@link #latest}.
+ * {@link #capture} always measures afresh, within the cost budget of the
+ * requested mode, and is meant for high-assurance gates.
  */
 @Service
 public class HardwareFingerprintService {
@@ -17,37 +36,227 @@ public class HardwareFingerprintService {
     private final TemporalFingerprint temporal;
     private final HardwareTriggers triggers;
     private final HardwareEntropy entropy;
+    private final FingerprintSampler sampler;
 
-    private final byte[] baselineSignatureHash;
-    private final double baselineMeanLoopNs;
+    private final long maxStalenessMillis;
+    private final ScheduledExecutorService refresher;
+    private final Object measureLock = new Object();
+
+    private static final int QUICK_SAMPLES = 4;
+    private static final Map<FingerprintMode, Probe[]> TIERS = new EnumMap<>(FingerprintMode.class);
+    static {
+        TIERS.put(FingerprintMode.FULL, new Probe[] {
+                Probe.TEMPORAL_FULL, Probe.EXECUTION_VARIABILITY, Probe.SPECULATIVE });
+        TIERS.put(FingerprintMode.REDUCED, new Probe[] { Probe.TEMPORAL_QUICK });
+        TIERS.put(FingerprintMode.SOFTWARE, new Probe[0]);
+    }
+
+    // Smoothed observed cost per probe; guarded by measureLock
+    private final long[] probeCostNanos = new long[Probe.values().length];
+    // Derived from JVM/OS properties only, so it cannot change at runtime
+    private final boolean virtualization;
+
+    // Latest snapshot per mode, replaced wholesale on every refresh
+    private volatile Map<FingerprintMode, FingerprintSnapshot> latest;
 
     public HardwareFingerprintService() {
+        this(1_000L, 15_000L, 50L, 256);
+    }
+
+    @Autowired
+    public HardwareFingerprintService(@Value("${squid.fingerprint.refresh-interval-ms:1000}") long refreshIntervalMillis,
+                                      @Value("${squid.fingerprint.max-staleness-ms:15000}") long maxStalenessMillis,
+                                      @Value("${squid.fingerprint.sample-interval-ms:50}") long sampleIntervalMillis,
+                                      @Value("${squid.fingerprint.window-size:256}") int windowSize) {
         this.micro = new MicroarchitecturalFingerprint();
         this.temporal = new TemporalFingerprint();
         this.triggers = new HardwareTriggers();
         this.entropy = new HardwareEntropy();
 
-        // Establish a coarse baseline at startup (FULL mode)
-        HardwareSignature sig = micro.generateSignature();
-        this.baselineSignatureHash = sig.getSignatureHash();
+        // Baseline is established by the sampler thread, not on the boot path
+        this.sampler = new FingerprintSampler(temporal, micro, sampleIntervalMillis, windowSize, measureLock);
+        sampler.start();
 
-        FingerprintVector vec = temporal.generateFingerprint();
-        this.baselineMeanLoopNs = mean(vec.getExecutionTimes());
+        for (Probe probe : Probe.values()) {
+            probeCostNanos[probe.ordinal()] = probe.initialCostNanos;
+        }
+
+        this.virtualization = triggers.detectVirtualization();
+        this.maxStalenessMillis = Math.max(0L, maxStalenessMillis);
+        refresh();
+        if (refreshIntervalMillis > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "fingerprint-refresh");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(this::refreshQuietly,
+                    refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.refresher = null;
+        }
     }
 
+    /**
+     * Latest snapshot, provided it is no older than the configured
+     * squid.fingerprint.max-staleness-ms; otherwise a fresh capture.
+     */
+    public FingerprintSnapshot latest(FingerprintMode mode) {
+        return latest(mode, maxStalenessMillis);
+    }
+
+    /**
+     * Latest snapshot if it is at most {@code maxAgeMillis} old, otherwise a
+     * fresh capture. O(1) while the background refresher keeps up.
+     */
+    public FingerprintSnapshot latest(FingerprintMode mode, long maxAgeMillis) {
+        FingerprintSnapshot snap = latest.get(mode);
+        if (snap.getAgeMillis() <= maxAgeMillis) {
+            return snap;
+        }
+        return capture(mode);
+    }
+
+    public long getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+
+    public boolean isBaselineReady() {
+        return sampler.isBaselineReady();
+    }
+
+    /**
+     * Relative drift of the rolling temporal median from the baseline
+     * (lock-free read of the sampler statistics).
+     */
+    public double getDrift() {
+        return sampler.getDrift();
+    }
+
+    /**
+     * Measure now on the calling thread, bypassing the sampler window and
+     * running the probes of the mode's tier that fit in its cost budget
+     * (see {@link FingerprintMode}). The snapshot reports the cost, the
+     * probes that ran and the ones skipped for the budget, and becomes the
+     * latest snapshot for that mode. Callers that need every signal
+     * measured afresh must check {@link FingerprintSnapshot#isComplete}.
+     */
     public FingerprintSnapshot capture(FingerprintMode mode) {
-        long now = System.currentTimeMillis();
+        // Fresh measurements are serialized with each other and with the
+        // sampler thread: concurrent timing loops skew each other
+        synchronized (measureLock) {
+            long budget = mode.getBudgetNanos();
+            long start = entropy.rdtsc();
+            List<String> ran = new ArrayList<>();
+            List<String> skipped = new ArrayList<>();
 
-        boolean virt = triggers.detectVirtualization();
-        double variability = triggers.getExecutionVariability();
+            // Signals default to the sampler statistics and are replaced by probes that fit
+            boolean virt = virtualization;
+            double temporalDrift = sampler.getDrift();
+            double speculativeDrift = mode == FingerprintMode.FULL ? sampler.getSpeculativeDrift() : 0.0;
+            double variability = sampler.getVariability();
 
-        FingerprintVector fpVec = temporal.generateFingerprint();
-        double meanNs = mean(fpVec.getExecutionTimes());
+            for (Probe probe : TIERS.get(mode)) {
+                long probeStart = entropy.rdtsc();
+                if (probeStart - start + probeCostNanos[probe.ordinal()] > budget) {
+                    // Decay the estimate so a probe that was slow once (cold JIT) gets retried
+                    probeCostNanos[probe.ordinal()] -= probeCostNanos[probe.ordinal()] / 8;
+                    skipped.add(probe.name());
+                    continue;
+                }
+                switch (probe) {
+                    case TEMPORAL_QUICK:
+                        long[] quick = new long[QUICK_SAMPLES];
+                        for (int i = 0; i < quick.length; i++) {
+                            quick[i] = temporal.sampleLoopTime();
+                        }
+                        temporalDrift = sampler.drift(median(quick));
+                        break;
+                    case TEMPORAL_FULL:
+                        temporalDrift = sampler.drift(median(temporal.generateFingerprint().getExecutionTimes()));
+                        break;
+                    case EXECUTION_VARIABILITY:
+                        variability = triggers.getExecutionVariability();
+                        break;
+                    case SPECULATIVE:
+                        speculativeDrift = sampler.speculativeDrift(median(micro.getSpeculativeExecutionPattern()));
+                        break;
+                    default:
+                        break;
+                }
+                long cost = entropy.rdtsc() - probeStart;
+                // Smoothed per-probe cost drives the next budget decision
+                probeCostNanos[probe.ordinal()] = (probeCostNanos[probe.ordinal()] * 3 + cost) / 4;
+                ran.add(probe.name());
+            }
+            long cost = entropy.rdtsc() - start;
 
-        // Relative drift in temporal fingerprint
-        double base = baselineMeanLoopNs <= 0.0 ? 1.0 : baselineMeanLoopNs;
-        double drift = Math.abs(meanNs - baselineMeanLoopNs) / base;
+            FingerprintSnapshot snap = new FingerprintSnapshot(mode,
+                    score(Math.max(temporalDrift, speculativeDrift), virt, variability), virt, variability,
+                    System.currentTimeMillis(), cost, ran, skipped);
+            Map<FingerprintMode, FingerprintSnapshot> snaps = new EnumMap<>(latest);
+            snaps.put(mode, snap);
+            latest = snaps;
+            return snap;
+        }
+    }
 
+    @PreDestroy
+    public void shutdown() {
+        sampler.stop();
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException ignored) {
+            // keep serving the previous snapshot; staleness checks fall back to capture()
+        }
+    }
+
+    private void refresh() {
+        boolean virt = virtualization;
+        double temporalDrift = sampler.getDrift();
+        double variability = sampler.getVariability();
+        long now = System.currentTimeMillis();
+
+        Map<FingerprintMode, FingerprintSnapshot> snaps = new EnumMap<>(FingerprintMode.class);
+        for (FingerprintMode mode : FingerprintMode.values()) {
+            double drift = mode == FingerprintMode.FULL
+                    ? Math.max(temporalDrift, sampler.getSpeculativeDrift())
+                    : temporalDrift;
+            List<String> skipped = new ArrayList<>();
+            for (Probe probe : TIERS.get(mode)) {
+                skipped.add(probe.name());
+            }
+            snaps.put(mode, new FingerprintSnapshot(mode, score(drift, virt, variability), virt, variability, now,
+                    expectedCost(mode), Collections.emptyList(), skipped));
+        }
+        latest = snaps;
+    }
+
+    /**
+     * Cost a fresh capture of {@code mode} would spend in probes, from the
+     * smoothed per-probe estimates and the same budget rule as capture().
+     */
+    private long expectedCost(FingerprintMode mode) {
+        synchronized (measureLock) {
+            long cost = 0L;
+            for (Probe probe : TIERS.get(mode)) {
+                long probeCost = probeCostNanos[probe.ordinal()];
+                if (cost + probeCost <= mode.getBudgetNanos()) {
+                    cost += probeCost;
+                }
+            }
+            return cost;
+        }
+    }
+
+    private static double score(double drift, boolean virt, double variability) {
         // Map drift + virtualization into confidence in [0,1]
         double score = 1.0;
         // penalize drift: 0.0 <= drift
@@ -57,17 +266,39 @@ public class HardwareFingerprintService {
         }
         // penalize high variability slightly
         score -= Math.min(0.2, variability * 0.2);
-        score = Math.max(0.0, Math.min(1.0, score));
-
-        return new FingerprintSnapshot(mode, score, virt, variability, now);
+        return Math.max(0.0, Math.min(1.0, score));
     }
 
-    private double mean(List<Long> values) {
+    private static double median(List<Long> values) {
         if (values == null || values.isEmpty()) return 0.0;
-        double sum = 0.0;
-        for (Long v : values) {
-            if (v != null) sum += v;
+        long[] samples = new long[values.size()];
+        for (int i = 0; i < samples.length; i++) {
+            Long v = values.get(i);
+            samples[i] = v != null ? v : 0L;
+        }
+        return median(samples);
+    }
+
+    private static double median(long[] samples) {
+        Arrays.sort(samples);
+        return FingerprintSampler.median(samples, samples.length);
+    }
+
+    /**
+     * Probes available to fresh captures, with a conservative initial cost
+     * estimate; estimates are then tracked from observed costs, so a capture
+     * on a cold JIT can still overrun its budget once.
+     */
+    private enum Probe {
+        TEMPORAL_QUICK(20_000L),
+        TEMPORAL_FULL(400_000L),
+        EXECUTION_VARIABILITY(400_000L),
+        SPECULATIVE(500_000L);
+
+        final long initialCostNanos;
+
+        Probe(long initialCostNanos) {
+            this.initialCostNanos = initialCostNanos;
         }
-        return sum / values.size();
     }
-}
\ No newline at end of file
+}
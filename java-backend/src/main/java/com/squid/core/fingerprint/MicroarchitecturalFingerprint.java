@@ -31,24 +31,37 @@ public class MicroarchitecturalFingerprint {
         // Simple timing samples around a branch-heavy loop
         long[] samples = new long[8];
         for (int i = 0; i < samples.length; i++) {
-            long start = System.nanoTime();
-            int acc = 0;
-            for (int j = 0; j < 50_000; j++) {
-                if ((j & 3) == 0) acc++; else acc--;
-            }
-            long end = System.nanoTime();
-            samples[i] = Math.max(1L, end - start);
-            if (acc == -1) {
-                samples[i] = 0L;
-            }
+            samples[i] = sampleSpeculativeLoop();
         }
         return samples;
     }
 
+    /**
+     * One timing sample of the branch-heavy loop.
+     */
+    public long sampleSpeculativeLoop() {
+        long start = System.nanoTime();
+        int acc = 0;
+        for (int j = 0; j < 50_000; j++) {
+            if ((j & 3) == 0) acc++; else acc--;
+        }
+        long end = System.nanoTime();
+        if (acc == -1) {
+            return 0L;
+        }
+        return Math.max(1L, end - start);
+    }
+
     public HardwareSignature generateSignature() {
+        return generateSignature(getSpeculativeExecutionPattern());
+    }
+
+    /**
+     * Signature over externally collected speculative timing samples.
+     */
+    public HardwareSignature generateSignature(long[] spec) {
         int[] cache = getCacheProfile();
         double[] pipeline = getPipelineCharacteristics();
-        long[] spec = getSpeculativeExecutionPattern();
 
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
@@ -36,6 +36,14 @@ public class TemporalFingerprint {
         return new FingerprintVector(executionTimes, nopLatencies, statisticalDeviations);
     }
 
+    /**
+     * One timing sample of the fingerprint kernel (used by the background
+     * sampler; does not touch the vectors of {@link #generateFingerprint}).
+     */
+    public long sampleLoopTime() {
+        return measureLoopTime(10_000);
+    }
+
     private long measureLoopTime(int iterations) {
         long start = System.nanoTime();
         long acc = 0;
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.squid.core.crypto.Hex;
 import com.squid.core.service.DynamicMerkleTreeService;
 
 import java.io.*;
@@ -219,10 +220,8 @@ public class IPCMain {
                                 md.update((byte) ':');
                                 md.update(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
                                 byte[] h = md.digest();
-                                // convert to hex string to serve as leaf data
-                                StringBuilder sb = new StringBuilder();
-                                for (byte bb : h) sb.append(String.format("%02x", bb));
-                                newLeaves.add(sb.toString());
+                                // hex string serves as leaf data
+                                newLeaves.add(Hex.encode(h));
                             }
 
                             java.util.Map<String,Object> res = dynamicService.addLeaves(newLeaves, "generate_from_seed");
@@ -1,5 +1,7 @@
 package com.squid.core.merkle;
 
+import com.squid.core.crypto.Hash32;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -12,6 +14,10 @@ import java.util.stream.Collectors;
  * 
  * A detecao ocorre exclusivamente no backend, retornando ao
  * frontend apenas a lista de leafs afetadas.
+ * 
+ * Irmaos, dependentes declarados e leafs que referenciam a target vem
+ * dos indices da estrutura, entao cada analise custa
+ * O(profundidade + dependentes) em vez de varrer todas as leafs.
  */
 public class LeafImpactAnalyzer {
     
@@ -43,7 +49,7 @@ public class LeafImpactAnalyzer {
         List<String> pathToRoot = calculatePathToRoot(leafId);
         
         // identifica nos intermediarios afetados
-        Set<String> affectedNodes = findAffectedNodes(leafId);
+        Set<String> affectedNodes = findAffectedNodes(leafId, pathToRoot);
         
         return new ImpactReport(
             leafId,
@@ -73,7 +79,7 @@ public class LeafImpactAnalyzer {
         dependentLeaves.addAll(referencingLeaves);
         
         List<String> pathToRoot = calculatePathToRoot(leafId);
-        Set<String> affectedNodes = findAffectedNodes(leafId);
+        Set<String> affectedNodes = findAffectedNodes(leafId, pathToRoot);
         
         return new ImpactReport(
             leafId,
@@ -100,17 +106,16 @@ public class LeafImpactAnalyzer {
         
         if (leaf == null) return dependents;
         
-        // adiciona todas as leafs no mesmo caminho ate a raiz
+        // adiciona todas as leafs no mesmo caminho ate a raiz; a relacao de
+        // irmaos e simetrica, entao cobre tambem as leafs que compartilham
+        // caminho com a target
         Set<String> siblings = findSiblingLeaves(leafId);
         dependents.addAll(siblings);
         
-        // adiciona todas as leafs que dependem desta
-        for (MerkleNode node : treeStructure.getAllLeaves()) {
-            if (!node.getNodeId().equals(leafId)) {
-                // verifica se esta leaf depende da target
-                if (hasDependency(node, leafId)) {
-                    dependents.add(node.getNodeId());
-                }
+        // adiciona as leafs que declaram a target em suas dependencias
+        for (String dependentId : treeStructure.getDependents(leafId)) {
+            if (!dependentId.equals(leafId) && isLeaf(dependentId)) {
+                dependents.add(dependentId);
             }
         }
         
@@ -118,39 +123,21 @@ public class LeafImpactAnalyzer {
     }
     
     /**
-     * Encontra leafs que referenciam uma leaf especifica em seus dados.
+     * Encontra leafs que referenciam uma leaf especifica em seus dados,
+     * pelo indice de referencias da estrutura.
      */
     private Set<String> findReferencingLeaves(String leafId) {
-        Set<String> referencing = new HashSet<>();
-        
-        for (MerkleNode node : treeStructure.getAllLeaves()) {
-            if (!node.getNodeId().equals(leafId)) {
-                String data = node.getData();
-                if (data != null && data.contains(leafId)) {
-                    referencing.add(node.getNodeId());
-                }
-            }
-        }
-        
+        Set<String> referencing = treeStructure.getReferencingLeaves(leafId);
+        referencing.remove(leafId);
         return referencing;
     }
     
     /**
-     * Verifica se um no depende de outro.
+     * Verifica se um no existe e e uma leaf.
      */
-    private boolean hasDependency(MerkleNode node, String targetLeafId) {
-        // verifica dependencias declaradas
-        if (node.getDependencies().contains(targetLeafId)) {
-            return true;
-        }
-        
-        // verifica se compartilha caminho na arvore
-        Set<String> nodeSiblings = findSiblingLeaves(node.getNodeId());
-        if (nodeSiblings.contains(targetLeafId)) {
-            return true;
-        }
-        
-        return false;
+    private boolean isLeaf(String nodeId) {
+        MerkleNode node = treeStructure.findNode(nodeId);
+        return node != null && node.isLeaf();
     }
     
     /**
@@ -165,10 +152,9 @@ public class LeafImpactAnalyzer {
         String parentId = leaf.getParentId();
         if (parentId == null) return siblings;
         
-        for (MerkleNode node : treeStructure.getAllLeaves()) {
-            if (!node.getNodeId().equals(leafId) && 
-                parentId.equals(node.getParentId())) {
-                siblings.add(node.getNodeId());
+        for (String childId : treeStructure.getChildren(parentId)) {
+            if (!childId.equals(leafId) && isLeaf(childId)) {
+                siblings.add(childId);
             }
         }
         
@@ -193,14 +179,14 @@ public class LeafImpactAnalyzer {
     }
     
     /**
-     * Encontra todos os nos afetados por uma operacao.
+     * Encontra todos os nos afetados por uma operacao, a partir do
+     * caminho ate a raiz ja calculado.
      */
-    private Set<String> findAffectedNodes(String leafId) {
+    private Set<String> findAffectedNodes(String leafId, List<String> pathToRoot) {
         Set<String> affected = new HashSet<>();
         
         // todos os nos no caminho ate a raiz precisam ser recalculados
-        List<String> path = calculatePathToRoot(leafId);
-        affected.addAll(path);
+        affected.addAll(pathToRoot);
         
         // nos irmaos tambem sao afetados (seu hash muda se o irmao for removido)
         affected.addAll(findSiblingLeaves(leafId));
@@ -391,12 +377,12 @@ public class LeafImpactAnalyzer {
         private final String newData;
         private final Set<String> dependentLeaves;
         private final Set<String> updatedNodes;
-        private final String newRootHash;
+        private final Hash32 newRootHash;
         private final long timestamp;
         
         public JointUpdateResult(String updatedLeafId, String newData,
                                 Set<String> dependentLeaves, Set<String> updatedNodes,
-                                String newRootHash, long timestamp) {
+                                Hash32 newRootHash, long timestamp) {
             this.updatedLeafId = updatedLeafId;
             this.newData = newData;
             this.dependentLeaves = new HashSet<>(dependentLeaves);
@@ -409,7 +395,7 @@ public class LeafImpactAnalyzer {
         public String getNewData() { return newData; }
         public Set<String> getDependentLeaves() { return new HashSet<>(dependentLeaves); }
         public Set<String> getUpdatedNodes() { return new HashSet<>(updatedNodes); }
-        public String getNewRootHash() { return newRootHash; }
+        public Hash32 getNewRootHash() { return newRootHash; }
         public long getTimestamp() { return timestamp; }
         
         public Map<String, Object> toMap() {
@@ -418,7 +404,7 @@ public class LeafImpactAnalyzer {
             map.put("newData", newData);
             map.put("dependentLeaves", new ArrayList<>(dependentLeaves));
             map.put("updatedNodes", new ArrayList<>(updatedNodes));
-            map.put("newRootHash", newRootHash);
+            map.put("newRootHash", newRootHash != null ? newRootHash.toHex() : null);
             map.put("timestamp", timestamp);
             return map;
         }
@@ -0,0 +1,226 @@
+package com.squid.core.merkle;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Indice invertido de referencias entre leafs.
+ *
+ * Para cada leaf alvo guarda as leafs cujos dados contem o ID do alvo,
+ * com a mesma semantica de {@code data.contains(leafId)}. O indice e
+ * mantido nas insercoes e atualizacoes: os dados de uma leaf sao
+ * comparados com todos os IDs conhecidos de uma vez, testando em cada
+ * posicao os trechos com os comprimentos de ID existentes contra o
+ * conjunto de IDs. O custo por atualizacao e O(tamanho dos dados x
+ * comprimentos distintos), e a consulta "quem referencia X" e uma
+ * leitura de mapa. IDs novos ficam pendentes e sao procurados nos dados
+ * ja indexados em uma unica passada antes da proxima consulta, restrita
+ * aos (comprimento, hash) dos pendentes: uma insercao em lote custa uma
+ * varredura, nao uma por ID. Nao ha mapa direto leaf -> IDs
+ * referenciados: ao retirar uma leaf, seus dados antigos sao comparados
+ * de novo. Todo acesso e sincronizado na instancia.
+ */
+final class LeafReferenceIndex {
+
+    private static final int MIN_TABLE = 1024;
+
+    private final Set<String> targets = new HashSet<>();
+    private final Map<Integer, Integer> targetLengths = new TreeMap<>();
+    private final Map<String, String> dataBySource = new HashMap<>();
+    private final Map<String, Set<String>> sourcesByTarget = new HashMap<>();
+    // IDs ainda nao procurados nos dados indexados antes do seu registro
+    private final Set<String> pendingTargets = new HashSet<>();
+    // (comprimento, hash) -> numero de IDs: descarta sem alocar as janelas
+    // que nao podem ser um ID
+    private KeyTable table = new KeyTable(0);
+
+    /**
+     * Registra um ID de leaf que pode ser referenciado. A busca do ID nos
+     * dados ja indexados fica para a proxima consulta.
+     */
+    synchronized void addTarget(String targetId) {
+        if (!targets.add(targetId)) return;
+        targetLengths.merge(targetId.length(), 1, Integer::sum);
+        table.add(key(targetId.hashCode(), targetId.length()));
+        if (table.crowded()) {
+            rebuildTable();
+        }
+        if (!dataBySource.isEmpty()) {
+            pendingTargets.add(targetId);
+        }
+    }
+
+    /**
+     * Remove um ID de leaf e todas as referencias a ele.
+     */
+    synchronized void removeTarget(String targetId) {
+        if (!targets.remove(targetId)) return;
+        targetLengths.computeIfPresent(targetId.length(), (length, n) -> n > 1 ? n - 1 : null);
+        table.remove(key(targetId.hashCode(), targetId.length()));
+        pendingTargets.remove(targetId);
+        sourcesByTarget.remove(targetId);
+    }
+
+    /**
+     * Indexa (ou reindexa) os dados de uma leaf.
+     */
+    synchronized void putSource(String sourceId, String data) {
+        removeSource(sourceId);
+        if (data == null) return;
+        dataBySource.put(sourceId, data);
+        match(data, targetLengths.keySet(), table, targets, targetId -> link(sourceId, targetId));
+    }
+
+    /**
+     * Retira os dados de uma leaf do indice.
+     */
+    synchronized void removeSource(String sourceId) {
+        String data = dataBySource.remove(sourceId);
+        if (data == null) return;
+        match(data, targetLengths.keySet(), table, targets, targetId -> unlink(sourceId, targetId));
+    }
+
+    /**
+     * IDs das leafs cujos dados contem {@code targetId}, em uma copia.
+     */
+    synchronized Set<String> getReferencing(String targetId) {
+        resolvePending();
+        Set<String> sources = sourcesByTarget.get(targetId);
+        return sources != null ? new HashSet<>(sources) : new HashSet<>();
+    }
+
+    synchronized void clear() {
+        targets.clear();
+        targetLengths.clear();
+        table = new KeyTable(0);
+        pendingTargets.clear();
+        dataBySource.clear();
+        sourcesByTarget.clear();
+    }
+
+    /**
+     * Procura os IDs pendentes em todos os dados indexados, em uma passada
+     * por comprimento pendente, testando so as janelas cujo (comprimento,
+     * hash) e de algum pendente.
+     */
+    private void resolvePending() {
+        if (pendingTargets.isEmpty()) return;
+        KeyTable pending = new KeyTable(pendingTargets.size());
+        Set<Integer> lengths = new TreeSet<>();
+        for (String targetId : pendingTargets) {
+            pending.add(key(targetId.hashCode(), targetId.length()));
+            lengths.add(targetId.length());
+        }
+        dataBySource.forEach((sourceId, data) ->
+            match(data, lengths, pending, pendingTargets, targetId -> link(sourceId, targetId)));
+        pendingTargets.clear();
+    }
+
+    /**
+     * Entrega a {@code action} cada ID de {@code ids} que aparece em
+     * {@code data} (um ID pode ser entregue mais de uma vez).
+     *
+     * Para cada comprimento em {@code lengths}, percorre os dados com o hash
+     * de {@link String#hashCode} em janela deslizante e so materializa o
+     * trecho quando {@code keys} tem algum ID com aquele hash e comprimento.
+     */
+    private static void match(String data, Set<Integer> lengths, KeyTable keys, Set<String> ids,
+                              Consumer<String> action) {
+        for (int length : lengths) {
+            if (length == 0 || length > data.length()) continue;
+            int power = 1; // 31^(length - 1)
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + data.charAt(i);
+                if (i > 0) power *= 31;
+            }
+            for (int i = 0; ; i++) {
+                if (keys.contains(key(hash, length))) {
+                    String candidate = data.substring(i, i + length);
+                    if (ids.contains(candidate)) {
+                        action.accept(candidate);
+                    }
+                }
+                if (i + length >= data.length()) break;
+                hash = 31 * (hash - data.charAt(i) * power) + data.charAt(i + length);
+            }
+        }
+    }
+
+    private static long key(int hash, int length) {
+        return ((long) length << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    // redimensiona pelo numero de IDs e descarta chaves que zeraram
+    private void rebuildTable() {
+        table = new KeyTable(targets.size());
+        for (String targetId : targets) {
+            table.add(key(targetId.hashCode(), targetId.length()));
+        }
+    }
+
+    private void link(String sourceId, String targetId) {
+        sourcesByTarget.computeIfAbsent(targetId, k -> new HashSet<>(4)).add(sourceId);
+    }
+
+    private void unlink(String sourceId, String targetId) {
+        Set<String> sources = sourcesByTarget.get(targetId);
+        if (sources != null && sources.remove(sourceId) && sources.isEmpty()) {
+            sourcesByTarget.remove(targetId);
+        }
+    }
+
+    /**
+     * Tabela aberta chave -> contagem; chave 0 = posicao livre (nenhuma
+     * chave real e 0, pois IDs vazios nunca sao procurados).
+     */
+    private static final class KeyTable {
+        final long[] keys;
+        final int[] counts;
+        int used;
+
+        KeyTable(int ids) {
+            int size = MIN_TABLE;
+            while (size < ids * 4) {
+                size <<= 1;
+            }
+            keys = new long[size];
+            counts = new int[size];
+        }
+
+        boolean contains(long key) {
+            return counts[slot(key)] > 0;
+        }
+
+        void add(long key) {
+            int slot = slot(key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                used++;
+            }
+            counts[slot]++;
+        }
+
+        void remove(long key) {
+            int slot = slot(key);
+            if (counts[slot] > 0) {
+                counts[slot]--;
+            }
+        }
+
+        boolean crowded() {
+            return used * 2 > keys.length;
+        }
+
+        // posicao da chave, ou a posicao livre onde ela entraria
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.squid.core.merkle;
 
+import com.squid.core.crypto.Hash32;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -9,10 +11,20 @@ import java.util.concurrent.atomic.AtomicReference;
  * 
  * Representa a arvore completa com todos os nos e suas
  * relacoes, permitindo analise de impacto de alteracoes.
+ * 
+ * Mantem indices atualizados a cada mutacao: pai -> filhos,
+ * alvo -> dependentes (nos que declaram o alvo em suas dependencias) e
+ * leaf -> leafs que a referenciam nos dados, para que irmaos, dependentes
+ * e referencias sejam consultados sem varrer a arvore. Mudancas de pai e
+ * de dados devem passar por {@link #setParent} e {@link #updateNodeData}
+ * para manter os indices.
  */
 public class MerkleTreeStructure {
     
     private final Map<String, MerkleNode> nodes = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> childrenByParent = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> dependentsByTarget = new ConcurrentHashMap<>();
+    private final LeafReferenceIndex references = new LeafReferenceIndex();
     private final AtomicReference<String> rootId = new AtomicReference<>();
     private final String instanceId;
     
@@ -24,7 +36,11 @@ public class MerkleTreeStructure {
      * Adiciona um no a arvore.
      */
     public void addNode(MerkleNode node) {
-        nodes.put(node.getNodeId(), node);
+        MerkleNode previous = nodes.put(node.getNodeId(), node);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(node);
         if (node.isRoot()) {
             rootId.set(node.getNodeId());
         }
@@ -51,12 +67,49 @@ public class MerkleTreeStructure {
      */
     public void removeNode(String nodeId) {
         MerkleNode node = nodes.remove(nodeId);
+        if (node != null) {
+            unindex(node);
+        }
         if (node != null && node.isRoot()) {
             // recalcula a raiz
             recalculateRoot();
         }
     }
     
+    /**
+     * Define o pai de um no, atualizando o indice de filhos.
+     */
+    public void setParent(String nodeId, String parentId) {
+        MerkleNode node = nodes.get(nodeId);
+        if (node == null) return;
+        unlink(childrenByParent, node.getParentId(), nodeId);
+        node.setParentId(parentId);
+        link(childrenByParent, parentId, nodeId);
+    }
+    
+    /**
+     * IDs dos filhos diretos de um no (vazio se nao houver).
+     */
+    public Set<String> getChildren(String parentId) {
+        Set<String> children = parentId != null ? childrenByParent.get(parentId) : null;
+        return children != null ? Collections.unmodifiableSet(children) : Collections.emptySet();
+    }
+    
+    /**
+     * IDs dos nos que declaram {@code targetId} em suas dependencias.
+     */
+    public Set<String> getDependents(String targetId) {
+        Set<String> dependents = dependentsByTarget.get(targetId);
+        return dependents != null ? Collections.unmodifiableSet(dependents) : Collections.emptySet();
+    }
+    
+    /**
+     * IDs das leafs cujos dados contem {@code leafId} (copia mutavel).
+     */
+    public Set<String> getReferencingLeaves(String leafId) {
+        return references.getReferencing(leafId);
+    }
+    
     /**
      * Atualiza os dados de um no.
      */
@@ -64,6 +117,9 @@ public class MerkleTreeStructure {
         MerkleNode node = nodes.get(nodeId);
         if (node != null) {
             node.updateData(newData);
+            if (node.isLeaf()) {
+                references.putSource(nodeId, newData);
+            }
         }
     }
     
@@ -90,7 +146,7 @@ public class MerkleTreeStructure {
     /**
      * Retorna o hash da raiz atual.
      */
-    public String getRootHash() {
+    public Hash32 getRootHash() {
         String root = rootId.get();
         if (root == null) return null;
         
@@ -121,6 +177,15 @@ public class MerkleTreeStructure {
      */
     public void buildFromLeaves(List<String> leafData) {
         nodes.clear();
+        childrenByParent.clear();
+        dependentsByTarget.clear();
+        references.clear();
+        
+        // registra todos os IDs antes dos dados, para indexar as
+        // referencias em uma unica passada
+        for (int i = 0; i < leafData.size(); i++) {
+            references.addTarget("leaf_" + i);
+        }
         
         // cria leafs
         List<MerkleNode> leaves = new ArrayList<>();
@@ -132,12 +197,12 @@ public class MerkleTreeStructure {
                 0,
                 true,
                 new ArrayList<>(),
-                calculateHash(leafData.get(i)),
+                Hash32.sha256(leafData.get(i)),
                 null,
                 false
             );
             leaves.add(leaf);
-            nodes.put(leaf.getNodeId(), leaf);
+            addNode(leaf);
         }
         
         // constroi niveis intermediarios ate a raiz
@@ -164,7 +229,8 @@ public class MerkleTreeStructure {
             MerkleNode right = (i + 1 < currentLevel.size()) ? 
                 currentLevel.get(i + 1) : left;
             
-            String combinedHash = calculateHash(left.getHash() + right.getHash());
+            // combina os 32 bytes binarios dos filhos, nao o texto hex
+            Hash32 combinedHash = Hash32.combine(left.getHash(), right.getHash());
             
             MerkleNode parent = new MerkleNode(
                 "node_" + level + "_" + (i / 2),
@@ -178,34 +244,56 @@ public class MerkleTreeStructure {
                 false
             );
             
-            left.setParentId(parent.getNodeId());
-            right.setParentId(parent.getNodeId());
-            
             nextLevel.add(parent);
-            nodes.put(parent.getNodeId(), parent);
+            addNode(parent);
+            setParent(left.getNodeId(), parent.getNodeId());
+            setParent(right.getNodeId(), parent.getNodeId());
         }
         
         buildTreeLevels(nextLevel);
     }
     
     /**
-     * Calcula hash simples (usado para construcao da arvore).
+     * Registra o no nos indices de filhos, dependentes e referencias.
      */
-    private String calculateHash(String data) {
-        try {
-            java.security.MessageDigest digest = 
-                java.security.MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(data.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            return "HASH_ERROR_" + System.nanoTime();
+    private void index(MerkleNode node) {
+        link(childrenByParent, node.getParentId(), node.getNodeId());
+        for (String target : node.getDependencies()) {
+            link(dependentsByTarget, target, node.getNodeId());
+        }
+        if (node.isLeaf()) {
+            references.addTarget(node.getNodeId());
+            references.putSource(node.getNodeId(), node.getData());
         }
     }
     
+    /**
+     * Retira o no dos indices de filhos, dependentes e referencias.
+     */
+    private void unindex(MerkleNode node) {
+        unlink(childrenByParent, node.getParentId(), node.getNodeId());
+        for (String target : node.getDependencies()) {
+            unlink(dependentsByTarget, target, node.getNodeId());
+        }
+        if (node.isLeaf()) {
+            references.removeSource(node.getNodeId());
+            references.removeTarget(node.getNodeId());
+        }
+    }
+    
+    private static void link(Map<String, Set<String>> index, String key, String nodeId) {
+        if (key == null) return;
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(nodeId);
+    }
+    
+    private static void unlink(Map<String, Set<String>> index, String key, String nodeId) {
+        if (key == null) return;
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(nodeId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
     /**
      * Classe representando um no da arvore.
      */
@@ -216,14 +304,14 @@ public class MerkleTreeStructure {
         private final int depth;
         private final boolean isLeaf;
         private final List<String> dependencies;
-        private String hash;
+        private Hash32 hash;
         private String parentId;
         private boolean isRoot;
         private boolean isCritical;
         private boolean isRootProtected;
         
         public MerkleNode(String nodeId, String data, String state, int depth,
-                         boolean isLeaf, List<String> dependencies, String hash,
+                         boolean isLeaf, List<String> dependencies, Hash32 hash,
                          String parentId, boolean isCritical) {
             this.nodeId = nodeId;
             this.data = data;
@@ -243,7 +331,7 @@ public class MerkleTreeStructure {
         public int getDepth() { return depth; }
         public boolean isLeaf() { return isLeaf; }
         public List<String> getDependencies() { return new ArrayList<>(dependencies); }
-        public String getHash() { return hash; }
+        public Hash32 getHash() { return hash; }
         public String getParentId() { return parentId; }
         public boolean isRoot() { return isRoot; }
         public boolean isCritical() { return isCritical; }
@@ -254,12 +342,12 @@ public class MerkleTreeStructure {
         
         public void updateData(String newData) {
             this.data = newData;
-            this.hash = calculateHash(newData);
+            this.hash = Hash32.sha256(newData);
         }
         
         public void recalculateHash() {
             if (data != null) {
-                this.hash = calculateHash(data);
+                this.hash = Hash32.sha256(data);
             }
         }
         
@@ -267,20 +355,5 @@ public class MerkleTreeStructure {
             // atualiza referencias se necessario
             // implementacao depende da logica de negocio
         }
-        
-        private String calculateHash(String input) {
-            try {
-                java.security.MessageDigest digest = 
-                    java.security.MessageDigest.getInstance("SHA-256");
-                byte[] hash = digest.digest(input.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                StringBuilder sb = new StringBuilder();
-                for (byte b : hash) {
-                    sb.append(String.format("%02x", b));
-                }
-                return sb.toString();
-            } catch (Exception e) {
-                return "HASH_ERROR";
-            }
-        }
     }
 }
@@ -1,5 +1,9 @@
 package com.squid.core.merkle;
 
+import com.squid.core.crypto.Hash32;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,9 +48,9 @@ public class MerkleTreeVersioning {
                 genesisId,
                 "GENESIS",
                 new ArrayList<>(),
-                "0".repeat(64), // hash vazio representado como zeros
+                Hash32.ZERO, // hash vazio representado como zeros
                 Instant.now(),
-                "SYSTEM",
+                Hash32.ZERO,
                 "Criacao inicial da arvore"
             );
             versions.put(genesisId, genesis);
@@ -64,7 +68,7 @@ public class MerkleTreeVersioning {
      */
     public TreeVersion createVersion(
             List<MerkleNode> leaves,
-            String rootHash,
+            Hash32 rootHash,
             String operation,
             String reason) {
         
@@ -80,7 +84,7 @@ public class MerkleTreeVersioning {
                 new ArrayList<>(leaves),
                 rootHash,
                 Instant.now(),
-                previousVersion != null ? previousVersion.getVersionHash() : "GENESIS",
+                previousVersion != null ? previousVersion.getVersionHash() : Hash32.ZERO,
                 reason
             );
             
@@ -184,7 +188,7 @@ public class MerkleTreeVersioning {
                 }
                 
                 // verifica a integridade do hash da versao
-                String expectedHash = current.calculateVersionHash();
+                Hash32 expectedHash = current.calculateVersionHash();
                 if (!expectedHash.equals(current.getVersionHash())) {
                     return false;
                 }
@@ -228,21 +232,21 @@ public class MerkleTreeVersioning {
         private final long id;
         private final String operation;
         private final List<MerkleNode> leaves;
-        private final String rootHash;
+        private final Hash32 rootHash;
         private final Instant timestamp;
-        private final String previousVersionHash;
+        private final Hash32 previousVersionHash;
         private final String reason;
-        private final String versionHash;
+        private final Hash32 versionHash;
         
         public TreeVersion(long id, String operation, List<MerkleNode> leaves,
-                          String rootHash, Instant timestamp, 
-                          String previousVersionHash, String reason) {
+                          Hash32 rootHash, Instant timestamp, 
+                          Hash32 previousVersionHash, String reason) {
             this.id = id;
             this.operation = operation;
             this.leaves = Collections.unmodifiableList(new ArrayList<>(leaves));
-            this.rootHash = rootHash;
+            this.rootHash = rootHash != null ? rootHash : Hash32.ZERO;
             this.timestamp = timestamp;
-            this.previousVersionHash = previousVersionHash;
+            this.previousVersionHash = previousVersionHash != null ? previousVersionHash : Hash32.ZERO;
             this.reason = reason;
             this.versionHash = calculateVersionHash();
         }
@@ -250,36 +254,36 @@ public class MerkleTreeVersioning {
         public long getId() { return id; }
         public String getOperation() { return operation; }
         public List<MerkleNode> getLeaves() { return leaves; }
-        public String getRootHash() { return rootHash; }
+        public Hash32 getRootHash() { return rootHash; }
         public Instant getTimestamp() { return timestamp; }
-        public String getPreviousVersionHash() { return previousVersionHash; }
+        public Hash32 getPreviousVersionHash() { return previousVersionHash; }
         public String getReason() { return reason; }
-        public String getVersionHash() { return versionHash; }
+        public Hash32 getVersionHash() { return versionHash; }
         
         /**
          * Calcula o hash desta versao baseado em seus dados.
+         * 
+         * Os hashes entram no digest como 32 bytes binarios; os campos
+         * de texto entram em UTF-8.
          */
-        public String calculateVersionHash() {
+        public Hash32 calculateVersionHash() {
             try {
-                java.security.MessageDigest digest = 
-                    java.security.MessageDigest.getInstance("SHA-256");
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
                 
-                String data = id + operation + rootHash + timestamp.toString() + 
-                             previousVersionHash + reason;
+                digest.update((id + operation).getBytes(StandardCharsets.UTF_8));
+                rootHash.update(digest);
+                digest.update(timestamp.toString().getBytes(StandardCharsets.UTF_8));
+                previousVersionHash.update(digest);
+                digest.update(String.valueOf(reason).getBytes(StandardCharsets.UTF_8));
                 
                 // inclui os hashes das leaves
                 for (MerkleNode leaf : leaves) {
-                    data += leaf.getHash();
+                    leaf.getHash().update(digest);
                 }
                 
-                byte[] hash = digest.digest(data.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                StringBuilder sb = new StringBuilder();
-                for (byte b : hash) {
-                    sb.append(String.format("%02x", b));
-                }
-                return sb.toString();
-            } catch (Exception e) {
-                return "ERROR_" + System.nanoTime();
+                return Hash32.of(digest.digest());
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
             }
         }
         
@@ -287,10 +291,10 @@ public class MerkleTreeVersioning {
             Map<String, Object> map = new HashMap<>();
             map.put("id", id);
             map.put("operation", operation);
-            map.put("rootHash", rootHash);
+            map.put("rootHash", rootHash.toHex());
             map.put("timestamp", timestamp.toString());
-            map.put("previousVersionHash", previousVersionHash);
-            map.put("versionHash", versionHash);
+            map.put("previousVersionHash", previousVersionHash.toHex());
+            map.put("versionHash", versionHash.toHex());
             map.put("reason", reason);
             map.put("leafCount", leaves.size());
             return map;
@@ -302,13 +306,13 @@ public class MerkleTreeVersioning {
      */
     public static class MerkleNode {
         private final String nodeId;
-        private final String hash;
+        private final Hash32 hash;
         private final String state;
         private final int depth;
         private final boolean isLeaf;
         private final List<String> dependencies;
         
-        public MerkleNode(String nodeId, String hash, String state, 
+        public MerkleNode(String nodeId, Hash32 hash, String state, 
                          int depth, boolean isLeaf, List<String> dependencies) {
             this.nodeId = nodeId;
             this.hash = hash;
@@ -319,7 +323,7 @@ public class MerkleTreeVersioning {
         }
         
         public String getNodeId() { return nodeId; }
-        public String getHash() { return hash; }
+        public Hash32 getHash() { return hash; }
         public String getState() { return state; }
         public int getDepth() { return depth; }
         public boolean isLeaf() { return isLeaf; }
@@ -7,6 +7,8 @@ import java.time.Instant;
  */
 public class MerkleTreeTransitionEvent {
     private String id;
+    private long sequence;
+    private String instanceId;
     private String eventType;
     private Instant timestamp;
     private String triggerReason;
@@ -39,6 +41,22 @@ public class MerkleTreeTransitionEvent {
         this.id = id;
     }
 
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
     public String getEventType() {
         return eventType;
     }
@@ -0,0 +1,160 @@
+package com.squid.core.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Paces the background work of dynamic engines by load on the request path.
+ *
+ * Once per period the controller reads the mean latency of the requests
+ * recorded since the last period and the system CPU load, and sets a rate:
+ * the fraction of nominal tick frequency that engines run at. A busy
+ * period (latency or CPU above its high threshold) halves the rate, down
+ * to {@code minRate}, which is the floor background mutation never drops
+ * under: only the tick period follows the rate, work per tick stays
+ * nominal. An idle period (both under their low thresholds) raises it by a
+ * quarter back to 1. Work skipped while throttled is counted as debt, in
+ * nominal milliseconds; idle periods with debt run faster than nominal, up
+ * to {@code maxCatchUp}, until it is repaid. Anything in between holds the
+ * rate.
+ */
+@Component
+public class BackgroundLoadController implements AutoCloseable {
+
+    private static final double RECOVERY_STEP = 0.25;
+
+    private final boolean enabled;
+    private final long periodMs;
+    private final double latencyHighMs;
+    private final double latencyLowMs;
+    private final double cpuHigh;
+    private final double cpuLow;
+    private final double minRate;
+    private final double maxCatchUp;
+    private final long maxDebtMs;
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final DynamicEngineScheduler.Task control;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder requestNanos = new LongAdder();
+
+    private volatile double rate = 1.0;
+    // only touched by the control task
+    private double debtMs;
+    private volatile double lastLatencyMs;
+    private volatile double lastCpu;
+
+    @Autowired
+    public BackgroundLoadController(DynamicEngineScheduler scheduler,
+                                    @Value("${squid.dynamic.adaptive.enabled:true}") boolean enabled,
+                                    @Value("${squid.dynamic.adaptive.period-ms:1000}") long periodMs,
+                                    @Value("${squid.dynamic.adaptive.latency-high-ms:200}") double latencyHighMs,
+                                    @Value("${squid.dynamic.adaptive.latency-low-ms:50}") double latencyLowMs,
+                                    @Value("${squid.dynamic.adaptive.cpu-high:0.85}") double cpuHigh,
+                                    @Value("${squid.dynamic.adaptive.cpu-low:0.5}") double cpuLow,
+                                    @Value("${squid.dynamic.adaptive.min-rate:0.1}") double minRate,
+                                    @Value("${squid.dynamic.adaptive.max-catch-up:2.0}") double maxCatchUp,
+                                    @Value("${squid.dynamic.adaptive.max-debt-ms:60000}") long maxDebtMs) {
+        this.enabled = enabled;
+        this.periodMs = Math.max(1L, periodMs);
+        this.latencyHighMs = latencyHighMs;
+        this.latencyLowMs = Math.min(latencyLowMs, latencyHighMs);
+        this.cpuHigh = cpuHigh;
+        this.cpuLow = Math.min(cpuLow, cpuHigh);
+        this.minRate = Math.min(1.0, Math.max(0.01, minRate));
+        this.maxCatchUp = Math.max(1.0, maxCatchUp);
+        this.maxDebtMs = Math.max(0L, maxDebtMs);
+        this.control = enabled ? scheduler.schedule(this::adjust, this.periodMs) : null;
+    }
+
+    /**
+     * Record one latency-sensitive request.
+     */
+    public void recordRequest(long nanos) {
+        requestCount.increment();
+        requestNanos.add(nanos);
+    }
+
+    /**
+     * Current fraction of nominal background tick frequency, in
+     * [minRate, maxCatchUp].
+     */
+    public double rate() {
+        return rate;
+    }
+
+    /**
+     * Delay for a task whose nominal period is {@code nominalMs}.
+     */
+    public long period(long nominalMs) {
+        return Math.max(1L, Math.round(nominalMs / rate));
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("rate", rate);
+        status.put("minRate", minRate);
+        status.put("debtMs", Math.round(debtMs));
+        status.put("latencyMs", lastLatencyMs);
+        status.put("cpuLoad", lastCpu);
+        return status;
+    }
+
+    /**
+     * One control step from the load seen since the previous step.
+     */
+    void adjust() {
+        long count = requestCount.sumThenReset();
+        long nanos = requestNanos.sumThenReset();
+        double latencyMs = count == 0 ? 0.0 : nanos / 1e6 / count;
+        double cpu = systemCpuLoad();
+        lastLatencyMs = latencyMs;
+        lastCpu = cpu;
+
+        double r = rate;
+        boolean busy = latencyMs > latencyHighMs || cpu > cpuHigh;
+        boolean idle = latencyMs <= latencyLowMs && cpu <= cpuLow;
+        if (busy) {
+            r = Math.max(minRate, r / 2);
+        } else if (idle) {
+            r = debtMs > 0 ? Math.min(maxCatchUp, r + RECOVERY_STEP) : Math.min(1.0, r + RECOVERY_STEP);
+        } else {
+            r = Math.min(r, 1.0);
+        }
+
+        // nominal work skipped (rate < 1) or repaid (rate > 1) this period
+        debtMs = Math.min(maxDebtMs, Math.max(0.0, debtMs + (1.0 - r) * periodMs));
+        if (debtMs == 0 && r > 1.0) {
+            r = 1.0;
+        }
+        rate = r;
+    }
+
+    @SuppressWarnings("deprecation")
+    private double systemCpuLoad() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            double load = ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+            if (load >= 0) return load;
+        }
+        // fall back to the load average per core where the JVM has no CPU figure
+        double average = os.getSystemLoadAverage();
+        return average < 0 ? 0.0 : Math.min(1.0, average / os.getAvailableProcessors());
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        if (control != null) {
+            control.cancel();
+        }
+    }
+}
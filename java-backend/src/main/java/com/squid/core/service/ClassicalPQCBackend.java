@@ -0,0 +1,146 @@
+package com.squid.core.service;
+
+import javax.crypto.Cipher;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classical simulation of the PQC primitives.
+ *
+ * - ML-DSA role: ECDSA P-521 with SHA-512
+ * - ML-KEM role: RSA-4096 OAEP wrapping a random 32-byte shared secret
+ *
+ * Kept for environments without the lattice implementations and as the
+ * reference point in PQCBenchmark.
+ */
+public class ClassicalPQCBackend implements PQCBackend {
+
+    public static final String NAME = "classical";
+
+    private static final String SIGNATURE_ALGORITHM = "SHA512withECDSA";
+    private static final String KEM_CIPHER = "RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING";
+
+    private final SecureRandom random;
+    private volatile KeyPair signatureKeyPair;
+    private volatile KeyPair kemKeyPair;
+
+    // Signature lookup is provider-synchronized; one instance per thread keeps
+    // parallel (batch) sign/verify off that path
+    private final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
+        } catch (Exception e) {
+            throw new IllegalStateException(SIGNATURE_ALGORITHM + " unavailable", e);
+        }
+    });
+
+    public ClassicalPQCBackend(SecureRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isPostQuantum() {
+        return false;
+    }
+
+    @Override
+    public void generateKeys() throws Exception {
+        // ECDSA P-521 key pair (simulating Dilithium strength)
+        KeyPairGenerator ecGen = KeyPairGenerator.getInstance("EC");
+        ecGen.initialize(521, random);
+        this.signatureKeyPair = ecGen.generateKeyPair();
+
+        // RSA-4096 key pair (simulating Kyber strength)
+        KeyPairGenerator rsaGen = KeyPairGenerator.getInstance("RSA");
+        rsaGen.initialize(4096, random);
+        this.kemKeyPair = rsaGen.generateKeyPair();
+    }
+
+    @Override
+    public byte[] sign(byte[] data) throws Exception {
+        Signature signer = signatures.get();
+        signer.initSign(signatureKeyPair.getPrivate());
+        signer.update(data);
+        return signer.sign();
+    }
+
+    @Override
+    public boolean verify(byte[] signature, byte[] data) throws Exception {
+        Signature verifier = signatures.get();
+        verifier.initVerify(signatureKeyPair.getPublic());
+        verifier.update(data);
+        return verifier.verify(signature);
+    }
+
+    @Override
+    public PQCService.KEMResult encapsulate() throws Exception {
+        // Generate ephemeral shared secret (32 bytes)
+        byte[] sharedSecret = new byte[32];
+        random.nextBytes(sharedSecret);
+
+        // Encrypt shared secret with public key
+        Cipher cipher = Cipher.getInstance(KEM_CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, kemKeyPair.getPublic());
+        byte[] ciphertext = cipher.doFinal(sharedSecret);
+
+        return new PQCService.KEMResult(ciphertext, sharedSecret);
+    }
+
+    @Override
+    public byte[] decapsulate(byte[] ciphertext) throws Exception {
+        Cipher cipher = Cipher.getInstance(KEM_CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, kemKeyPair.getPrivate());
+        return cipher.doFinal(ciphertext);
+    }
+
+    @Override
+    public byte[] getSignaturePublicKey() {
+        return signatureKeyPair.getPublic().getEncoded();
+    }
+
+    @Override
+    public byte[] getKemPublicKey() {
+        return kemKeyPair.getPublic().getEncoded();
+    }
+
+    @Override
+    public String getParameterSetId() {
+        return "RSA-4096/EC-P521";
+    }
+
+    @Override
+    public Map<String, byte[]> exportKeyMaterial() {
+        Map<String, byte[]> out = new LinkedHashMap<>();
+        out.put("sig.private", signatureKeyPair.getPrivate().getEncoded());
+        out.put("sig.public", signatureKeyPair.getPublic().getEncoded());
+        out.put("kem.private", kemKeyPair.getPrivate().getEncoded());
+        out.put("kem.public", kemKeyPair.getPublic().getEncoded());
+        return out;
+    }
+
+    @Override
+    public void importKeyMaterial(Map<String, byte[]> material) throws Exception {
+        KeyFactory ec = KeyFactory.getInstance("EC");
+        KeyFactory rsa = KeyFactory.getInstance("RSA");
+        KeyPair sig = new KeyPair(
+                ec.generatePublic(new X509EncodedKeySpec(material.get("sig.public"))),
+                ec.generatePrivate(new PKCS8EncodedKeySpec(material.get("sig.private"))));
+        KeyPair kem = new KeyPair(
+                rsa.generatePublic(new X509EncodedKeySpec(material.get("kem.public"))),
+                rsa.generatePrivate(new PKCS8EncodedKeySpec(material.get("kem.private"))));
+        this.signatureKeyPair = sig;
+        this.kemKeyPair = kem;
+    }
+}
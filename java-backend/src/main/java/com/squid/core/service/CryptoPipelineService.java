@@ -2,6 +2,7 @@ package com.squid.core.service;
 
 import com.squid.core.crypto.AssemblyHashMix;
 import com.squid.core.crypto.CanonicalJson;
+import com.squid.core.crypto.Hex;
 import com.squid.core.crypto.MerkleTree;
 import com.squid.core.fingerprint.FingerprintMode;
 import com.squid.core.fingerprint.FingerprintSnapshot;
@@ -9,6 +10,8 @@ import com.squid.core.fingerprint.HardwareFingerprintService;
 import com.squid.core.model.EncryptDecryptModels;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -77,7 +80,7 @@ public class CryptoPipelineService {
         byte[] mixedHash = assemblyHashMix.customHashMix(preHash, hwSeed);
 
         // Capture fingerprint snapshot for this operation
-        FingerprintSnapshot fpSnap = fingerprintService.capture(FingerprintMode.FULL);
+        FingerprintSnapshot fpSnap = fingerprintService.latest(FingerprintMode.FULL);
 
         // 4) PQC encryption using Kyber + signature over mixed hash
         Map<String, String> enc = pqcService.encryptWithKyber(canonical);
@@ -96,9 +99,9 @@ public class CryptoPipelineService {
         meta.put("signature", signature);
         meta.put("kyber_public_key", pqcService.getKyberPublicKey());
         meta.put("dilithium_public_key", pqcService.getDilithiumPublicKey());
-        meta.put("merkle_root", bytesToHex(root));
-        meta.put("pre_hash", bytesToHex(preHash));
-        meta.put("mixed_hash", bytesToHex(mixedHash));
+        meta.put("merkle_root", Hex.encode(root));
+        meta.put("pre_hash", Hex.encode(preHash));
+        meta.put("mixed_hash", Hex.encode(mixedHash));
         meta.put("created_at", Instant.now().toString());
         meta.put("fingerprint_mode", fpSnap.getMode().name());
         meta.put("fingerprint_confidence", fpSnap.getConfidenceScore());
@@ -145,7 +148,7 @@ public class CryptoPipelineService {
         byte[] mixedHash = assemblyHashMix.customHashMix(preHash, hwSeed);
 
         // Capture fingerprint snapshot at decrypt time
-        FingerprintSnapshot fpSnap = fingerprintService.capture(FingerprintMode.FULL);
+        FingerprintSnapshot fpSnap = fingerprintService.latest(FingerprintMode.FULL);
         resp.setFingerprintConfidence(fpSnap.getConfidenceScore());
 
         // 3) Verify signature
@@ -159,7 +162,7 @@ public class CryptoPipelineService {
 
         // 4) Verify Merkle root
         MerkleTree tree = new MerkleTree(Collections.singletonList(mixedHash), assemblyHashMix);
-        boolean merkleOk = bytesToHex(tree.getRoot()).equalsIgnoreCase(merkleRootHex);
+        boolean merkleOk = Hex.encode(tree.getRoot()).equalsIgnoreCase(merkleRootHex);
         resp.setMerkleVerified(merkleOk);
         if (!merkleOk) {
             resp.setAuthorized(false);
@@ -175,7 +178,7 @@ public class CryptoPipelineService {
                 Object depthObj = meta.get("iterative_depth");
                 Object expectedFinalObj = meta.get("final_seed_hex");
                 if (seedHexObj instanceof String && depthObj instanceof Number && expectedFinalObj instanceof String) {
-                    byte[] seedBytes = hexToBytes((String) seedHexObj);
+                    byte[] seedBytes = Hex.decode((String) seedHexObj);
                     int depth = ((Number) depthObj).intValue();
                     var iterRes = iterativeSeedEngine.run(seedBytes, Math.max(1, depth));
                     String finalHex = iterRes.finalSeedHex;
@@ -216,6 +219,52 @@ public class CryptoPipelineService {
         return resp;
     }
 
+    /**
+     * Streaming encrypt for payloads too large to hold in memory.
+     *
+     * Bytes are sealed segment by segment (see PQCService.encryptStream),
+     * so there is no String / canonical / base64 copy of the payload. The
+     * input is treated as opaque bytes: no canonicalization or Merkle
+     * anchoring is applied on this path.
+     *
+     * @return number of plaintext bytes encrypted
+     */
+    public long encryptStream(InputStream in, OutputStream out) throws Exception {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("op_id", UUID.randomUUID().toString());
+        meta.put("mode", "STREAM");
+        try {
+            long bytes = pqcService.encryptStream(in, out);
+            meta.put("plaintext_bytes", bytes);
+            recordOperation("ENCRYPT_STREAM", true, null, meta);
+            return bytes;
+        } catch (Exception e) {
+            recordOperation("ENCRYPT_STREAM", false, e.getClass().getSimpleName(), meta);
+            throw e;
+        }
+    }
+
+    /**
+     * Streaming decrypt counterpart of {@link #encryptStream}. Fails with
+     * an AEADBadTagException / EOFException on tampered or truncated input.
+     *
+     * @return number of plaintext bytes written
+     */
+    public long decryptStream(InputStream in, OutputStream out) throws Exception {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("op_id", UUID.randomUUID().toString());
+        meta.put("mode", "STREAM");
+        try {
+            long bytes = pqcService.decryptStream(in, out);
+            meta.put("plaintext_bytes", bytes);
+            recordOperation("DECRYPT_STREAM", true, null, meta);
+            return bytes;
+        } catch (Exception e) {
+            recordOperation("DECRYPT_STREAM", false, e.getClass().getSimpleName(), meta);
+            throw e;
+        }
+    }
+
     public List<Map<String, Object>> getOperationsSnapshot() {
         synchronized (operations) {
             return new ArrayList<>(operations);
@@ -242,21 +291,4 @@ public class CryptoPipelineService {
         }
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
-    }
-
-    private byte[] hexToBytes(String hex) {
-        int len = hex.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
-                    + Character.digit(hex.charAt(i+1), 16));
-        }
-        return data;
-    }
 }
@@ -0,0 +1,159 @@
+package com.squid.core.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of symmetric keys derived from KEM decapsulation.
+ *
+ * Entries are keyed by SHA-256 of the encapsulated key, live for at most
+ * squid.pqc.decap-cache.ttl-seconds and are capped at max-entries. Key
+ * bytes are zeroed whenever an entry expires, is evicted or the cache is
+ * purged. Entries are kept in insertion order; with a fixed TTL that is also expiry order, so expired
+ * entries are always at the head.
+ */
+@Component
+public class DecapsulationCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public DecapsulationCache(@Value("${squid.pqc.decap-cache.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${squid.pqc.decap-cache.max-entries:1024}") int maxEntries) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    public static DecapsulationCache defaultCache() {
+        return new DecapsulationCache(300, 1024);
+    }
+
+    public boolean isEnabled() {
+        return ttlNanos > 0 && maxEntries > 0;
+    }
+
+    /**
+     * Cached key for this encapsulation, or null. The returned array is a
+     * copy the caller may zero after use.
+     */
+    public byte[] get(byte[] encapsulatedKey) {
+        if (!isEnabled()) {
+            return null;
+        }
+        ByteBuffer id = digest(encapsulatedKey);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            expire(now);
+            Entry e = entries.get(id);
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return e.key.clone();
+        }
+    }
+
+    /**
+     * Remember the derived key for this encapsulation. The cache keeps its
+     * own copy.
+     */
+    public void put(byte[] encapsulatedKey, byte[] derivedKey) {
+        if (!isEnabled()) {
+            return;
+        }
+        ByteBuffer id = digest(encapsulatedKey);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            expire(now);
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                previous.destroy();
+            }
+            entries.put(id, new Entry(derivedKey.clone(), now + ttlNanos));
+            while (entries.size() > maxEntries) {
+                Iterator<Entry> it = entries.values().iterator();
+                it.next().destroy();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Zero and drop every entry.
+     */
+    public void purge() {
+        synchronized (entries) {
+            for (Entry e : entries.values()) {
+                e.destroy();
+            }
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("ttl_seconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("max_entries", maxEntries);
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.expiresAtNanos - now > 0) {
+                break;
+            }
+            e.destroy();
+            it.remove();
+        }
+    }
+
+    private static ByteBuffer digest(byte[] encapsulatedKey) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(encapsulatedKey));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        final byte[] key;
+        final long expiresAtNanos;
+
+        Entry(byte[] key, long expiresAtNanos) {
+            this.key = key;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        void destroy() {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.squid.core.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Shared driver for the periodic work of all dynamic engines.
+ *
+ * A single daemon thread advances a hashed timing wheel and hands due tasks
+ * to a work-stealing ForkJoinPool, so thousands of engines cost a handful of
+ * threads instead of a scheduled pool each. First runs are jittered across
+ * one period so engines created together do not tick together, and a task
+ * is re-armed only after its run completes, so one engine never has two
+ * ticks in flight.
+ */
+@Component
+public class DynamicEngineScheduler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamicEngineScheduler.class);
+
+    private final long tickMs;
+    private final List<Task>[] wheel;
+    private final ForkJoinPool pool;
+    private final Queue<Task> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    // Wheel position; only touched by the ticker thread
+    private long currentTick;
+
+    /**
+     * Periodic task handle. Cancelling is lazy: the wheel drops the task the
+     * next time it reaches its slot.
+     */
+    public final class Task {
+        private final Runnable action;
+        private final LongSupplier periodMs;
+        private volatile boolean cancelled;
+        private long deadlineTick;
+
+        private Task(Runnable action, LongSupplier periodMs) {
+            this.action = action;
+            this.periodMs = periodMs;
+        }
+
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                scheduledCount.decrementAndGet();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void run() {
+            try {
+                if (!cancelled) {
+                    action.run();
+                }
+            } catch (RuntimeException e) {
+                log.error("Scheduled engine task failed", e);
+            } finally {
+                if (!cancelled && running) {
+                    arm(this, Math.max(1L, periodMs.getAsLong()));
+                }
+            }
+        }
+    }
+
+    @Autowired
+    public DynamicEngineScheduler(@Value("${squid.dynamic.scheduler.tick-ms:50}") long tickMs,
+                                  @Value("${squid.dynamic.scheduler.wheel-size:512}") int wheelSize,
+                                  @Value("${squid.dynamic.scheduler.parallelism:0}") int parallelism) {
+        this.tickMs = Math.max(1L, tickMs);
+        @SuppressWarnings("unchecked")
+        List<Task>[] slots = (List<Task>[]) new List<?>[Math.max(16, wheelSize)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.wheel = slots;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // async mode: FIFO for independent event-style tasks
+        this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.ticker = new Thread(this::runWheel, "dynamic-engine-wheel");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Scheduler for engines created outside Spring (IPC, tools).
+     */
+    public static DynamicEngineScheduler shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    private static final class SharedHolder {
+        static final DynamicEngineScheduler INSTANCE = new DynamicEngineScheduler(50, 512, 0);
+    }
+
+    /**
+     * Run {@code action} every {@code periodMs}, measured from the end of the
+     * previous run. The first run falls at a random point within one period.
+     */
+    public Task schedule(Runnable action, long periodMs) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("periodMs must be positive");
+        }
+        return schedule(action, () -> periodMs);
+    }
+
+    /**
+     * Like {@link #schedule(Runnable, long)}, with the period read again
+     * before each run is armed, so it can follow load.
+     */
+    public Task schedule(Runnable action, LongSupplier periodMs) {
+        Task task = new Task(action, periodMs);
+        scheduledCount.incrementAndGet();
+        arm(task, 1 + ThreadLocalRandom.current().nextLong(Math.max(1L, periodMs.getAsLong())));
+        return task;
+    }
+
+    /**
+     * Number of live (not cancelled) periodic tasks.
+     */
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    private void arm(Task task, long delayMs) {
+        // deadline is resolved against the wheel position when drained
+        task.deadlineTick = Math.max(1L, (delayMs + tickMs - 1) / tickMs);
+        incoming.add(task);
+    }
+
+    private void runWheel() {
+        long next = System.nanoTime();
+        while (running) {
+            next += TimeUnit.MILLISECONDS.toNanos(tickMs);
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            currentTick++;
+
+            // place tasks armed since the last tick; deadlineTick holds a delay until now
+            Task armed;
+            while ((armed = incoming.poll()) != null) {
+                if (armed.cancelled) continue;
+                armed.deadlineTick += currentTick;
+                wheel[(int) (armed.deadlineTick % wheel.length)].add(armed);
+            }
+
+            List<Task> slot = wheel[(int) (currentTick % wheel.length)];
+            Iterator<Task> it = slot.iterator();
+            while (it.hasNext()) {
+                Task task = it.next();
+                if (task.cancelled) {
+                    it.remove();
+                } else if (task.deadlineTick <= currentTick) {
+                    it.remove();
+                    pool.execute(task::run);
+                }
+                // otherwise due on a later turn of the wheel
+            }
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        ticker.interrupt();
+        pool.shutdown();
+    }
+}
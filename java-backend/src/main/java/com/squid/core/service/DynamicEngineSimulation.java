@@ -0,0 +1,138 @@
+package com.squid.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline, deterministic run of the dynamic engine on a virtual clock.
+ *
+ * The engine gets a seeded random source and a clock that only this driver
+ * advances, jumping straight from one due tick to the next (transitions
+ * every 2s, integrity sweeps every 3s of virtual time), so hours of engine
+ * activity run as fast as the CPU allows and the same arguments always end
+ * in the same root. Reports tick throughput, root recompute cost and heap
+ * growth as JSON on stdout.
+ *
+ * Usage: java -cp squid-core.jar com.squid.core.service.DynamicEngineSimulation [leaves] [ticks] [seed]
+ */
+public final class DynamicEngineSimulation {
+
+    private static final int DEFAULT_LEAVES = 10_000;
+    private static final long DEFAULT_TICKS = 1_000_000;
+    private static final long DEFAULT_SEED = 42;
+    private static final long TRANSITION_PERIOD_MS = 2000;
+    private static final long INTEGRITY_PERIOD_MS = 3000;
+
+    private DynamicEngineSimulation() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int leaves = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LEAVES;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_TICKS;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("java_version", System.getProperty("java.version"));
+        report.put("available_processors", Runtime.getRuntime().availableProcessors());
+        report.putAll(run(leaves, ticks, seed));
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(mapper.writeValueAsString(report));
+    }
+
+    /**
+     * Build a tree of {@code leaves} leaves and run {@code ticks} engine
+     * ticks (transition and integrity ticks together) on the virtual clock.
+     */
+    public static Map<String, Object> run(int leaves, long ticks, long seed) throws Exception {
+        List<String> data = new ArrayList<>(leaves);
+        for (int i = 0; i < leaves; i++) {
+            data.add("sim_leaf_" + i);
+        }
+
+        long[] clock = {0};
+        long heapBefore = usedHeap();
+        long buildStart = System.nanoTime();
+        MerkleTreeDynamicEngine engine = new MerkleTreeDynamicEngine(data, seed, () -> clock[0]);
+        long buildNanos = System.nanoTime() - buildStart;
+        Map<String, Object> built = engine.getStats();
+        long heapBuilt = usedHeap();
+
+        long nextTransition = TRANSITION_PERIOD_MS;
+        long nextIntegrity = INTEGRITY_PERIOD_MS;
+        long transitionTicks = 0;
+        long integrityTicks = 0;
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            if (nextTransition <= nextIntegrity) {
+                clock[0] = nextTransition;
+                engine.performAutonomousTransition();
+                nextTransition += TRANSITION_PERIOD_MS;
+                transitionTicks++;
+            } else {
+                clock[0] = nextIntegrity;
+                engine.performIntegrityUpdates();
+                nextIntegrity += INTEGRITY_PERIOD_MS;
+                integrityTicks++;
+            }
+        }
+        long wallNanos = System.nanoTime() - start;
+        Map<String, Object> stats = engine.getStats();
+        long heapAfter = usedHeap();
+        engine.stop();
+
+        Map<String, Object> tree = new LinkedHashMap<>();
+        tree.put("leaves", leaves);
+        tree.put("nodes", stats.get("total_nodes"));
+        tree.put("build_ms", buildNanos / 1e6);
+        tree.put("final_root", stats.get("root_hash"));
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("ticks", ticks);
+        throughput.put("transition_ticks", transitionTicks);
+        throughput.put("integrity_ticks", integrityTicks);
+        throughput.put("transitions", stats.get("total_transitions"));
+        throughput.put("virtual_seconds", clock[0] / 1000.0);
+        throughput.put("wall_seconds", wallNanos / 1e9);
+        throughput.put("ticks_per_sec", ticks / (wallNanos / 1e9));
+        throughput.put("speedup", clock[0] / (wallNanos / 1e6));
+
+        // recompute cost of the ticks alone, without the initial build
+        long rehashes = (long) stats.get("rehash_count") - (long) built.get("rehash_count");
+        long pairHashes = (long) stats.get("rehash_pair_hashes") - (long) built.get("rehash_pair_hashes");
+        long rehashNanos = (long) stats.get("rehash_nanos") - (long) built.get("rehash_nanos");
+        Map<String, Object> recompute = new LinkedHashMap<>();
+        recompute.put("rehashes", rehashes);
+        recompute.put("pair_hashes", pairHashes);
+        recompute.put("pair_hashes_per_rehash", rehashes == 0 ? 0.0 : (double) pairHashes / rehashes);
+        recompute.put("us_per_rehash", rehashes == 0 ? 0.0 : rehashNanos / 1e3 / rehashes);
+        recompute.put("share_of_wall", (double) rehashNanos / wallNanos);
+
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("heap_before_bytes", heapBefore);
+        memory.put("tree_bytes", heapBuilt - heapBefore);
+        memory.put("bytes_per_node", (double) (heapBuilt - heapBefore) / (int) built.get("total_nodes"));
+        memory.put("growth_during_ticks_bytes", heapAfter - heapBuilt);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("seed", seed);
+        result.put("tree", tree);
+        result.put("throughput", throughput);
+        result.put("recompute", recompute);
+        result.put("memory", memory);
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
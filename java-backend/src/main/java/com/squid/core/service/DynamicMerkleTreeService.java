@@ -1,12 +1,25 @@
 package com.squid.core.service;
 
 import com.squid.core.model.MerkleTreeTransitionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 /**
@@ -22,37 +35,363 @@ import java.util.stream.Collectors;
 @Service
 public class DynamicMerkleTreeService {
     
-    private final MerkleTreeDynamicEngine dynamicEngine;
-    private final List<MerkleTreeTransitionEvent> externalTransitionHistory = new CopyOnWriteArrayList<>();
+    private static final Logger log = LoggerFactory.getLogger(DynamicMerkleTreeService.class);
     
+    /** Tree used by the calls that take no instance id */
+    public static final String DEFAULT_TREE = "default";
+    // prefix of the stream keys of API-triggered events, distinct from any instance id
+    private static final String EXTERNAL_EVENTS = "~external:";
+    // cap of the unpaged history calls
+    private static final int HISTORY_LIMIT = 1000;
+    
+    private final Map<String, EngineSlot> engines = new ConcurrentHashMap<>();
+    private final TransitionEventStore eventStore;
+    private final DynamicEngineScheduler scheduler;
+    private final DynamicEngineScheduler.Task housekeeping;
+    private final DynamicEngineScheduler.Task checkpointing;
+    private final MerkleTransitionStream stream;
+    private final BackgroundLoadController loadController; // null = nominal pace
+    
+    // transition log settings, applied per engine
+    private final Path logDir;
+    private final int ringSize;
+    private final int segmentBytes;
+    private final long segmentMaxAgeMs;
+    private final int maxSegments;
+    
+    private final long parkAfterMs;
+    private final long evictAfterMs;
+    
+    // engine checkpoints, one file per tree (null = disabled)
+    private final Path checkpointDir;
+    
+    /**
+     * Engine of one instance and the last time it was used.
+     */
+    private static final class EngineSlot {
+        final MerkleTreeDynamicEngine engine;
+        volatile long lastAccess = System.currentTimeMillis();
+        // tree version at the last checkpoint; guarded by the slot
+        String checkpointMark;
+        // writes hold the read side; eviction takes the write side
+        final ReadWriteLock evictLock = new ReentrantReadWriteLock();
+        
+        EngineSlot(MerkleTreeDynamicEngine engine) {
+            this.engine = engine;
+        }
+    }
+    
+    /**
+     * Service with in-memory transition logs on the shared scheduler (IPC and
+     * standalone use)
+     */
     public DynamicMerkleTreeService() throws NoSuchAlgorithmException {
+        this(DynamicEngineScheduler.shared(), new MerkleTransitionStream(250, 256, 4096),
+            new TransitionEventStore(8192), null, "", MerkleTreeDynamicEngine.DEFAULT_TRANSITION_RING,
+            8 * 1024 * 1024, 3_600_000L, 24, 300_000L, 1_800_000L, "", 60_000L);
+    }
+    
+    /**
+     * Service whose transition logs spill to segment files under
+     * {@code logDir}/{instance} when a directory is configured; an empty
+     * directory keeps the logs in memory only. Engines idle for
+     * {@code parkAfterMs} stop ticking until used again; idle for
+     * {@code evictAfterMs} they are dropped (0 disables either). Eviction
+     * needs a checkpoint directory, so that a dropped tree can be reopened
+     * where it left off; without one trees stay open. The default tree is
+     * never evicted. With a checkpoint directory, trees are
+     * restored from their last checkpoint when opened, checkpointed every
+     * {@code checkpointIntervalMs} if they changed, and before eviction and
+     * shutdown. Engine ticks follow the pace set by {@code loadController}.
+     */
+    @Autowired
+    public DynamicMerkleTreeService(
+            DynamicEngineScheduler scheduler,
+            MerkleTransitionStream stream,
+            TransitionEventStore eventStore,
+            BackgroundLoadController loadController,
+            @Value("${squid.dynamic.transition-log.dir:}") String logDir,
+            @Value("${squid.dynamic.transition-log.ring-size:4096}") int ringSize,
+            @Value("${squid.dynamic.transition-log.segment-bytes:8388608}") int segmentBytes,
+            @Value("${squid.dynamic.transition-log.segment-max-age-ms:3600000}") long segmentMaxAgeMs,
+            @Value("${squid.dynamic.transition-log.max-segments:24}") int maxSegments,
+            @Value("${squid.dynamic.engines.park-after-ms:300000}") long parkAfterMs,
+            @Value("${squid.dynamic.engines.evict-after-ms:1800000}") long evictAfterMs,
+            @Value("${squid.dynamic.checkpoint.dir:}") String checkpointDir,
+            @Value("${squid.dynamic.checkpoint.interval-ms:60000}") long checkpointIntervalMs)
+            throws NoSuchAlgorithmException {
+        this.scheduler = scheduler;
+        this.stream = stream;
+        this.eventStore = eventStore;
+        this.loadController = loadController;
+        this.logDir = logDir == null || logDir.isEmpty() ? null : Paths.get(logDir);
+        this.ringSize = ringSize;
+        this.segmentBytes = segmentBytes;
+        this.segmentMaxAgeMs = segmentMaxAgeMs;
+        this.maxSegments = maxSegments;
+        this.parkAfterMs = parkAfterMs;
+        this.checkpointDir = checkpointDir == null || checkpointDir.isEmpty() ? null : Paths.get(checkpointDir);
+        // without checkpoints an evicted tree would come back empty
+        this.evictAfterMs = this.checkpointDir != null ? evictAfterMs : 0;
+        
         // Initialize with default tree (3 initial leaves)
         List<String> initialLeaves = Arrays.asList(
             "genesis_block_" + System.nanoTime(),
             "merkle_root_" + System.nanoTime(),
             "security_hash_" + System.nanoTime()
         );
+        engines.put(DEFAULT_TREE, new EngineSlot(newEngine(DEFAULT_TREE, initialLeaves)));
+        
+        this.housekeeping = scheduler.schedule(this::parkIdleEngines, 10_000);
+        this.checkpointing = this.checkpointDir != null && checkpointIntervalMs > 0
+            ? scheduler.schedule(this::checkpointAll, checkpointIntervalMs)
+            : null;
+    }
+    
+    /**
+     * Open the dynamic tree of an instance with the given leaves; an already
+     * open tree is kept as is
+     */
+    public Map<String, Object> openTree(String instanceId, List<String> initialLeaves) {
+        engines.computeIfAbsent(instanceId, id -> {
+            try {
+                return new EngineSlot(newEngine(id, initialLeaves));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return getTreeStatus(instanceId);
+    }
+    
+    /**
+     * Stop and drop the dynamic tree of an instance. Its spilled transition
+     * segments stay on disk. The default tree stays open.
+     */
+    public boolean closeTree(String instanceId) {
+        if (DEFAULT_TREE.equals(instanceId)) return false;
+        EngineSlot slot = engines.remove(instanceId);
+        if (slot == null) return false;
+        slot.engine.stop();
+        stream.forget(instanceId);
+        if (checkpointDir != null) {
+            try {
+                Files.deleteIfExists(checkpointPath(instanceId));
+            } catch (IOException e) {
+                log.warn("Could not delete checkpoint of closed tree {}: {}", instanceId, e.getMessage());
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Engine of an instance, opened with genesis leaves on first use and
+     * resumed if it was parked. The slot is looked up again after bumping
+     * lastAccess: if eviction removed it in between, the tree is reopened
+     * from its checkpoint instead of handing out the stopped engine.
+     */
+    private MerkleTreeDynamicEngine engine(String instanceId) {
+        EngineSlot slot;
+        do {
+            slot = touch(instanceId);
+        } while (engines.get(instanceId) != slot);
+        return resume(slot);
+    }
+    
+    /**
+     * Slot of an instance for a write, with its eviction lock held for
+     * reading so the engine cannot be checkpointed and stopped under the
+     * write; release with {@code slot.evictLock.readLock().unlock()}
+     */
+    private EngineSlot writeSlot(String instanceId) {
+        while (true) {
+            EngineSlot slot = touch(instanceId);
+            slot.evictLock.readLock().lock();
+            if (engines.get(instanceId) == slot) {
+                resume(slot);
+                return slot;
+            }
+            slot.evictLock.readLock().unlock();
+        }
+    }
+    
+    // current slot, opened with genesis leaves if absent, with lastAccess bumped
+    private EngineSlot touch(String instanceId) {
+        while (true) {
+            EngineSlot slot = engines.get(instanceId);
+            if (slot == null) {
+                List<String> genesis = Collections.singletonList("genesis_block_" + instanceId + "_" + System.nanoTime());
+                openTree(instanceId, genesis);
+                slot = engines.get(instanceId);
+                if (slot == null) continue; // closed concurrently
+            }
+            slot.lastAccess = System.currentTimeMillis();
+            return slot;
+        }
+    }
+    
+    private static MerkleTreeDynamicEngine resume(EngineSlot slot) {
+        if (!slot.engine.isRunning()) {
+            slot.engine.startAutonomousEngine();
+        }
+        return slot.engine;
+    }
+    
+    /**
+     * Engine restored from the tree's checkpoint if there is a usable one,
+     * otherwise a fresh tree over {@code initialLeaves}
+     */
+    private MerkleTreeDynamicEngine newEngine(String instanceId, List<String> initialLeaves)
+            throws NoSuchAlgorithmException {
+        TransitionLog transitionLog = logDir == null
+            ? new TransitionLog(ringSize)
+            : new TransitionLog(ringSize, logDir.resolve(fileName(instanceId)),
+                segmentBytes, segmentMaxAgeMs, maxSegments);
         
-        this.dynamicEngine = new MerkleTreeDynamicEngine(initialLeaves);
+        MerkleTreeDynamicEngine engine = null;
+        Path checkpoint = checkpointDir == null ? null : checkpointPath(instanceId);
+        if (checkpoint != null && Files.isRegularFile(checkpoint)) {
+            try {
+                engine = new MerkleTreeDynamicEngine(EngineCheckpoint.read(checkpoint), transitionLog, scheduler);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Ignoring unusable checkpoint {}: {}", checkpoint, e.getMessage());
+            }
+        }
+        if (engine == null) {
+            engine = new MerkleTreeDynamicEngine(initialLeaves, transitionLog, scheduler);
+        }
+        engine.setTransitionListener(t -> stream.signal(instanceId));
+        engine.setLoadController(loadController);
+        return engine;
+    }
+    
+    private static String fileName(String instanceId) {
+        return instanceId.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+    
+    private Path checkpointPath(String instanceId) {
+        return checkpointDir.resolve(fileName(instanceId) + ".ckpt");
+    }
+    
+    /**
+     * Checkpoint every open tree that changed since its last checkpoint
+     */
+    private void checkpointAll() {
+        for (Map.Entry<String, EngineSlot> entry : engines.entrySet()) {
+            saveCheckpoint(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Snapshot under the tree lock, then encode and write outside it. Writes
+     * of one tree are serialized so an older snapshot never replaces a newer.
+     */
+    private boolean saveCheckpoint(String instanceId, EngineSlot slot) {
+        if (checkpointDir == null) return true;
+        synchronized (slot) {
+            MerkleTreeDynamicEngine engine = slot.engine;
+            String mark = engine.getTransitionCount() + ":" + engine.getRootHashHex();
+            if (mark.equals(slot.checkpointMark)) return true;
+            try {
+                engine.checkpoint().writeTo(checkpointPath(instanceId));
+                slot.checkpointMark = mark;
+                return true;
+            } catch (IOException e) {
+                log.warn("Checkpoint of tree {} failed: {}", instanceId, e.getMessage());
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Park engines idle past parkAfterMs and evict those idle past
+     * evictAfterMs. Eviction waits for no write in flight, checkpoints
+     * again and re-checks lastAccess atomically with the removal; callers
+     * re-check membership after bumping lastAccess, so they either keep the
+     * slot alive or see it gone and reopen the tree from its checkpoint.
+     * Nothing is evicted without a checkpoint directory, nor a tree whose
+     * checkpoint cannot be written.
+     */
+    private void parkIdleEngines() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, EngineSlot> entry : engines.entrySet()) {
+            EngineSlot slot = entry.getValue();
+            long seen = slot.lastAccess;
+            long idle = now - seen;
+            if (evictAfterMs > 0 && idle >= evictAfterMs && !DEFAULT_TREE.equals(entry.getKey())) {
+                slot.engine.park();
+                saveCheckpoint(entry.getKey(), slot);
+                // a write in flight keeps the tree for another round
+                if (!slot.evictLock.writeLock().tryLock()) continue;
+                try {
+                    synchronized (slot) {
+                        // skip if it was used while the checkpoint was written
+                        if (slot.lastAccess != seen || !saveCheckpoint(entry.getKey(), slot)) continue;
+                        engines.computeIfPresent(entry.getKey(), (id, current) -> {
+                            if (current != slot || slot.lastAccess != seen) return current;
+                            slot.engine.stop();
+                            return null;
+                        });
+                    }
+                } finally {
+                    slot.evictLock.writeLock().unlock();
+                }
+            } else if (parkAfterMs > 0 && idle >= parkAfterMs) {
+                slot.engine.park();
+            }
+        }
+    }
+    
+    /**
+     * Number of open engines and how many of them are ticking
+     */
+    public Map<String, Object> getEngineStats() {
+        int running = 0;
+        for (EngineSlot slot : engines.values()) {
+            if (slot.engine.isRunning()) running++;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openEngines", engines.size());
+        stats.put("runningEngines", running);
+        stats.put("parkedEngines", engines.size() - running);
+        stats.put("scheduledTasks", scheduler.getScheduledCount());
+        if (loadController != null) {
+            stats.put("backgroundPace", loadController.getStatus());
+        }
+        return stats;
+    }
+
+    /**
+     * {@link #addLeaves(String, List, String)} on the default tree
+     */
+    public Map<String, Object> addLeaves(List<String> newLeaves, String reason) 
+            throws NoSuchAlgorithmException {
+        return addLeaves(DEFAULT_TREE, newLeaves, reason);
     }
 
     /**
      * Add new data leaves to the Merkle Tree
      * Triggers automatic recalculation and logging
      */
-    public Map<String, Object> addLeaves(List<String> newLeaves, String reason) 
+    public Map<String, Object> addLeaves(String instanceId, List<String> newLeaves, String reason) 
             throws NoSuchAlgorithmException {
         
         if (newLeaves == null || newLeaves.isEmpty()) {
             throw new IllegalArgumentException("No leaves provided");
         }
-
-        String oldRootHash = dynamicEngine.getRootHashHex();
+        EngineSlot slot = writeSlot(instanceId);
+        MerkleTreeDynamicEngine dynamicEngine = slot.engine;
+        String oldRootHash;
+        String newRootHash;
+        try {
+            oldRootHash = dynamicEngine.getRootHashHex();
         
-        // Add leaves to dynamic engine
-        dynamicEngine.addLeaves(newLeaves);
+            // Add leaves to dynamic engine
+            dynamicEngine.addLeaves(newLeaves);
         
-        String newRootHash = dynamicEngine.getRootHashHex();
+            newRootHash = dynamicEngine.getRootHashHex();
+        } finally {
+            slot.evictLock.readLock().unlock();
+        }
         
         // Record external transition
         MerkleTreeTransitionEvent event = new MerkleTreeTransitionEvent(
@@ -66,7 +405,7 @@ public class DynamicMerkleTreeService {
         event.setLeafChangedCount(newLeaves.size());
         event.setDetails("Added " + newLeaves.size() + " new leaves to tree");
         
-        externalTransitionHistory.add(event);
+        recordExternal(instanceId, event);
 
         Map<String, Object> response = new HashMap<>();
         response.put("previousRoot", oldRootHash);
@@ -80,38 +419,41 @@ public class DynamicMerkleTreeService {
     }
 
     /**
-     * Update existing leaves (model retraining, data correction)
+     * {@link #updateLeaves(String, Map, String)} on the default tree
      */
     public Map<String, Object> updateLeaves(Map<Integer, String> updates, String reason) 
             throws NoSuchAlgorithmException {
+        return updateLeaves(DEFAULT_TREE, updates, reason);
+    }
+
+    /**
+     * Update existing leaves (model retraining, data correction)
+     */
+    public Map<String, Object> updateLeaves(String instanceId, Map<Integer, String> updates, String reason) 
+            throws NoSuchAlgorithmException {
         
         if (updates == null || updates.isEmpty()) {
             throw new IllegalArgumentException("No updates provided");
         }
-
-        String oldRootHash = dynamicEngine.getRootHashHex();
+        EngineSlot slot = writeSlot(instanceId);
+        MerkleTreeDynamicEngine dynamicEngine = slot.engine;
+        String oldRootHash;
+        int changedCount;
+        String newRootHash;
+        try {
+            oldRootHash = dynamicEngine.getRootHashHex();
         
-        // Get all current nodes
-        Map<String, MerkleTreeDynamicEngine.TreeNode> nodes = dynamicEngine.getNodes();
-        List<MerkleTreeDynamicEngine.TreeNode> leaves = nodes.values().stream()
-            .filter(MerkleTreeDynamicEngine.TreeNode::isLeaf)
-            .collect(Collectors.toList());
-        
-        int changedCount = 0;
-        for (Map.Entry<Integer, String> update : updates.entrySet()) {
-            int index = update.getKey();
-            if (index >= 0 && index < leaves.size()) {
-                dynamicEngine.updateLeaf(leaves.get(index).nodeId, update.getValue());
-                changedCount++;
-            }
+            // Apply all updates by stable leaf index with a single rehash
+            changedCount = dynamicEngine.updateLeaves(updates);
+            newRootHash = dynamicEngine.getRootHashHex();
+        } finally {
+            slot.evictLock.readLock().unlock();
         }
 
         if (changedCount == 0) {
             throw new IllegalArgumentException("No valid leaf indices provided");
         }
 
-        String newRootHash = dynamicEngine.getRootHashHex();
-
         // Record transition
         MerkleTreeTransitionEvent event = new MerkleTreeTransitionEvent(
             "UPDATE_LEAVES",
@@ -124,7 +466,7 @@ public class DynamicMerkleTreeService {
         event.setLeafChangedCount(changedCount);
         event.setDetails("Updated " + changedCount + " leaves in tree");
         
-        externalTransitionHistory.add(event);
+        recordExternal(instanceId, event);
 
         Map<String, Object> response = new HashMap<>();
         response.put("previousRoot", oldRootHash);
@@ -143,6 +485,7 @@ public class DynamicMerkleTreeService {
     public Map<String, Object> rotateKeysAndRebuild(String reason) 
             throws NoSuchAlgorithmException {
         
+        MerkleTreeDynamicEngine dynamicEngine = engine(DEFAULT_TREE);
         String oldRootHash = dynamicEngine.getRootHashHex();
         
         // Trigger re-initialization which causes node state changes
@@ -162,7 +505,7 @@ public class DynamicMerkleTreeService {
         event.setLeafChangedCount(totalLeaves);
         event.setDetails("Full tree rebuild with key rotation");
         
-        externalTransitionHistory.add(event);
+        recordExternal(DEFAULT_TREE, event);
 
         Map<String, Object> response = new HashMap<>();
         response.put("previousRoot", oldRootHash);
@@ -175,26 +518,31 @@ public class DynamicMerkleTreeService {
         return response;
     }
 
+    /**
+     * {@link #rotateLeavesByIndex(String, List, String)} on the default tree
+     */
+    public Map<String, Object> rotateLeavesByIndex(java.util.List<Integer> indices, String reason) 
+            throws NoSuchAlgorithmException {
+        return rotateLeavesByIndex(DEFAULT_TREE, indices, reason);
+    }
+
     /**
      * Rotate specific leaves by index. Generates new leaf values for given indices
      * and applies updates via the dynamic engine.
      */
-    public Map<String, Object> rotateLeavesByIndex(java.util.List<Integer> indices, String reason) 
+    public Map<String, Object> rotateLeavesByIndex(String instanceId, java.util.List<Integer> indices, String reason) 
             throws NoSuchAlgorithmException {
 
         if (indices == null || indices.isEmpty()) {
             throw new IllegalArgumentException("No indices provided");
         }
+        MerkleTreeDynamicEngine dynamicEngine = engine(instanceId);
 
-        // Get current leaves
-        Map<String, MerkleTreeDynamicEngine.TreeNode> nodes = dynamicEngine.getNodes();
-        java.util.List<MerkleTreeDynamicEngine.TreeNode> leaves = nodes.values().stream()
-            .filter(MerkleTreeDynamicEngine.TreeNode::isLeaf)
-            .collect(java.util.stream.Collectors.toList());
+        int leafCount = dynamicEngine.getLeafCount();
 
         java.util.Map<Integer, String> updates = new java.util.HashMap<>();
         for (Integer idx : indices) {
-            if (idx >= 0 && idx < leaves.size()) {
+            if (idx >= 0 && idx < leafCount) {
                 String newData = "rotated_leaf_" + System.nanoTime();
                 updates.put(idx, newData);
             }
@@ -204,7 +552,7 @@ public class DynamicMerkleTreeService {
             throw new IllegalArgumentException("No valid indices to rotate");
         }
 
-        Map<String, Object> result = updateLeaves(updates, reason != null ? reason : "rotate_indices");
+        Map<String, Object> result = updateLeaves(instanceId, updates, reason != null ? reason : "rotate_indices");
         // include rotated indices for clients
         java.util.List<Integer> rotated = new java.util.ArrayList<>(updates.keySet());
         result.put("rotatedIndices", rotated);
@@ -212,9 +560,17 @@ public class DynamicMerkleTreeService {
     }
 
     /**
-     * Verify integrity of the current tree
+     * {@link #verifyIntegrity(String)} on the default tree
      */
     public Map<String, Object> verifyIntegrity() {
+        return verifyIntegrity(DEFAULT_TREE);
+    }
+
+    /**
+     * Verify integrity of the current tree
+     */
+    public Map<String, Object> verifyIntegrity(String instanceId) {
+        MerkleTreeDynamicEngine dynamicEngine = engine(instanceId);
         Map<String, Object> stats = dynamicEngine.getStats();
         
         long compromisedCount = (long) stats.get("compromised_nodes");
@@ -237,16 +593,27 @@ public class DynamicMerkleTreeService {
                 (String) stats.get("root_hash")
             );
             event.setDetails("Found " + compromisedCount + " compromised nodes");
-            externalTransitionHistory.add(event);
+            recordExternal(instanceId, event);
         }
         
         return response;
     }
 
     /**
-     * Get current tree status
+     * {@link #getTreeStatus(String)} on the default tree
      */
     public Map<String, Object> getTreeStatus() {
+        return getTreeStatus(DEFAULT_TREE);
+    }
+
+    /**
+     * Get current tree status
+     */
+    public Map<String, Object> getTreeStatus(String instanceId) {
+        return treeStatus(engine(instanceId));
+    }
+    
+    private static Map<String, Object> treeStatus(MerkleTreeDynamicEngine dynamicEngine) {
         Map<String, Object> stats = dynamicEngine.getStats();
         
         Map<String, Object> status = new HashMap<>();
@@ -264,19 +631,152 @@ public class DynamicMerkleTreeService {
     }
 
     /**
-     * Get all transitions from dynamic engine
+     * Get recent transitions from the default tree
      */
     public List<Map<String, Object>> getAutonomousTransitions() {
-        return dynamicEngine.getTransitions().stream()
+        return engine(DEFAULT_TREE).getTransitions().stream()
             .map(this::transitionToMap)
             .collect(Collectors.toList());
     }
     
     /**
-     * Get external transitions (API-triggered)
+     * {@link #getAutonomousTransitions(String, long, int)} on the default tree
+     */
+    public Map<String, Object> getAutonomousTransitions(long cursor, int limit) {
+        return getAutonomousTransitions(DEFAULT_TREE, cursor, limit);
+    }
+
+    /**
+     * Page through autonomous transitions by sequence number
+     */
+    public Map<String, Object> getAutonomousTransitions(String instanceId, long cursor, int limit) {
+        return transitionPage(engine(instanceId).getTransitions(cursor, limit), cursor);
+    }
+    
+    /**
+     * {@link #getAutonomousTransitionsBetween(String, long, long, int)} on the default tree
+     */
+    public Map<String, Object> getAutonomousTransitionsBetween(long from, long to, int limit) {
+        return getAutonomousTransitionsBetween(DEFAULT_TREE, from, to, limit);
+    }
+
+    /**
+     * Autonomous transitions in [from, to) epoch millis
+     */
+    public Map<String, Object> getAutonomousTransitionsBetween(String instanceId, long from, long to, int limit) {
+        List<MerkleTreeDynamicEngine.DynamicTransition> transitions =
+            engine(instanceId).getTransitionsBetween(from, to, limit);
+        Map<String, Object> page = transitionPage(transitions, 0);
+        // a full page may leave later matches in the range
+        page.put("truncated", transitions.size() >= limit);
+        return page;
+    }
+    
+    private Map<String, Object> transitionPage(List<MerkleTreeDynamicEngine.DynamicTransition> transitions,
+                                               long cursor) {
+        long nextCursor = transitions.isEmpty()
+            ? cursor
+            : transitions.get(transitions.size() - 1).sequence + 1;
+        
+        Map<String, Object> page = new HashMap<>();
+        page.put("transitions", transitions.stream()
+            .map(this::transitionToMap)
+            .collect(Collectors.toList()));
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+    
+    /**
+     * Live SSE feed of an instance tree's autonomous transitions, its
+     * external (API) events, and coalesced status updates. Negative cursors
+     * start from now. Only an open tree can be streamed; the stream ends
+     * when the tree is closed or evicted, and a client reconnecting with
+     * Last-Event-ID resumes on the reopened tree.
+     *
+     * @throws IllegalArgumentException if the tree is not open
+     */
+    public Flux<ServerSentEvent<Object>> streamTransitions(String instanceId, long cursor, long eventCursor) {
+        EngineSlot slot = engines.get(instanceId);
+        if (slot == null) {
+            throw new IllegalArgumentException("No open tree: " + instanceId);
+        }
+        slot.lastAccess = System.currentTimeMillis();
+        MerkleTreeDynamicEngine dynamicEngine = resume(slot);
+        MerkleTransitionStream.Source source = new MerkleTransitionStream.Source() {
+            @Override
+            public long transitionCursor() {
+                return dynamicEngine.getTransitionCount();
+            }
+            
+            @Override
+            public List<Map<String, Object>> transitions(long from, int limit) {
+                return dynamicEngine.getTransitions(from, limit).stream()
+                    .map(DynamicMerkleTreeService.this::transitionToMap)
+                    .collect(Collectors.toList());
+            }
+            
+            @Override
+            public long eventCursor() {
+                return eventStore.head();
+            }
+            
+            @Override
+            public List<Map<String, Object>> events(long from, int limit) {
+                return eventStore.after(instanceId, from, limit).stream()
+                    .map(DynamicMerkleTreeService.this::externalEventToMap)
+                    .collect(Collectors.toList());
+            }
+            
+            @Override
+            public Map<String, Object> status() {
+                // a watched tree that keeps changing stays open
+                slot.lastAccess = System.currentTimeMillis();
+                return treeStatus(dynamicEngine);
+            }
+            
+            @Override
+            public boolean isClosed() {
+                return engines.get(instanceId) != slot;
+            }
+        };
+        return stream.open(source, Arrays.asList(instanceId, EXTERNAL_EVENTS + instanceId), cursor, eventCursor);
+    }
+    
+    private void recordExternal(String instanceId, MerkleTreeTransitionEvent event) {
+        eventStore.append(instanceId, event);
+        stream.signal(EXTERNAL_EVENTS + instanceId);
+    }
+    
+    /**
+     * Get recent external transitions (API-triggered), oldest first
      */
     public List<MerkleTreeTransitionEvent> getExternalTransitions() {
-        return new ArrayList<>(externalTransitionHistory);
+        return eventStore.recent();
+    }
+    
+    /**
+     * Keyset page of external transitions, newest first. Null filters match
+     * everything; time bounds are epoch millis [from, to). Pass
+     * "nextCursor" back as {@code before} for the next page.
+     */
+    public Map<String, Object> queryTransitions(String type, String instanceId,
+                                                long from, long to, long before, int limit) {
+        List<MerkleTreeTransitionEvent> events = eventStore.query(type, instanceId, from, to, before, limit);
+        Map<String, Object> page = new HashMap<>();
+        page.put("events", events.stream()
+            .map(this::externalEventToMap)
+            .collect(Collectors.toList()));
+        page.put("nextCursor", events.isEmpty() ? before : events.get(events.size() - 1).getSequence());
+        page.put("hasMore", events.size() >= limit);
+        return page;
+    }
+    
+    /**
+     * Number of external transitions matching the filters of
+     * {@link #queryTransitions}
+     */
+    public long countTransitions(String type, String instanceId, long from, long to) {
+        return eventStore.count(type, instanceId, from, to);
     }
 
     /**
@@ -288,8 +788,8 @@ public class DynamicMerkleTreeService {
         // Add autonomous
         all.addAll(getAutonomousTransitions());
         
-        // Add external
-        externalTransitionHistory.forEach(e -> all.add(externalEventToMap(e)));
+        // Add recent external
+        eventStore.recent().forEach(e -> all.add(externalEventToMap(e)));
         
         // Sort by timestamp
         all.sort((a, b) -> Long.compare(
@@ -301,46 +801,65 @@ public class DynamicMerkleTreeService {
     }
 
     /**
-     * Get transitions filtered by type (for API compatibility)
+     * Number of external transitions per type
+     */
+    public Map<String, Long> getTransitionCountsByType() {
+        return eventStore.countByType();
+    }
+
+    /**
+     * Get recent transitions of one type, oldest first (for API compatibility)
      */
     public List<MerkleTreeTransitionEvent> getTransitionsByType(String eventType) {
-        return externalTransitionHistory.stream()
-            .filter(e -> e.getEventType().equals(eventType))
-            .collect(Collectors.toList());
+        List<MerkleTreeTransitionEvent> events =
+            eventStore.query(eventType, null, 0, Long.MAX_VALUE, Long.MAX_VALUE, HISTORY_LIMIT);
+        Collections.reverse(events);
+        return events;
     }
 
     /**
-     * Get recent transitions (for API compatibility)
+     * Get the last {@code limit} transitions, oldest first (for API compatibility)
      */
     public List<MerkleTreeTransitionEvent> getRecentTransitions(int limit) {
-        int start = Math.max(0, externalTransitionHistory.size() - limit);
-        return new ArrayList<>(externalTransitionHistory.subList(start, externalTransitionHistory.size()));
+        List<MerkleTreeTransitionEvent> events =
+            eventStore.query(null, null, 0, Long.MAX_VALUE, Long.MAX_VALUE, limit);
+        Collections.reverse(events);
+        return events;
     }
 
     /**
-     * Shutdown the dynamic engine
+     * Shutdown all dynamic engines
      */
+    @PreDestroy
     public void shutdown() {
-        dynamicEngine.stop();
+        housekeeping.cancel();
+        if (checkpointing != null) {
+            checkpointing.cancel();
+        }
+        for (Map.Entry<String, EngineSlot> entry : engines.entrySet()) {
+            entry.getValue().engine.park();
+            saveCheckpoint(entry.getKey(), entry.getValue());
+            entry.getValue().engine.stop();
+        }
     }
 
     /**
      * Get audit trail
      */
     public Map<String, Object> getAuditTrail() {
-        List<Map<String, Object>> allTransitions = getAllTransitions();
+        List<Map<String, Object>> autonomous = getAutonomousTransitions();
         
         Map<String, Object> audit = new HashMap<>();
-        audit.put("totalTransitions", allTransitions.size());
         audit.put("recentTransitions", getRecentTransitions(50));
         
-        // Count by type
-        Map<String, Long> typeCounts = new HashMap<>();
-        for (Map<String, Object> t : allTransitions) {
+        // Count by type: external from the event store indexes, autonomous from the recent ring
+        Map<String, Long> typeCounts = new HashMap<>(eventStore.countByType());
+        for (Map<String, Object> t : autonomous) {
             String type = (String) t.get("type");
             typeCounts.put(type, typeCounts.getOrDefault(type, 0L) + 1);
         }
         audit.put("transitionCounts", typeCounts);
+        audit.put("totalTransitions", typeCounts.values().stream().mapToLong(Long::longValue).sum());
         
         // Current state
         audit.put("currentStatus", getTreeStatus());
@@ -349,10 +868,17 @@ public class DynamicMerkleTreeService {
     }
 
     /**
-     * Get real-time statistics
+     * {@link #getStats(String)} on the default tree
      */
     public Map<String, Object> getStats() {
-        return dynamicEngine.getStats();
+        return getStats(DEFAULT_TREE);
+    }
+
+    /**
+     * Get real-time statistics
+     */
+    public Map<String, Object> getStats(String instanceId) {
+        return engine(instanceId).getStats();
     }
 
     /**
@@ -361,6 +887,7 @@ public class DynamicMerkleTreeService {
     private Map<String, Object> transitionToMap(MerkleTreeDynamicEngine.DynamicTransition transition) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", transition.transitionId);
+        map.put("sequence", transition.sequence);
         map.put("type", "AUTONOMOUS_" + transition.toState.name());
         map.put("nodeId", transition.nodeId);
         map.put("from", transition.fromState.name());
@@ -377,6 +904,8 @@ public class DynamicMerkleTreeService {
     private Map<String, Object> externalEventToMap(MerkleTreeTransitionEvent event) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", event.getId());
+        map.put("sequence", event.getSequence());
+        map.put("instanceId", event.getInstanceId());
         map.put("type", event.getEventType());
         map.put("reason", event.getTriggerReason());
         map.put("timestamp", event.getTimestamp().toEpochMilli());
@@ -387,9 +916,9 @@ public class DynamicMerkleTreeService {
     }
 
     /**
-     * Get transition history for API compatibility
+     * Get recent transition history, oldest first (for API compatibility)
      */
     public List<MerkleTreeTransitionEvent> getTransitionHistory() {
-        return new ArrayList<>(externalTransitionHistory);
+        return eventStore.recent();
     }
 }
@@ -1,5 +1,7 @@
 package com.squid.core.service;
 
+import com.squid.core.crypto.Hex;
+
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Instant;
@@ -201,15 +203,7 @@ public class EncryptedDataCryptoService {
     private String calculateHash(byte[] data) throws Exception {
         MessageDigest md = MessageDigest.getInstance("SHA-256");
         md.update(data);
-        byte[] hash = md.digest();
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) hexString.append('0');
-            hexString.append(hex);
-        }
-        return hexString.toString();
+        return Hex.encode(md.digest());
     }
 
     /**
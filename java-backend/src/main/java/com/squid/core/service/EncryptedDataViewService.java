@@ -1,5 +1,6 @@
 package com.squid.core.service;
 
+import com.squid.core.crypto.Hex;
 import com.squid.core.model.AuditLogEntry;
 import org.springframework.stereotype.Service;
 
@@ -257,17 +258,7 @@ public class EncryptedDataViewService {
     private String generateHash(String content) throws NoSuchAlgorithmException {
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-        return bytesToHex(hash);
-    }
-
-    private String bytesToHex(byte[] hash) {
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) hexString.append('0');
-            hexString.append(hex);
-        }
-        return hexString.toString();
+        return Hex.encode(hash);
     }
 
     /**
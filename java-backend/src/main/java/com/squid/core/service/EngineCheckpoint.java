@@ -0,0 +1,197 @@
+package com.squid.core.service;
+
+import com.squid.core.service.MerkleTreeDynamicEngine.NodeState;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of a dynamic engine's tree.
+ *
+ * Nodes are kept level by level in the engine's index order, as parallel
+ * arrays, so links need not be stored: the parent of (h, i) is (h + 1, i / 2)
+ * and an odd last node pairs with itself. Hash arrays are shared with the
+ * engine, which replaces them on change instead of writing into them.
+ *
+ * File layout: magic, version, log cursor, created-at, level count, then per
+ * level the node count and per node: id, hash, state, previous state,
+ * integrity flag, last transition time, transition count, metadata. A
+ * CRC32C of everything before it closes the file.
+ */
+public final class EngineCheckpoint {
+
+    private static final int MAGIC = 0x53514443; // "SQDC"
+    private static final int VERSION = 1;
+    private static final NodeState[] STATES = NodeState.values();
+
+    final long logCursor;
+    final long createdAt;
+    final Level[] levels;
+
+    /**
+     * Nodes of one tree level as parallel arrays.
+     */
+    static final class Level {
+        final String[] ids;
+        final byte[][] hashes;
+        final byte[] states;
+        final byte[] previousStates;
+        final boolean[] integrityValid;
+        final long[] lastTransitionTimes;
+        final int[] transitionCounts;
+        final String[] metadata;
+
+        Level(int size) {
+            ids = new String[size];
+            hashes = new byte[size][];
+            states = new byte[size];
+            previousStates = new byte[size];
+            integrityValid = new boolean[size];
+            lastTransitionTimes = new long[size];
+            transitionCounts = new int[size];
+            metadata = new String[size];
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        NodeState state(int i) {
+            return STATES[states[i]];
+        }
+
+        NodeState previousState(int i) {
+            return STATES[previousStates[i]];
+        }
+    }
+
+    EngineCheckpoint(long logCursor, long createdAt, Level[] levels) {
+        this.logCursor = logCursor;
+        this.createdAt = createdAt;
+        this.levels = levels;
+    }
+
+    public long getLogCursor() {
+        return logCursor;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getNodeCount() {
+        int n = 0;
+        for (Level level : levels) {
+            n += level.size();
+        }
+        return n;
+    }
+
+    /**
+     * Write to a temp file next to {@code target} and rename it into place,
+     * so readers see either the previous checkpoint or this one.
+     */
+    public void writeTo(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(tmp)) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+                writeBody(out);
+                out.flush();
+                // checksum goes after the checked stream, straight to the file
+                file.write(ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array());
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Read and verify a checkpoint file.
+     *
+     * @throws IOException when the file is truncated, fails the checksum or
+     *         has an unknown format
+     */
+    public static EngineCheckpoint read(Path source) throws IOException {
+        byte[] raw = Files.readAllBytes(source);
+        if (raw.length < 2 * Integer.BYTES) {
+            throw new IOException("Truncated engine checkpoint: " + source);
+        }
+        int bodyLength = raw.length - Integer.BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(raw, 0, bodyLength);
+        if ((int) crc.getValue() != ByteBuffer.wrap(raw, bodyLength, Integer.BYTES).getInt()) {
+            throw new IOException("Engine checkpoint checksum mismatch: " + source);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 0, bodyLength))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unrecognized engine checkpoint format: " + source);
+            }
+            long logCursor = in.readLong();
+            long createdAt = in.readLong();
+            Level[] levels = new Level[in.readInt()];
+            for (int h = 0; h < levels.length; h++) {
+                Level level = new Level(in.readInt());
+                for (int i = 0; i < level.size(); i++) {
+                    level.ids[i] = in.readUTF();
+                    byte[] hash = new byte[in.readUnsignedByte()];
+                    in.readFully(hash);
+                    level.hashes[i] = hash;
+                    level.states[i] = readState(in);
+                    level.previousStates[i] = readState(in);
+                    level.integrityValid[i] = in.readBoolean();
+                    level.lastTransitionTimes[i] = in.readLong();
+                    level.transitionCounts[i] = in.readInt();
+                    level.metadata[i] = in.readUTF();
+                }
+                levels[h] = level;
+            }
+            return new EngineCheckpoint(logCursor, createdAt, levels);
+        }
+    }
+
+    private void writeBody(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(logCursor);
+        out.writeLong(createdAt);
+        out.writeInt(levels.length);
+        for (Level level : levels) {
+            out.writeInt(level.size());
+            for (int i = 0; i < level.size(); i++) {
+                out.writeUTF(level.ids[i]);
+                out.writeByte(level.hashes[i].length);
+                out.write(level.hashes[i]);
+                out.writeByte(level.states[i]);
+                out.writeByte(level.previousStates[i]);
+                out.writeBoolean(level.integrityValid[i]);
+                out.writeLong(level.lastTransitionTimes[i]);
+                out.writeInt(level.transitionCounts[i]);
+                out.writeUTF(level.metadata[i]);
+            }
+        }
+    }
+
+    private static byte readState(DataInputStream in) throws IOException {
+        int state = in.readUnsignedByte();
+        if (state >= STATES.length) {
+            throw new IOException("Corrupt engine checkpoint: node state " + state);
+        }
+        return (byte) state;
+    }
+}
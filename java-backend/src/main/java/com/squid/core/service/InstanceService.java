@@ -1,10 +1,8 @@
 package com.squid.core.service;
 
+import com.squid.core.crypto.Hash32;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -67,22 +65,15 @@ public class InstanceService {
         inst.dataOriginal = config.get("data") != null ? config.get("data").toString() : "";
 
         // Step 1: Generate seed_root via hash + PQC signature
-        byte[] dataBytes = inst.dataOriginal.getBytes(StandardCharsets.UTF_8);
-        byte[] dataHash = sha256(dataBytes);
-        inst.seedRoot = bytesToHex(dataHash);
-        inst.signature = pqcService.sign(dataHash);
+        inst.seedRoot = Hash32.sha256(inst.dataOriginal);
+        inst.signature = pqcService.sign(inst.seedRoot.toBytes());
 
         // Step 2: Generate Merkle leaves from seed
-        List<String> leaves = new ArrayList<>();
-        for (int i = 0; i < t; i++) {
-            byte[] leafData = sha256((inst.seedRoot + ":" + i).getBytes(StandardCharsets.UTF_8));
-            leaves.add(bytesToHex(leafData));
-        }
-        inst.leaves = leaves;
+        inst.leaves = deriveLeaves(inst.seedRoot, t);
         inst.ephemeralKeysCount = t;
 
         // Step 3: Compute Merkle root
-        inst.merkleRoot = computeMerkleRoot(leaves);
+        inst.merkleRoot = computeMerkleRoot(inst.leaves);
 
         // Log history
         inst.history.add(historyEntry("CREATED",
@@ -91,7 +82,7 @@ public class InstanceService {
         instances.put(id, inst);
 
         Map<String, Object> out = instanceToMap(inst);
-        out.put("seed_root", inst.seedRoot);
+        out.put("seed_root", inst.seedRoot.toHex());
         out.put("signature", inst.signature);
         return out;
     }
@@ -114,18 +105,18 @@ public class InstanceService {
         }
         inst.ephemeralKeysCount = inst.leaves.size();
 
-        String oldRoot = inst.merkleRoot;
+        Hash32 oldRoot = inst.merkleRoot;
         inst.merkleRoot = computeMerkleRoot(inst.leaves);
 
         inst.history.add(historyEntry("REMOVE_LEAVES",
-                "Removed " + removed + " leaves. Old root: " + oldRoot));
+                "Removed " + removed + " leaves. Old root: " + rootHex(oldRoot)));
 
         Map<String, Object> out = new LinkedHashMap<>();
         out.put("id", inst.id);
         out.put("removed_count", removed);
         out.put("new_leaf_count", inst.leaves.size());
-        out.put("old_merkle_root", oldRoot);
-        out.put("new_merkle_root", inst.merkleRoot);
+        out.put("old_merkle_root", rootHex(oldRoot));
+        out.put("new_merkle_root", rootHex(inst.merkleRoot));
         return out;
     }
 
@@ -135,30 +126,24 @@ public class InstanceService {
         SquidInstance inst = instances.get(id);
         if (inst == null) throw new IllegalArgumentException("Instance not found: " + id);
 
-        String oldRoot = inst.merkleRoot;
+        Hash32 oldRoot = inst.merkleRoot;
 
         // New seed from current time + old seed
-        byte[] newSeedBytes = sha256((inst.seedRoot + ":" + System.nanoTime()).getBytes(StandardCharsets.UTF_8));
-        inst.seedRoot = bytesToHex(newSeedBytes);
-        inst.signature = pqcService.sign(newSeedBytes);
+        inst.seedRoot = Hash32.sha256(String.valueOf(inst.seedRoot) + ":" + System.nanoTime());
+        inst.signature = pqcService.sign(inst.seedRoot.toBytes());
 
         // Regenerate all leaves
-        List<String> newLeaves = new ArrayList<>();
-        for (int i = 0; i < inst.leaves.size(); i++) {
-            byte[] leafData = sha256((inst.seedRoot + ":" + i).getBytes(StandardCharsets.UTF_8));
-            newLeaves.add(bytesToHex(leafData));
-        }
-        inst.leaves = newLeaves;
-        inst.merkleRoot = computeMerkleRoot(newLeaves);
+        inst.leaves = deriveLeaves(inst.seedRoot, inst.leaves.size());
+        inst.merkleRoot = computeMerkleRoot(inst.leaves);
 
         inst.history.add(historyEntry("REENCRYPT",
-                "Re-encrypted. Old root: " + oldRoot + " New root: " + inst.merkleRoot));
+                "Re-encrypted. Old root: " + rootHex(oldRoot) + " New root: " + rootHex(inst.merkleRoot)));
 
         Map<String, Object> out = new LinkedHashMap<>();
         out.put("id", inst.id);
-        out.put("old_merkle_root", oldRoot);
-        out.put("new_merkle_root", inst.merkleRoot);
-        out.put("new_seed_root", inst.seedRoot);
+        out.put("old_merkle_root", rootHex(oldRoot));
+        out.put("new_merkle_root", rootHex(inst.merkleRoot));
+        out.put("new_seed_root", inst.seedRoot.toHex());
         out.put("signature", inst.signature);
         out.put("leaf_count", inst.leaves.size());
         return out;
@@ -171,12 +156,11 @@ public class InstanceService {
         if (inst == null) throw new IllegalArgumentException("Instance not found: " + id);
 
         // Verify Merkle integrity
-        String currentRoot = computeMerkleRoot(inst.leaves);
-        boolean merkleValid = currentRoot.equals(inst.merkleRoot);
+        Hash32 currentRoot = computeMerkleRoot(inst.leaves);
+        boolean merkleValid = Objects.equals(currentRoot, inst.merkleRoot);
 
         // Verify signature
-        boolean signatureValid = pqcService.verify(inst.signature,
-                hexToBytes(inst.seedRoot));
+        boolean signatureValid = pqcService.verify(inst.signature, inst.seedRoot.toBytes());
 
         Map<String, Object> out = new LinkedHashMap<>();
         out.put("id", inst.id);
@@ -208,7 +192,7 @@ public class InstanceService {
         // Build full snapshot for export
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("instance", instanceToMap(inst));
-        payload.put("leaves", inst.leaves);
+        payload.put("leaves", leavesHex(inst.leaves));
         payload.put("history", inst.history);
         payload.put("ai_logs", inst.aiLogs);
         payload.put("config", Map.of("B", inst.configB, "M", inst.configM, "T", inst.configT));
@@ -270,12 +254,21 @@ public class InstanceService {
         out.put("instance_id", inst.id);
         out.put("instance_name", inst.name);
         out.put("total", totalLeaves);
-        out.put("merkle_root", inst.merkleRoot);
+        out.put("merkle_root", rootHex(inst.merkleRoot));
         out.put("config", Map.of("B", inst.configB, "M", inst.configM, "T", inst.configT));
         out.put("leaves", leafList);
         return out;
     }
 
+    /**
+     * Returns the leaf hashes of an instance as hex, in tree order.
+     */
+    public List<String> getLeafHexes(String id) {
+        SquidInstance inst = instances.get(id);
+        if (inst == null) throw new IllegalArgumentException("Instance not found: " + id);
+        return leavesHex(inst.leaves);
+    }
+
     /**
      * Returns detailed info for a single leaf including related history.
      */
@@ -289,7 +282,7 @@ public class InstanceService {
         Map<String, Object> leaf = buildLeafSummary(inst, index, treeDepth);
 
         // Full hash
-        leaf.put("hash_full", inst.leaves.get(index));
+        leaf.put("hash_full", inst.leaves.get(index).toHex());
 
         // Merkle proof path (siblings from leaf to root)
         List<String> proofPath = computeMerkleProof(inst.leaves, index);
@@ -308,7 +301,7 @@ public class InstanceService {
         leaf.put("history", related);
         leaf.put("instance_id", inst.id);
         leaf.put("instance_name", inst.name);
-        leaf.put("merkle_root", inst.merkleRoot);
+        leaf.put("merkle_root", rootHex(inst.merkleRoot));
         return leaf;
     }
 
@@ -335,8 +328,8 @@ public class InstanceService {
      * Builds a summary map for a single leaf at the given index.
      */
     private Map<String, Object> buildLeafSummary(SquidInstance inst, int index, int treeDepth) {
-        String hash = inst.leaves.get(index);
-        byte[] hashBytes = hexToBytes(hash);
+        Hash32 hash = inst.leaves.get(index);
+        byte[] hashBytes = hash.toBytes();
 
         // Depth: position in tree based on B and index
         int depth = Math.min(treeDepth, (int) (Math.log(index + 1) / Math.log(inst.configB)) + 1);
@@ -355,7 +348,7 @@ public class InstanceService {
 
         Map<String, Object> m = new LinkedHashMap<>();
         m.put("index", index);
-        m.put("hash", hash.substring(0, Math.min(24, hash.length())));
+        m.put("hash", hash.toShortHex(24));
         m.put("depth", depth);
         m.put("state", state);
         m.put("entropy", Math.round(entropy * 100.0) / 100.0);
@@ -425,26 +418,20 @@ public class InstanceService {
     /**
      * Computes a Merkle proof (sibling hashes from leaf to root).
      */
-    private List<String> computeMerkleProof(List<String> leaves, int leafIndex) {
+    private List<String> computeMerkleProof(List<Hash32> leaves, int leafIndex) {
         List<String> proof = new ArrayList<>();
-        List<byte[]> current = new ArrayList<>();
-        for (String leaf : leaves) {
-            current.add(sha256(leaf.getBytes(StandardCharsets.UTF_8)));
-        }
+        List<Hash32> current = leafNodes(leaves);
         int idx = leafIndex;
         while (current.size() > 1) {
-            List<byte[]> next = new ArrayList<>();
+            List<Hash32> next = new ArrayList<>((current.size() + 1) / 2);
             for (int i = 0; i < current.size(); i += 2) {
                 if (i + 1 < current.size()) {
                     // Record sibling
                     if (i == idx || i + 1 == idx) {
                         int sibling = (i == idx) ? i + 1 : i;
-                        proof.add(bytesToHex(current.get(sibling)));
+                        proof.add(current.get(sibling).toHex());
                     }
-                    byte[] combined = new byte[64];
-                    System.arraycopy(current.get(i), 0, combined, 0, 32);
-                    System.arraycopy(current.get(i + 1), 0, combined, 32, 32);
-                    next.add(sha256(combined));
+                    next.add(Hash32.combine(current.get(i), current.get(i + 1)));
                 } else {
                     next.add(current.get(i));
                 }
@@ -461,7 +448,7 @@ public class InstanceService {
         m.put("name", s.name);
         m.put("status", s.status);
         m.put("leaf_count", s.leaves != null ? s.leaves.size() : s.ephemeralKeysCount);
-        m.put("merkle_root", s.merkleRoot != null ? s.merkleRoot : "N/A");
+        m.put("merkle_root", s.merkleRoot != null ? s.merkleRoot.toHex() : "N/A");
         m.put("created_at", s.createdAt);
         m.put("config_B", s.configB);
         m.put("config_M", s.configM);
@@ -477,51 +464,58 @@ public class InstanceService {
         return entry;
     }
 
-    private String computeMerkleRoot(List<String> leaves) {
-        if (leaves == null || leaves.isEmpty()) return "empty";
-        List<byte[]> current = new ArrayList<>();
-        for (String leaf : leaves) {
-            current.add(sha256(leaf.getBytes(StandardCharsets.UTF_8)));
+    /**
+     * Leaf i is SHA-256 of (seed hex + ":" + i).
+     */
+    private List<Hash32> deriveLeaves(Hash32 seedRoot, int count) {
+        String prefix = seedRoot.toHex() + ":";
+        List<Hash32> leaves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            leaves.add(Hash32.sha256(prefix + i));
         }
+        return leaves;
+    }
+
+    /**
+     * Merkle root over the SHA-256 of each leaf's 32 bytes; parents hash the
+     * binary concatenation of their children and an odd node is promoted
+     * unchanged. Null for an empty leaf set.
+     */
+    public Hash32 computeMerkleRoot(List<Hash32> leaves) {
+        if (leaves == null || leaves.isEmpty()) return null;
+        List<Hash32> current = leafNodes(leaves);
         while (current.size() > 1) {
-            List<byte[]> next = new ArrayList<>();
+            List<Hash32> next = new ArrayList<>((current.size() + 1) / 2);
             for (int i = 0; i < current.size(); i += 2) {
                 if (i + 1 < current.size()) {
-                    byte[] combined = new byte[64];
-                    System.arraycopy(current.get(i), 0, combined, 0, 32);
-                    System.arraycopy(current.get(i + 1), 0, combined, 32, 32);
-                    next.add(sha256(combined));
+                    next.add(Hash32.combine(current.get(i), current.get(i + 1)));
                 } else {
                     next.add(current.get(i));
                 }
             }
             current = next;
         }
-        return bytesToHex(current.get(0));
+        return current.get(0);
     }
 
-    private byte[] sha256(byte[] data) {
-        try {
-            return MessageDigest.getInstance("SHA-256").digest(data);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+    private static List<Hash32> leafNodes(List<Hash32> leaves) {
+        List<Hash32> nodes = new ArrayList<>(leaves.size());
+        for (Hash32 leaf : leaves) {
+            nodes.add(Hash32.sha256(leaf.toBytes()));
         }
+        return nodes;
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) sb.append(String.format("%02x", b));
-        return sb.toString();
+    private static String rootHex(Hash32 root) {
+        return root != null ? root.toHex() : "empty";
     }
 
-    private byte[] hexToBytes(String hex) {
-        int len = hex.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
-                    + Character.digit(hex.charAt(i + 1), 16));
+    private static List<String> leavesHex(List<Hash32> leaves) {
+        List<String> out = new ArrayList<>(leaves.size());
+        for (Hash32 leaf : leaves) {
+            out.add(leaf.toHex());
         }
-        return data;
+        return out;
     }
 
     private int getInt(Map<String, Object> map, String key, int def) {
@@ -547,11 +541,11 @@ public class InstanceService {
         public int configB = 2;
         public int configM = 8;
         public int configT = 256;
-        public String seedRoot;
-        public String merkleRoot;
+        public Hash32 seedRoot;
+        public Hash32 merkleRoot;
         public String signature;
         public String dataOriginal = "";
-        public List<String> leaves = new ArrayList<>();
+        public List<Hash32> leaves = new ArrayList<>();
         public List<Map<String, Object>> history = new ArrayList<>();
         public List<Map<String, Object>> aiLogs = new ArrayList<>();
     }
@@ -1,6 +1,7 @@
 package com.squid.core.service;
 
 import com.squid.core.crypto.HKDFUtil;
+import com.squid.core.crypto.Hex;
 import com.squid.core.crypto.MerkleTree;
 import com.squid.core.fingerprint.HardwareFingerprintService;
 import org.springframework.stereotype.Service;
@@ -39,6 +40,7 @@ public class IterativeSeedEngine {
         byte[] currentSeed = Arrays.copyOf(initialSeed, initialSeed.length);
 
         List<LevelRecord> levels = new ArrayList<>();
+        List<String> iterativeLeaves = new ArrayList<>();
 
         for (int level = 0; level < depth; level++) {
             byte[] l1 = sha3Split(currentSeed, (byte) 0x01);
@@ -58,12 +60,12 @@ public class IterativeSeedEngine {
                 throw new IllegalStateException("PQC Sign returned null. Check PQCService/liboqs status.");
             }
 
-            String ctHash1 = bytesToHex(sha256(kem1.getCiphertext()));
-            String ctHash2 = bytesToHex(sha256(kem2.getCiphertext()));
+            String ctHash1 = Hex.encode(sha256(kem1.getCiphertext()));
+            String ctHash2 = Hex.encode(sha256(kem2.getCiphertext()));
 
             List<byte[]> merkleLeaves = Arrays.asList(l1, l2);
             MerkleTree mt = new MerkleTree(merkleLeaves);
-            String merkleRootHex = bytesToHex(mt.getRoot());
+            String merkleRootHex = Hex.encode(mt.getRoot());
             recentIterativeRoots.addLast(merkleRootHex);
             while (recentIterativeRoots.size() > 64) {
                 recentIterativeRoots.removeFirst();
@@ -75,8 +77,8 @@ public class IterativeSeedEngine {
 
             LevelRecord rec = new LevelRecord();
             rec.level = level;
-            rec.l1Hash = bytesToHex(sha256(l1));
-            rec.l2Hash = bytesToHex(sha256(l2));
+            rec.l1Hash = Hex.encode(sha256(l1));
+            rec.l2Hash = Hex.encode(sha256(l2));
             rec.ciphertextHashL1 = ctHash1;
             rec.ciphertextHashL2 = ctHash2;
             rec.signatureL1 = sig1;
@@ -85,17 +87,22 @@ public class IterativeSeedEngine {
             rec.timestamp = Instant.now().toString();
             levels.add(rec);
 
+            iterativeLeaves.add("iterative_root_" + merkleRootHex);
             try {
-                dynamicService.addLeaves(java.util.Collections.singletonList("iterative_root_" + merkleRootHex), "iterative_seed_level_" + level);
+                fingerprintService.latest(com.squid.core.fingerprint.FingerprintMode.FULL);
             } catch (Exception ignored) {}
+            aiState.consumeEntropy(0.5);
+        }
+
+        // one append (one rehash, one event) for all levels
+        if (!iterativeLeaves.isEmpty()) {
             try {
-                fingerprintService.capture(com.squid.core.fingerprint.FingerprintMode.FULL);
+                dynamicService.addLeaves(iterativeLeaves, "iterative_seed_levels_0_" + (depth - 1));
             } catch (Exception ignored) {}
-            aiState.consumeEntropy(0.5);
         }
 
         IterationResult result = new IterationResult();
-        result.finalSeedHex = bytesToHex(currentSeed);
+        result.finalSeedHex = Hex.encode(currentSeed);
         result.depth = depth;
         result.levels = levels;
         result.createdAt = Instant.now().toString();
@@ -141,14 +148,6 @@ public class IterativeSeedEngine {
         return out;
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
-    }
-
     public static class IterationResult {
         public String finalSeedHex;
         public int depth;
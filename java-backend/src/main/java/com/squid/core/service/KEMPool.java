@@ -0,0 +1,135 @@
+package com.squid.core.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of pre-computed KEM encapsulations.
+ *
+ * Encapsulation output does not depend on the caller's payload, so a
+ * low-priority daemon thread keeps the pool topped up and foreground
+ * callers just dequeue. Every result is handed out at most once; when the
+ * pool is empty the caller falls back to a synchronous encapsulation.
+ */
+class KEMPool {
+
+    private final BlockingQueue<PQCService.KEMResult> queue;
+    private final Callable<PQCService.KEMResult> encapsulator;
+    private final int capacity;
+    private volatile Thread refillThread;
+    private boolean stopped;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong refillErrors = new AtomicLong();
+    private final AtomicLong refillNanos = new AtomicLong();
+
+    // Refill rate over roughly one-second windows (written by the refill thread only)
+    private long windowStartNanos = System.nanoTime();
+    private long windowRefills = 0;
+    private volatile double refillRatePerSec = 0.0;
+
+    KEMPool(int capacity, Callable<PQCService.KEMResult> encapsulator) {
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.encapsulator = encapsulator;
+    }
+
+    /**
+     * Start the refill thread once key material is available.
+     */
+    synchronized void start() {
+        if (refillThread != null || stopped) {
+            return;
+        }
+        Thread t = new Thread(this::refillLoop, "pqc-kem-pool");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        refillThread = t;
+        t.start();
+    }
+
+    /**
+     * Stop the refill thread; a later {@link #start()} is a no-op. Callers
+     * keep working, every encapsulation is then computed synchronously
+     * once the pool has drained.
+     */
+    synchronized void stop() {
+        stopped = true;
+        if (refillThread != null) {
+            refillThread.interrupt();
+        }
+    }
+
+    /**
+     * Take a pre-computed encapsulation, or compute one synchronously when
+     * the pool has run dry.
+     */
+    PQCService.KEMResult take() throws Exception {
+        PQCService.KEMResult pooled = queue.poll();
+        if (pooled != null) {
+            hits.incrementAndGet();
+            return pooled;
+        }
+        misses.incrementAndGet();
+        return encapsulator.call();
+    }
+
+    private void refillLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long start = System.nanoTime();
+                PQCService.KEMResult next = encapsulator.call();
+                refillNanos.addAndGet(System.nanoTime() - start);
+                // Blocks while the pool is full, so an idle pool costs no CPU
+                queue.put(next);
+                refills.incrementAndGet();
+                updateRate();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                refillErrors.incrementAndGet();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(500);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void updateRate() {
+        windowRefills++;
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            refillRatePerSec = windowRefills * 1_000_000_000.0 / elapsed;
+            windowRefills = 0;
+            windowStartNanos = now;
+        }
+    }
+
+    Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long refillCount = refills.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", true);
+        stats.put("capacity", capacity);
+        stats.put("depth", queue.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hit_ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("refills", refillCount);
+        stats.put("refill_errors", refillErrors.get());
+        stats.put("refill_rate_per_sec", refillRatePerSec);
+        stats.put("avg_refill_us", refillCount == 0 ? 0.0 : refillNanos.get() / 1_000.0 / refillCount);
+        return stats;
+    }
+}
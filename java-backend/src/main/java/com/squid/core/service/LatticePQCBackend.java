@@ -0,0 +1,191 @@
+package com.squid.core.service;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.SecretWithEncapsulation;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumKeyGenerationParameters;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumKeyPairGenerator;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumParameters;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumPrivateKeyParameters;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumPublicKeyParameters;
+import org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumSigner;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKEMExtractor;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKEMGenerator;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKeyGenerationParameters;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberKeyPairGenerator;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberParameters;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberPrivateKeyParameters;
+import org.bouncycastle.pqc.crypto.crystals.kyber.KyberPublicKeyParameters;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Real lattice-based primitives from the BouncyCastle PQC packages.
+ *
+ * - ML-DSA role: CRYSTALS-Dilithium (DILITHIUM2/3/5)
+ * - ML-KEM role: CRYSTALS-Kyber (KYBER512/768/1024)
+ *
+ * Parameter sets follow the pqc.signature-algorithm / pqc.kem-algorithm
+ * entries in application.yml.
+ */
+public class LatticePQCBackend implements PQCBackend {
+
+    public static final String NAME = "lattice";
+
+    private final SecureRandom random;
+    private final KyberParameters kyberParameters;
+    private final DilithiumParameters dilithiumParameters;
+
+    private volatile KyberPublicKeyParameters kyberPublic;
+    private volatile KyberPrivateKeyParameters kyberPrivate;
+    private volatile DilithiumPublicKeyParameters dilithiumPublic;
+    private volatile DilithiumPrivateKeyParameters dilithiumPrivate;
+
+    public LatticePQCBackend(SecureRandom random, String kemAlgorithm, String signatureAlgorithm) {
+        this.random = random;
+        this.kyberParameters = resolveKyber(kemAlgorithm);
+        this.dilithiumParameters = resolveDilithium(signatureAlgorithm);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isPostQuantum() {
+        return true;
+    }
+
+    @Override
+    public void generateKeys() {
+        DilithiumKeyPairGenerator dilithiumGen = new DilithiumKeyPairGenerator();
+        dilithiumGen.init(new DilithiumKeyGenerationParameters(random, dilithiumParameters));
+        AsymmetricCipherKeyPair dilithiumPair = dilithiumGen.generateKeyPair();
+        this.dilithiumPublic = (DilithiumPublicKeyParameters) dilithiumPair.getPublic();
+        this.dilithiumPrivate = (DilithiumPrivateKeyParameters) dilithiumPair.getPrivate();
+
+        KyberKeyPairGenerator kyberGen = new KyberKeyPairGenerator();
+        kyberGen.init(new KyberKeyGenerationParameters(random, kyberParameters));
+        AsymmetricCipherKeyPair kyberPair = kyberGen.generateKeyPair();
+        this.kyberPublic = (KyberPublicKeyParameters) kyberPair.getPublic();
+        this.kyberPrivate = (KyberPrivateKeyParameters) kyberPair.getPrivate();
+    }
+
+    @Override
+    public byte[] sign(byte[] data) {
+        // DilithiumSigner keeps per-call state, so a fresh instance is used per operation
+        DilithiumSigner signer = new DilithiumSigner();
+        signer.init(true, new ParametersWithRandom(dilithiumPrivate, random));
+        return signer.generateSignature(data);
+    }
+
+    @Override
+    public boolean verify(byte[] signature, byte[] data) {
+        DilithiumSigner verifier = new DilithiumSigner();
+        verifier.init(false, dilithiumPublic);
+        return verifier.verifySignature(data, signature);
+    }
+
+    @Override
+    public PQCService.KEMResult encapsulate() throws Exception {
+        KyberKEMGenerator generator = new KyberKEMGenerator(random);
+        SecretWithEncapsulation swe = generator.generateEncapsulated(kyberPublic);
+        try {
+            return new PQCService.KEMResult(swe.getEncapsulation(), swe.getSecret());
+        } finally {
+            swe.destroy();
+        }
+    }
+
+    @Override
+    public byte[] decapsulate(byte[] ciphertext) {
+        KyberKEMExtractor extractor = new KyberKEMExtractor(kyberPrivate);
+        if (ciphertext == null || ciphertext.length != extractor.getEncapsulationLength()) {
+            throw new IllegalArgumentException("Invalid Kyber encapsulation length");
+        }
+        return extractor.extractSecret(ciphertext);
+    }
+
+    @Override
+    public byte[] getSignaturePublicKey() {
+        return dilithiumPublic.getEncoded();
+    }
+
+    @Override
+    public byte[] getKemPublicKey() {
+        return kyberPublic.getEncoded();
+    }
+
+    @Override
+    public String getParameterSetId() {
+        return kyberParameters.getName() + "/" + dilithiumParameters.getName();
+    }
+
+    @Override
+    public Map<String, byte[]> exportKeyMaterial() {
+        Map<String, byte[]> out = new LinkedHashMap<>();
+        out.put("sig.private", dilithiumPrivate.getEncoded());
+        out.put("sig.public", dilithiumPublic.getEncoded());
+        out.put("kem.private", kyberPrivate.getEncoded());
+        out.put("kem.public", kyberPublic.getEncoded());
+        return out;
+    }
+
+    @Override
+    public void importKeyMaterial(Map<String, byte[]> material) {
+        DilithiumPublicKeyParameters sigPublic =
+                new DilithiumPublicKeyParameters(dilithiumParameters, material.get("sig.public"));
+        DilithiumPrivateKeyParameters sigPrivate =
+                new DilithiumPrivateKeyParameters(dilithiumParameters, material.get("sig.private"), sigPublic);
+        KyberPublicKeyParameters kemPublic =
+                new KyberPublicKeyParameters(kyberParameters, material.get("kem.public"));
+        KyberPrivateKeyParameters kemPrivate =
+                new KyberPrivateKeyParameters(kyberParameters, material.get("kem.private"));
+        this.dilithiumPublic = sigPublic;
+        this.dilithiumPrivate = sigPrivate;
+        this.kyberPublic = kemPublic;
+        this.kyberPrivate = kemPrivate;
+    }
+
+    static KyberParameters resolveKyber(String name) {
+        switch (normalize(name)) {
+            case "KYBER512":
+            case "MLKEM512":
+                return KyberParameters.kyber512;
+            case "KYBER1024":
+            case "MLKEM1024":
+                return KyberParameters.kyber1024;
+            case "KYBER768":
+            case "MLKEM768":
+            case "":
+                return KyberParameters.kyber768;
+            default:
+                throw new IllegalArgumentException("Unsupported KEM algorithm: " + name);
+        }
+    }
+
+    static DilithiumParameters resolveDilithium(String name) {
+        switch (normalize(name)) {
+            case "DILITHIUM2":
+            case "MLDSA44":
+                return DilithiumParameters.dilithium2;
+            case "DILITHIUM5":
+            case "MLDSA87":
+                return DilithiumParameters.dilithium5;
+            case "DILITHIUM3":
+            case "MLDSA65":
+            case "":
+                return DilithiumParameters.dilithium3;
+            default:
+                throw new IllegalArgumentException("Unsupported signature algorithm: " + name);
+        }
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.replace("-", "").replace("_", "").toUpperCase(Locale.ROOT);
+    }
+}
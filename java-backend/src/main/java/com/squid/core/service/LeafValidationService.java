@@ -20,7 +20,21 @@ public class LeafValidationService {
     }
 
     public boolean validateContext(byte[] mixedHash) {
-        FingerprintSnapshot snap = fingerprintService.capture(FingerprintMode.FULL);
+        return validateContext(mixedHash, false);
+    }
+
+    /**
+     * @param forceFresh measure the fingerprint now instead of using the
+     *                   background snapshot (high-assurance callers); fails
+     *                   when a probe was skipped for the cost budget
+     */
+    public boolean validateContext(byte[] mixedHash, boolean forceFresh) {
+        FingerprintSnapshot snap = forceFresh
+                ? fingerprintService.capture(FingerprintMode.FULL)
+                : fingerprintService.latest(FingerprintMode.FULL);
+        if (forceFresh && !snap.isComplete()) {
+            return false;
+        }
         double score = snap.getConfidenceScore();
         long hwSeed = asm.getHardwareSeed();
         byte[] tag = asm.customHashMix(mixedHash != null ? mixedHash : new byte[0], hwSeed);
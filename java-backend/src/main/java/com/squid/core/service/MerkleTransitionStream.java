@@ -0,0 +1,225 @@
+package com.squid.core.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-sent event feed of Merkle transitions.
+ *
+ * Publishers only signal that something was appended; each subscriber then
+ * drains the backing log from its own cursor. A burst of appends within
+ * one coalescing window becomes one wake-up and one batch per event type,
+ * a client can resume from any cursor the log still holds, and a slow
+ * client never makes the server queue records: its cursor just lags. A
+ * cursor more than {@code maxLag} records behind skips ahead (drop-oldest)
+ * and the client gets a "dropped" event with the number skipped.
+ *
+ * Event ids are "{transitionCursor}:{eventCursor}", so a reconnecting
+ * EventSource resumes from Last-Event-ID. A stream completes once its
+ * source reports it is closed.
+ */
+@Component
+public class MerkleTransitionStream {
+
+    /**
+     * Log positions and records a stream reads from.
+     */
+    public interface Source {
+        /** Next transition sequence number. */
+        long transitionCursor();
+
+        /** Up to {@code limit} transitions from {@code cursor}, each with a "sequence". */
+        List<Map<String, Object>> transitions(long cursor, int limit);
+
+        /** Next external event sequence number. */
+        long eventCursor();
+
+        /** Up to {@code limit} external events from {@code cursor}, each with a "sequence". */
+        List<Map<String, Object>> events(long cursor, int limit);
+
+        /** Current tree status. */
+        Map<String, Object> status();
+
+        /** True once the tree behind this source is gone; the stream then completes. */
+        default boolean isClosed() {
+            return false;
+        }
+    }
+
+    private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+    private final Map<String, Sinks.Many<Boolean>> wakeups = new ConcurrentHashMap<>();
+    private final Duration coalesceWindow;
+    private final int maxBatch;
+    private final long maxLag;
+
+    @Autowired
+    public MerkleTransitionStream(@Value("${squid.dynamic.stream.coalesce-ms:250}") long coalesceMs,
+                                  @Value("${squid.dynamic.stream.max-batch:256}") int maxBatch,
+                                  @Value("${squid.dynamic.stream.max-lag:4096}") long maxLag) {
+        this.coalesceWindow = Duration.ofMillis(Math.max(1L, coalesceMs));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxLag = Math.max(this.maxBatch, maxLag);
+    }
+
+    /**
+     * Tell subscribers of {@code key} that new records were appended. Costs
+     * a map lookup when nobody is listening.
+     */
+    public void signal(String key) {
+        Sinks.Many<Boolean> sink = wakeups.get(key);
+        if (sink != null && sink.currentSubscriberCount() > 0) {
+            // appends of different trees and API threads may race
+            synchronized (sink) {
+                sink.tryEmitNext(Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Drop the wake-up channel of a closed tree.
+     */
+    public void forget(String key) {
+        Sinks.Many<Boolean> sink = wakeups.remove(key);
+        if (sink != null) {
+            synchronized (sink) {
+                sink.tryEmitComplete();
+            }
+        }
+    }
+
+    /**
+     * Stream of {@code source}, woken by signals on {@code keys}. A negative
+     * cursor means "from now". A key whose channel is forgotten wakes the
+     * stream one last time, so a closed source is noticed right away.
+     */
+    public Flux<ServerSentEvent<Object>> open(Source source, List<String> keys,
+                                              long transitionCursor, long eventCursor) {
+        return Flux.defer(() -> {
+            Position pos = new Position(
+                transitionCursor < 0 ? source.transitionCursor() : transitionCursor,
+                eventCursor < 0 ? source.eventCursor() : eventCursor);
+
+            Sinks.One<Boolean> closed = Sinks.one();
+            List<Flux<Boolean>> signals = new ArrayList<>();
+            for (String key : keys) {
+                signals.add(channel(key).asFlux().concatWith(Mono.just(Boolean.TRUE)));
+            }
+            Flux<ServerSentEvent<Object>> updates = Flux.merge(signals)
+                .onBackpressureLatest()
+                .sample(coalesceWindow)
+                .startWith(Boolean.TRUE) // replay from the requested cursor right away
+                .concatMap(wake -> drain(source, pos, closed), 1);
+
+            Flux<ServerSentEvent<Object>> heartbeats = Flux.interval(HEARTBEAT)
+                .onBackpressureDrop()
+                .map(i -> ServerSentEvent.builder().comment("keepalive").build());
+
+            return Flux.merge(updates, heartbeats).takeUntilOther(closed.asMono());
+        });
+    }
+
+    /**
+     * Parse "{transitionCursor}:{eventCursor}" from Last-Event-ID; returns
+     * null when absent or malformed.
+     */
+    public static long[] parseEventId(String lastEventId) {
+        if (lastEventId == null) return null;
+        int colon = lastEventId.indexOf(':');
+        if (colon < 0) return null;
+        try {
+            return new long[] {
+                Long.parseLong(lastEventId.substring(0, colon)),
+                Long.parseLong(lastEventId.substring(colon + 1))
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Sinks.Many<Boolean> channel(String key) {
+        return wakeups.computeIfAbsent(key, k -> Sinks.many().multicast().directBestEffort());
+    }
+
+    /**
+     * Everything appended since the subscriber's cursors, read lazily as the
+     * client accepts it; then the status if the root changed. Signals
+     * {@code closed} instead when the source is closed.
+     */
+    private Flux<ServerSentEvent<Object>> drain(Source source, Position pos, Sinks.One<Boolean> closed) {
+        return Flux.generate(sink -> {
+            if (source.isClosed()) {
+                closed.tryEmitValue(Boolean.TRUE);
+                sink.complete();
+                return;
+            }
+            long head = source.transitionCursor();
+            if (head - pos.transitions > maxLag) {
+                long skipped = head - maxLag - pos.transitions;
+                pos.transitions = head - maxLag;
+                sink.next(event("dropped", pos, Map.of("transitions", skipped)));
+                return;
+            }
+            List<Map<String, Object>> batch = source.transitions(pos.transitions, maxBatch);
+            if (!batch.isEmpty()) {
+                pos.transitions = ((Number) batch.get(batch.size() - 1).get("sequence")).longValue() + 1;
+                sink.next(event("transitions", pos, batch));
+                return;
+            }
+
+            long eventHead = source.eventCursor();
+            if (pos.events < eventHead) {
+                List<Map<String, Object>> events = source.events(pos.events, maxBatch);
+                if (!events.isEmpty()) {
+                    pos.events = ((Number) events.get(events.size() - 1).get("sequence")).longValue() + 1;
+                    sink.next(event("events", pos, events));
+                    return;
+                }
+                // a filtered source had nothing for this stream below the head
+                pos.events = eventHead;
+            }
+
+            Map<String, Object> status = source.status();
+            Object root = status.get("rootHash");
+            if (!Objects.equals(root, pos.lastRoot)) {
+                pos.lastRoot = root;
+                sink.next(event("status", pos, status));
+                return;
+            }
+            sink.complete();
+        });
+    }
+
+    private static ServerSentEvent<Object> event(String name, Position pos, Object data) {
+        return ServerSentEvent.builder(data)
+            .event(name)
+            .id(pos.transitions + ":" + pos.events)
+            .build();
+    }
+
+    /**
+     * Per-subscriber cursors; drains run one at a time.
+     */
+    private static final class Position {
+        long transitions;
+        long events;
+        Object lastRoot;
+
+        Position(long transitions, long events) {
+            this.transitions = transitions;
+            this.events = events;
+        }
+    }
+}
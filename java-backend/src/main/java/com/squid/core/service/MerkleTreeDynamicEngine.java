@@ -1,10 +1,14 @@
 package com.squid.core.service;
 
+import com.squid.core.crypto.Hex;
+
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 /**
  * Autonomous Merkle Tree Dynamic Engine
@@ -44,6 +48,11 @@ public class MerkleTreeDynamicEngine {
         public long lastTransitionTime;
         public int transitionCount;
         public String metadata;
+        // Position in the level arrays: level 0 holds the leaves in insertion order
+        public int level;
+        public int index;
+        // Slot in the member array of this node's state set
+        int stateSlot;
         
         public TreeNode(String nodeId, byte[] dataHash, NodeState state) {
             this.nodeId = nodeId;
@@ -72,9 +81,15 @@ public class MerkleTreeDynamicEngine {
         public byte[] previousHash;
         public byte[] newHash;
         public List<String> affectedNodeIds;
+        // Position in the transition log, assigned on append
+        public long sequence;
         
         public DynamicTransition(String nodeId, NodeState from, NodeState to, String reason) {
-            this.transitionId = UUID.randomUUID().toString();
+            this(UUID.randomUUID().toString(), nodeId, from, to, reason);
+        }
+        
+        DynamicTransition(String transitionId, String nodeId, NodeState from, NodeState to, String reason) {
+            this.transitionId = transitionId;
             this.nodeId = nodeId;
             this.fromState = from;
             this.toState = to;
@@ -84,129 +99,412 @@ public class MerkleTreeDynamicEngine {
         }
     }
     
+    /**
+     * Nodes in one state, kept in an array so a uniformly random member is
+     * O(1). Each node remembers its slot; removal moves the last member into
+     * the freed slot. Guarded by treeLock.
+     */
+    private static final class StateSet {
+        private final List<TreeNode> members = new ArrayList<>();
+        
+        void add(TreeNode node) {
+            node.stateSlot = members.size();
+            members.add(node);
+        }
+        
+        void remove(TreeNode node) {
+            TreeNode last = members.remove(members.size() - 1);
+            if (last != node) {
+                members.set(node.stateSlot, last);
+                last.stateSlot = node.stateSlot;
+            }
+        }
+        
+        TreeNode get(int slot) {
+            return members.get(slot);
+        }
+        
+        int size() {
+            return members.size();
+        }
+        
+        void clear() {
+            members.clear();
+        }
+    }
+    
+    // States a node can be picked from by the autonomous cycle
+    private static final NodeState[] CANDIDATE_STATES = {
+        NodeState.VALID, NodeState.DECOY, NodeState.COMPROMISED
+    };
+    private static final int INTEGRITY_FAILURE_PERCENT = 5;
+    private static final int INTEGRITY_RECOVERY_PERCENT = 30;
+    // Batches at least this large are hashed in parallel
+    private static final int PARALLEL_HASH_MIN = 512;
+    // Transitions kept in memory when no log is supplied
+    static final int DEFAULT_TRANSITION_RING = 4096;
+    
     private final Map<String, TreeNode> nodes = new ConcurrentHashMap<>();
-    private final List<DynamicTransition> transitionLog = new CopyOnWriteArrayList<>();
-    private byte[] rootHash;
-    private String rootNodeId;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final TransitionLog transitionLog;
+    // Per-state membership for sampling, plus counts readers can use without
+    // taking treeLock
+    private final Map<NodeState, StateSet> stateSets = new EnumMap<>(NodeState.class);
+    private final Map<NodeState, LongAdder> stateCounts = new EnumMap<>(NodeState.class);
+    private volatile byte[] rootHash;
+    private volatile String rootNodeId;
+    
+    // levels.get(0) are the leaves in insertion order, the last level holds the root.
+    // Structure and dirty set are guarded by treeLock.
+    private final List<List<TreeNode>> levels = new ArrayList<>();
+    private final Object treeLock = new Object();
+    private int[] dirtyLeaves = new int[16];
+    private int dirtyCount = 0;
+    private final DynamicEngineScheduler scheduler;
+    private DynamicEngineScheduler.Task transitionTask;
+    private DynamicEngineScheduler.Task integrityTask;
     private volatile boolean isRunning = false;
-    private final Random random = new Random();
+    private volatile Consumer<DynamicTransition> transitionListener;
+    private volatile BackgroundLoadController loadController;
+    private final Random random;
+    // simulation time in millis; null = wall clock
+    private final LongSupplier virtualClock;
+    // rehash cost; guarded by treeLock
+    private long rehashCount;
+    private long pairHashCount;
+    private long rehashNanos;
+    private final Queue<PendingAppend> pendingAppends = new ConcurrentLinkedQueue<>();
     private long autonomousTransitionIntervalMs = 2000; // Every 2 seconds
+    private long integrityIntervalMs = 3000;
     private int decoyNodesPercentage = 20; // 20% decoy nodes
     
     public MerkleTreeDynamicEngine(List<String> initialLeaves) throws NoSuchAlgorithmException {
+        this(initialLeaves, new TransitionLog(DEFAULT_TRANSITION_RING), DynamicEngineScheduler.shared());
+    }
+    
+    public MerkleTreeDynamicEngine(List<String> initialLeaves, TransitionLog transitionLog,
+                                   DynamicEngineScheduler scheduler) throws NoSuchAlgorithmException {
+        this(transitionLog, scheduler, new Random(), null);
         initializeTree(initialLeaves);
         startAutonomousEngine();
     }
     
+    /**
+     * Engine for offline simulation: random choices come from {@code seed},
+     * time (and node ids) from {@code virtualClock}, and nothing is
+     * scheduled; the caller drives it with performAutonomousTransition()
+     * and performIntegrityUpdates(). The same leaves, seed and call sequence
+     * give the same tree, root and transitions.
+     */
+    MerkleTreeDynamicEngine(List<String> initialLeaves, long seed, LongSupplier virtualClock)
+            throws NoSuchAlgorithmException {
+        this(new TransitionLog(DEFAULT_TRANSITION_RING), null, new Random(seed), virtualClock);
+        initializeTree(initialLeaves);
+    }
+    
+    private MerkleTreeDynamicEngine(TransitionLog transitionLog, DynamicEngineScheduler scheduler,
+                                    Random random, LongSupplier virtualClock) {
+        this.transitionLog = transitionLog;
+        this.scheduler = scheduler;
+        this.random = random;
+        this.virtualClock = virtualClock;
+        for (NodeState state : NodeState.values()) {
+            stateSets.put(state, new StateSet());
+            stateCounts.put(state, new LongAdder());
+        }
+    }
+    
+    /**
+     * Rebuild an engine from a checkpoint, in time linear in its size. The
+     * log continues at least from the checkpoint's cursor.
+     */
+    public MerkleTreeDynamicEngine(EngineCheckpoint checkpoint, TransitionLog transitionLog,
+                                   DynamicEngineScheduler scheduler) {
+        this(transitionLog, scheduler, new Random(), null);
+        restoreTree(checkpoint);
+        transitionLog.advanceTo(checkpoint.logCursor);
+        startAutonomousEngine();
+    }
+    
     /**
      * Initialize tree with given data leaves
      */
     private void initializeTree(List<String> initialLeaves) throws NoSuchAlgorithmException {
-        nodes.clear();
-        transitionLog.clear();
-        
-        // Create leaf nodes
-        List<String> leafNodeIds = new ArrayList<>();
-        for (int i = 0; i < initialLeaves.size(); i++) {
-            String leafId = "leaf_" + i + "_" + System.nanoTime();
-            byte[] hash = hashData(initialLeaves.get(i).getBytes());
+        synchronized (treeLock) {
+            nodes.clear();
+            transitionLog.clearRecent();
+            for (NodeState state : NodeState.values()) {
+                stateSets.get(state).clear();
+                stateCounts.get(state).reset();
+            }
+            levels.clear();
+            levels.add(new ArrayList<>());
+            dirtyCount = 0;
             
-            // 20% chance to be decoy
-            NodeState state = random.nextInt(100) < decoyNodesPercentage ? 
-                NodeState.DECOY : NodeState.VALID;
+            // Create leaf nodes
+            byte[][] hashes = hashLeaves(initialLeaves);
+            long stamp = idStamp();
+            for (byte[] hash : hashes) {
+                appendLeaf(stamp, hash);
+            }
             
-            TreeNode leaf = new TreeNode(leafId, hash, state);
-            nodes.put(leafId, leaf);
-            leafNodeIds.add(leafId);
+            // Build tree bottom-up
+            rehashDirtyPaths();
+        }
+    }
+    
+    /**
+     * Recreate nodes level by level and derive the links from the indices.
+     */
+    private void restoreTree(EngineCheckpoint checkpoint) {
+        EngineCheckpoint.Level[] saved = checkpoint.levels;
+        for (int h = 1; h < saved.length; h++) {
+            if (saved[h].size() != (saved[h - 1].size() + 1) / 2) {
+                throw new IllegalArgumentException("Checkpoint level " + h + " does not match the level below");
+            }
+        }
+        if (saved.length == 0 || saved[saved.length - 1].size() > 1) {
+            throw new IllegalArgumentException("Checkpoint does not end in a single root");
         }
         
-        // Build tree bottom-up
-        List<String> currentLevel = leafNodeIds;
-        int level = 0;
-        
-        while (currentLevel.size() > 1) {
-            List<String> nextLevel = new ArrayList<>();
-            
-            for (int i = 0; i < currentLevel.size(); i += 2) {
-                String parentId = "node_L" + level + "_" + (i / 2) + "_" + System.nanoTime();
-                
-                TreeNode left = nodes.get(currentLevel.get(i));
-                TreeNode right = nodes.get(i + 1 < currentLevel.size() ? 
-                    currentLevel.get(i + 1) : currentLevel.get(i));
-                
-                byte[] parentHash = hashPair(left.dataHash, right.dataHash);
-                TreeNode parent = new TreeNode(parentId, parentHash, NodeState.VALID);
-                parent.childrenIds.add(left.nodeId);
-                parent.childrenIds.add(right.nodeId);
-                
-                left.parentId = parentId;
-                right.parentId = parentId;
+        synchronized (treeLock) {
+            for (int h = 0; h < saved.length; h++) {
+                EngineCheckpoint.Level level = saved[h];
+                List<TreeNode> row = new ArrayList<>(level.size());
+                for (int i = 0; i < level.size(); i++) {
+                    TreeNode node = new TreeNode(level.ids[i], level.hashes[i], level.state(i));
+                    node.previousState = level.previousState(i);
+                    node.integrityValid = level.integrityValid[i];
+                    node.lastTransitionTime = level.lastTransitionTimes[i];
+                    node.transitionCount = level.transitionCounts[i];
+                    node.metadata = level.metadata[i];
+                    node.level = h;
+                    node.index = i;
+                    row.add(node);
+                    nodes.put(node.nodeId, node);
+                    indexState(node);
+                }
+                levels.add(row);
                 
-                nodes.put(parentId, parent);
-                nextLevel.add(parentId);
+                if (h > 0) {
+                    List<TreeNode> below = levels.get(h - 1);
+                    for (TreeNode parent : row) {
+                        TreeNode left = below.get(2 * parent.index);
+                        TreeNode right = below.get(Math.min(2 * parent.index + 1, below.size() - 1));
+                        parent.childrenIds.add(left.nodeId);
+                        parent.childrenIds.add(right.nodeId);
+                        left.parentId = parent.nodeId;
+                        right.parentId = parent.nodeId;
+                    }
+                }
             }
             
-            currentLevel = nextLevel;
-            level++;
+            List<TreeNode> top = levels.get(levels.size() - 1);
+            if (!top.isEmpty()) {
+                this.rootNodeId = top.get(0).nodeId;
+                this.rootHash = top.get(0).dataHash;
+            }
+        }
+    }
+    
+    /**
+     * Copy the tree for a checkpoint. Only references and primitives are
+     * copied under the lock; hash arrays are replaced on change, never
+     * written into, so sharing them is safe. Encoding happens outside.
+     */
+    public EngineCheckpoint checkpoint() {
+        synchronized (treeLock) {
+            EngineCheckpoint.Level[] saved = new EngineCheckpoint.Level[levels.size()];
+            for (int h = 0; h < saved.length; h++) {
+                List<TreeNode> row = levels.get(h);
+                EngineCheckpoint.Level level = new EngineCheckpoint.Level(row.size());
+                for (int i = 0; i < row.size(); i++) {
+                    TreeNode node = row.get(i);
+                    level.ids[i] = node.nodeId;
+                    level.hashes[i] = node.dataHash;
+                    level.states[i] = (byte) node.state.ordinal();
+                    level.previousStates[i] = (byte) node.previousState.ordinal();
+                    level.integrityValid[i] = node.integrityValid;
+                    level.lastTransitionTimes[i] = node.lastTransitionTime;
+                    level.transitionCounts[i] = node.transitionCount;
+                    level.metadata[i] = node.metadata;
+                }
+                saved[h] = level;
+            }
+            return new EngineCheckpoint(transitionLog.size(), now(), saved);
         }
+    }
+    
+    /**
+     * Append a leaf with an already computed hash at the next index and mark
+     * it dirty. The index keeps ids unique within one batch. Caller holds
+     * treeLock.
+     */
+    private void appendLeaf(long stamp, byte[] hash) {
+        // 20% chance to be decoy
+        NodeState state = random.nextInt(100) < decoyNodesPercentage ? 
+            NodeState.DECOY : NodeState.VALID;
         
-        // Set root
-        if (!currentLevel.isEmpty()) {
-            this.rootNodeId = currentLevel.get(0);
-            this.rootHash = nodes.get(rootNodeId).dataHash;
+        List<TreeNode> leaves = levels.get(0);
+        String leafId = "leaf_" + leaves.size() + "_" + stamp;
+        TreeNode leaf = new TreeNode(leafId, hash, state);
+        leaf.lastTransitionTime = now();
+        leaf.level = 0;
+        leaf.index = leaves.size();
+        leaves.add(leaf);
+        nodes.put(leafId, leaf);
+        indexState(leaf);
+        markDirty(leaf);
+    }
+    
+    /**
+     * Register a new node under its initial state. Caller holds treeLock.
+     */
+    private void indexState(TreeNode node) {
+        stateSets.get(node.state).add(node);
+        stateCounts.get(node.state).increment();
+    }
+    
+    /**
+     * Move a node between state sets. Caller holds treeLock.
+     */
+    private void setState(TreeNode node, NodeState newState) {
+        if (node.state == newState) return;
+        stateSets.get(node.state).remove(node);
+        stateCounts.get(node.state).decrement();
+        node.state = newState;
+        indexState(node);
+    }
+    
+    /**
+     * Pick a uniformly random node that is not transitioning, or null if
+     * there is none. Caller holds treeLock.
+     */
+    private TreeNode sampleCandidate() {
+        int total = 0;
+        for (NodeState state : CANDIDATE_STATES) {
+            total += stateSets.get(state).size();
+        }
+        if (total == 0) return null;
+        
+        int pick = random.nextInt(total);
+        for (NodeState state : CANDIDATE_STATES) {
+            StateSet set = stateSets.get(state);
+            if (pick < set.size()) {
+                return set.get(pick);
+            }
+            pick -= set.size();
+        }
+        return null;
+    }
+    
+    /**
+     * Transition with a random id, or one drawn from the seeded source when
+     * simulating.
+     */
+    private DynamicTransition newTransition(String nodeId, NodeState from, NodeState to, String reason) {
+        String id = virtualClock == null
+            ? UUID.randomUUID().toString()
+            : new UUID(random.nextLong(), random.nextLong()).toString();
+        return new DynamicTransition(id, nodeId, from, to, reason);
+    }
+    
+    private void recordTransition(DynamicTransition transition) {
+        transition.timestamp = now();
+        transitionLog.append(transition);
+        Consumer<DynamicTransition> listener = transitionListener;
+        if (listener != null) {
+            listener.accept(transition);
+        }
+    }
+    
+    /**
+     * Called after each logged transition, on the thread that made it and
+     * under the tree lock, so it must not block
+     */
+    public void setTransitionListener(Consumer<DynamicTransition> listener) {
+        this.transitionListener = listener;
+    }
+    
+    /**
+     * Queue a leaf whose hash changed for the next rehash. Caller holds treeLock.
+     */
+    private void markDirty(TreeNode leaf) {
+        if (dirtyCount == dirtyLeaves.length) {
+            dirtyLeaves = Arrays.copyOf(dirtyLeaves, dirtyCount * 2);
         }
+        dirtyLeaves[dirtyCount++] = leaf.index;
     }
     
     /**
-     * Start autonomous engine - triggers continuous state transitions
+     * Start autonomous engine - triggers continuous state transitions.
+     * Also resumes a parked engine.
      */
-    public void startAutonomousEngine() {
+    public synchronized void startAutonomousEngine() {
         if (isRunning) return;
         isRunning = true;
         
-        // Schedule autonomous transitions every N milliseconds
-        scheduler.scheduleAtFixedRate(this::performAutonomousTransition, 
-            autonomousTransitionIntervalMs, 
-            autonomousTransitionIntervalMs, 
-            TimeUnit.MILLISECONDS);
+        // Schedule autonomous transitions every N milliseconds, paced by load
+        transitionTask = scheduler.schedule(this::performAutonomousTransition, 
+            () -> pacedPeriod(autonomousTransitionIntervalMs));
         
         // Schedule integrity checks
-        scheduler.scheduleAtFixedRate(this::performIntegrityUpdates, 
-            3000, 
-            3000, 
-            TimeUnit.MILLISECONDS);
+        integrityTask = scheduler.schedule(this::performIntegrityUpdates,
+            () -> pacedPeriod(integrityIntervalMs));
+    }
+    
+    /**
+     * Stop autonomous ticks but keep the tree and log, for idle engines.
+     * startAutonomousEngine() resumes it.
+     */
+    public synchronized void park() {
+        if (!isRunning) return;
+        isRunning = false;
+        transitionTask.cancel();
+        integrityTask.cancel();
+    }
+    
+    public boolean isRunning() {
+        return isRunning;
+    }
+    
+    /**
+     * Pace ticks by request-path load; null runs at nominal rate.
+     */
+    public void setLoadController(BackgroundLoadController loadController) {
+        this.loadController = loadController;
+    }
+    
+    private long pacedPeriod(long nominalMs) {
+        BackgroundLoadController pace = loadController;
+        return pace == null ? nominalMs : pace.period(nominalMs);
     }
     
     /**
      * Perform autonomous node state transition (Decoy ↔ Valid)
      */
-    private void performAutonomousTransition() {
+    void performAutonomousTransition() {
         if (nodes.isEmpty()) return;
         
-        try {
-            // Select random nodes for transition
-            List<TreeNode> candidateNodes = nodes.values().stream()
-                .filter(n -> n.state != NodeState.TRANSITIONING)
-                .collect(Collectors.toList());
-            
-            if (candidateNodes.isEmpty()) return;
-            
-            // Transition 1-3 random nodes
-            int transitionCount = 1 + random.nextInt(3);
-            for (int i = 0; i < transitionCount && i < candidateNodes.size(); i++) {
-                TreeNode node = candidateNodes.get(random.nextInt(candidateNodes.size()));
+        synchronized (treeLock) {
+            try {
+                // Transition 1-3 random nodes, sampled from the state sets;
+                // load pacing stretches the tick period instead
+                int transitionCount = 1 + random.nextInt(3);
+                for (int i = 0; i < transitionCount; i++) {
+                    TreeNode node = sampleCandidate();
+                    if (node == null) break;
+                    
+                    // Determine new state
+                    NodeState newState = determineNextState(node);
+                    performTransition(node, newState, "autonomous_cycle");
+                }
                 
-                // Determine new state
-                NodeState newState = determineNextState(node);
-                performTransition(node, newState, "autonomous_cycle");
+                // Rehash the paths of the leaves that changed, once per tick
+                rehashDirtyPaths();
+                
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-            
-            // Recalculate affected subtrees
-            recalculateRootHash();
-            
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
     
@@ -249,7 +547,7 @@ public class MerkleTreeDynamicEngine {
     private void performTransition(TreeNode node, NodeState newState, String reason) 
             throws NoSuchAlgorithmException {
         
-        DynamicTransition transition = new DynamicTransition(
+        DynamicTransition transition = newTransition(
             node.nodeId, 
             node.state, 
             newState, 
@@ -261,12 +559,13 @@ public class MerkleTreeDynamicEngine {
         node.previousState = node.state;
         
         // Update node state
-        node.state = newState;
-        node.lastTransitionTime = System.currentTimeMillis();
+        setState(node, newState);
+        node.lastTransitionTime = now();
         node.transitionCount++;
         
-        // Recalculate node hash if state changed integrity expectations
-        if (newState == NodeState.DECOY || newState == NodeState.COMPROMISED) {
+        // Recalculate node hash if state changed integrity expectations. Only
+        // leaf hashes are data; inner hashes are always derived from children.
+        if (node.isLeaf() && (newState == NodeState.DECOY || newState == NodeState.COMPROMISED)) {
             // Hash includes state information
             byte[] stateBytes = newState.name().getBytes();
             byte[] combinedData = new byte[node.dataHash.length + stateBytes.length];
@@ -274,72 +573,173 @@ public class MerkleTreeDynamicEngine {
             System.arraycopy(stateBytes, 0, combinedData, node.dataHash.length, stateBytes.length);
             
             node.dataHash = hashData(combinedData);
+            markDirty(node);
         }
         
         transition.newHash = node.dataHash.clone();
         transition.affectedNodeIds.add(node.nodeId);
         
         // Record transition
-        transitionLog.add(transition);
+        recordTransition(transition);
     }
     
     /**
      * Perform integrity checks and updates
+     * 
+     * Only failed nodes can recover, and they all sit in the COMPROMISED set,
+     * so recovery walks that set alone. Failures then jump between the nodes
+     * that fail by geometric skips instead of rolling once per node. Recovering
+     * first and failing second gives the same per-node outcome odds as one
+     * "fail, else recover" roll.
      */
-    private void performIntegrityUpdates() {
-        try {
-            List<TreeNode> allNodes = new ArrayList<>(nodes.values());
-            
-            for (TreeNode node : allNodes) {
-                // Simulate integrity check (5% chance of integrity failure)
-                if (random.nextInt(100) < 5) {
-                    node.integrityValid = false;
-                    node.state = NodeState.COMPROMISED;
-                    
-                    transitionLog.add(new DynamicTransition(
-                        node.nodeId,
-                        NodeState.VALID,
-                        NodeState.COMPROMISED,
-                        "integrity_check_failed"
-                    ));
-                } else if (!node.integrityValid && random.nextInt(100) < 30) {
-                    // 30% chance to recover from compromise
+    void performIntegrityUpdates() {
+        synchronized (treeLock) {
+            try {
+                // 30% chance to recover from compromise
+                StateSet compromised = stateSets.get(NodeState.COMPROMISED);
+                List<TreeNode> recovered = new ArrayList<>();
+                for (int i = 0; i < compromised.size(); i++) {
+                    TreeNode node = compromised.get(i);
+                    if (!node.integrityValid && random.nextInt(100) < INTEGRITY_RECOVERY_PERCENT) {
+                        recovered.add(node);
+                    }
+                }
+                for (TreeNode node : recovered) {
                     node.integrityValid = true;
-                    node.state = NodeState.VALID;
+                    setState(node, NodeState.VALID);
                 }
+                
+                // Simulate integrity check (5% chance of integrity failure),
+                // visiting levels as one sequence of all nodes
+                double logMiss = Math.log(1.0 - INTEGRITY_FAILURE_PERCENT / 100.0);
+                long next = geometricSkip(logMiss);
+                for (List<TreeNode> level : levels) {
+                    while (next < level.size()) {
+                        TreeNode node = level.get((int) next);
+                        node.integrityValid = false;
+                        setState(node, NodeState.COMPROMISED);
+                        
+                        recordTransition(newTransition(
+                            node.nodeId,
+                            NodeState.VALID,
+                            NodeState.COMPROMISED,
+                            "integrity_check_failed"
+                        ));
+                        next += 1 + geometricSkip(logMiss);
+                    }
+                    next -= level.size();
+                }
+                
+                rehashDirtyPaths();
+                
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-            
-            recalculateRootHash();
-            
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
     
     /**
-     * Recalculate root hash from all leaf hashes
+     * Number of nodes passed over before the next hit when each node is hit
+     * independently; {@code logMiss} is the log of the miss probability.
      */
-    private void recalculateRootHash() throws NoSuchAlgorithmException {
-        if (nodes.isEmpty() || rootNodeId == null) return;
-        
-        // Collect all leaf nodes
-        List<TreeNode> leaves = nodes.values().stream()
-            .filter(TreeNode::isLeaf)
-            .collect(Collectors.toList());
-        
-        if (leaves.isEmpty()) return;
+    private long geometricSkip(double logMiss) {
+        return (long) (Math.log(1.0 - random.nextDouble()) / logMiss);
+    }
+    
+    /**
+     * Rehash only the paths from dirty leaves to the root.
+     * 
+     * Dirty leaf indices are sorted and de-duplicated, then mapped to their
+     * parent indices level by level, so k changed leaves cost O(k log n)
+     * pair hashes and leaves sharing an ancestor hash it once. Parents that
+     * do not exist yet (appended leaves) are created on the way up; an odd
+     * last node is paired with itself. Caller holds treeLock.
+     */
+    private void rehashDirtyPaths() throws NoSuchAlgorithmException {
+        if (dirtyCount == 0) return;
+        List<TreeNode> leaves = levels.get(0);
+        if (leaves.isEmpty()) {
+            dirtyCount = 0;
+            return;
+        }
+        long started = System.nanoTime();
         
-        // Rebuild tree structure from leaves
-        List<byte[]> hashes = leaves.stream()
-            .map(n -> n.dataHash)
-            .collect(Collectors.toList());
+        int[] dirty = Arrays.copyOf(dirtyLeaves, dirtyCount);
+        dirtyCount = 0;
+        Arrays.sort(dirty);
+        int count = dedupe(dirty, dirty.length, 0);
         
-        byte[] currentHash = hashes.get(0);
-        for (int i = 1; i < hashes.size(); i++) {
-            currentHash = hashPair(currentHash, hashes.get(i));
+        int h = 0;
+        while (levels.get(h).size() > 1) {
+            List<TreeNode> level = levels.get(h);
+            if (levels.size() == h + 1) {
+                levels.add(new ArrayList<>());
+            }
+            List<TreeNode> parents = levels.get(h + 1);
+            
+            // parent indices of a sorted list stay sorted
+            count = dedupe(dirty, count, 1);
+            pairHashCount += count;
+            for (int k = 0; k < count; k++) {
+                int p = dirty[k];
+                TreeNode left = level.get(2 * p);
+                TreeNode right = level.get(Math.min(2 * p + 1, level.size() - 1));
+                byte[] parentHash = hashPair(left.dataHash, right.dataHash);
+                
+                TreeNode parent;
+                if (p < parents.size()) {
+                    parent = parents.get(p);
+                    parent.dataHash = parentHash;
+                } else {
+                    parent = new TreeNode("node_L" + h + "_" + p + "_" + idStamp(),
+                        parentHash, NodeState.VALID);
+                    parent.lastTransitionTime = now();
+                    parent.level = h + 1;
+                    parent.index = p;
+                    parents.add(parent);
+                    nodes.put(parent.nodeId, parent);
+                    indexState(parent);
+                }
+                
+                // right child changes when an odd level gains a sibling
+                parent.childrenIds.clear();
+                parent.childrenIds.add(left.nodeId);
+                parent.childrenIds.add(right.nodeId);
+                left.parentId = parent.nodeId;
+                right.parentId = parent.nodeId;
+            }
+            h++;
         }
         
-        this.rootHash = currentHash;
+        TreeNode root = levels.get(h).get(0);
+        root.parentId = null;
+        this.rootNodeId = root.nodeId;
+        this.rootHash = root.dataHash;
+        rehashCount++;
+        rehashNanos += System.nanoTime() - started;
+    }
+    
+    private long now() {
+        return virtualClock == null ? System.currentTimeMillis() : virtualClock.getAsLong();
+    }
+    
+    // suffix that keeps generated node ids unique
+    private long idStamp() {
+        return virtualClock == null ? System.nanoTime() : virtualClock.getAsLong();
+    }
+    
+    /**
+     * Shift sorted indices right by {@code shift} and drop duplicates in place.
+     */
+    private static int dedupe(int[] sorted, int count, int shift) {
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int v = sorted[i] >> shift;
+            if (out == 0 || sorted[out - 1] != v) {
+                sorted[out++] = v;
+            }
+        }
+        return out;
     }
     
     /**
@@ -347,51 +747,171 @@ public class MerkleTreeDynamicEngine {
      */
     public String getRootHashHex() {
         if (rootHash == null) return "";
-        return bytesToHex(rootHash);
+        return Hex.encode(rootHash);
     }
     
     /**
      * Add new leaves to the tree dynamically
+     * 
+     * Leaves are hashed before taking the tree lock (in parallel for large
+     * batches), then appended at the right edge; only the paths of the new
+     * leaves, the new right-hand spine, are rehashed. Appends from
+     * concurrent callers are combined: each queues its batch, and whoever
+     * holds the lock next applies every queued batch under one rehash.
+     * 
+     * @return index of the first appended leaf
      */
-    public void addLeaves(List<String> newLeaves) throws NoSuchAlgorithmException {
-        for (String leafData : newLeaves) {
-            String leafId = "leaf_" + System.nanoTime();
-            byte[] hash = hashData(leafData.getBytes());
-            NodeState state = random.nextInt(100) < decoyNodesPercentage ? 
-                NodeState.DECOY : NodeState.VALID;
-            
-            TreeNode leaf = new TreeNode(leafId, hash, state);
-            nodes.put(leafId, leaf);
+    public int addLeaves(List<String> newLeaves) throws NoSuchAlgorithmException {
+        PendingAppend mine = new PendingAppend(hashLeaves(newLeaves));
+        pendingAppends.add(mine);
+        synchronized (treeLock) {
+            if (mine.firstIndex < 0) {
+                long stamp = idStamp();
+                PendingAppend batch;
+                while ((batch = pendingAppends.poll()) != null) {
+                    batch.firstIndex = levels.get(0).size();
+                    for (byte[] hash : batch.hashes) {
+                        appendLeaf(stamp, hash);
+                    }
+                }
+                rehashDirtyPaths();
+            }
+            return mine.firstIndex;
         }
+    }
+    
+    /**
+     * Leaf hashes of one caller waiting to be appended.
+     */
+    private static final class PendingAppend {
+        final byte[][] hashes;
+        // set under treeLock once appended
+        int firstIndex = -1;
         
-        recalculateRootHash();
+        PendingAppend(byte[][] hashes) {
+            this.hashes = hashes;
+        }
+    }
+    
+    /**
+     * Hash leaf data, spreading large batches over the common pool.
+     */
+    private byte[][] hashLeaves(List<String> leafData) throws NoSuchAlgorithmException {
+        byte[][] hashes = new byte[leafData.size()][];
+        if (hashes.length < PARALLEL_HASH_MIN) {
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = hashData(leafData.get(i).getBytes());
+            }
+            return hashes;
+        }
+        MessageDigest.getInstance("SHA-256"); // fail here rather than in a worker
+        Arrays.parallelSetAll(hashes, i -> {
+            try {
+                return hashData(leafData.get(i).getBytes());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return hashes;
     }
     
     /**
      * Update specific leaf data
      */
     public void updateLeaf(String leafId, String newData) throws NoSuchAlgorithmException {
-        TreeNode node = nodes.get(leafId);
-        if (node != null && node.isLeaf()) {
-            node.dataHash = hashData(newData.getBytes());
-            recalculateRootHash();
+        synchronized (treeLock) {
+            TreeNode node = nodes.get(leafId);
+            if (node != null && node.isLeaf()) {
+                node.dataHash = hashData(newData.getBytes());
+                markDirty(node);
+                rehashDirtyPaths();
+            }
+        }
+    }
+    
+    /**
+     * Update many leaves by index with one rehash of the union of their
+     * paths. Indices outside the tree are skipped.
+     * 
+     * @return number of leaves updated
+     */
+    public int updateLeaves(Map<Integer, String> updates) throws NoSuchAlgorithmException {
+        synchronized (treeLock) {
+            List<TreeNode> leaves = levels.get(0);
+            int updated = 0;
+            for (Map.Entry<Integer, String> update : updates.entrySet()) {
+                Integer index = update.getKey();
+                if (index != null && index >= 0 && index < leaves.size()) {
+                    TreeNode leaf = leaves.get(index);
+                    leaf.dataHash = hashData(update.getValue().getBytes());
+                    markDirty(leaf);
+                    updated++;
+                }
+            }
+            rehashDirtyPaths();
+            return updated;
+        }
+    }
+    
+    /**
+     * Number of leaves; valid leaf indices are 0..count-1 in insertion order
+     */
+    public int getLeafCount() {
+        synchronized (treeLock) {
+            return levels.get(0).size();
+        }
+    }
+    
+    /**
+     * Id of the leaf at a stable insertion-order index, or null if out of range
+     */
+    public String getLeafId(int index) {
+        synchronized (treeLock) {
+            List<TreeNode> leaves = levels.get(0);
+            return index >= 0 && index < leaves.size() ? leaves.get(index).nodeId : null;
         }
     }
     
     /**
-     * Get all transitions
+     * Get recent transitions still held in memory, oldest first
      */
     public List<DynamicTransition> getTransitions() {
-        return new ArrayList<>(transitionLog);
+        return transitionLog.recent();
+    }
+    
+    /**
+     * Number of transitions ever logged; also the next sequence number
+     */
+    public long getTransitionCount() {
+        return transitionLog.size();
+    }
+    
+    /**
+     * Get up to limit transitions from sequence number cursor on, including
+     * spilled segments; the next cursor is the last sequence + 1
+     */
+    public List<DynamicTransition> getTransitions(long cursor, int limit) {
+        return transitionLog.read(cursor, limit);
+    }
+    
+    /**
+     * Get up to limit transitions with from <= timestamp < to (epoch millis)
+     */
+    public List<DynamicTransition> getTransitionsBetween(long from, long to, int limit) {
+        return transitionLog.between(from, to, limit);
     }
     
     /**
-     * Get transitions by state type
+     * Get recent transitions by target state
      */
     public List<DynamicTransition> getTransitionsByState(NodeState state) {
-        return transitionLog.stream()
-            .filter(t -> t.toState == state)
-            .collect(Collectors.toList());
+        List<DynamicTransition> matching = new ArrayList<>();
+        for (DynamicTransition t : transitionLog.recent()) {
+            if (t.toState == state) {
+                matching.add(t);
+            }
+        }
+        return matching;
     }
     
     /**
@@ -400,23 +920,19 @@ public class MerkleTreeDynamicEngine {
     public Map<String, Object> getStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        long validCount = nodes.values().stream()
-            .filter(n -> n.state == NodeState.VALID).count();
-        long decoyCount = nodes.values().stream()
-            .filter(n -> n.state == NodeState.DECOY).count();
-        long compromisedCount = nodes.values().stream()
-            .filter(n -> n.state == NodeState.COMPROMISED).count();
-        long transitioningCount = nodes.values().stream()
-            .filter(n -> n.state == NodeState.TRANSITIONING).count();
-        
         stats.put("total_nodes", nodes.size());
-        stats.put("valid_nodes", validCount);
-        stats.put("decoy_nodes", decoyCount);
-        stats.put("compromised_nodes", compromisedCount);
-        stats.put("transitioning_nodes", transitioningCount);
+        stats.put("valid_nodes", stateCounts.get(NodeState.VALID).sum());
+        stats.put("decoy_nodes", stateCounts.get(NodeState.DECOY).sum());
+        stats.put("compromised_nodes", stateCounts.get(NodeState.COMPROMISED).sum());
+        stats.put("transitioning_nodes", stateCounts.get(NodeState.TRANSITIONING).sum());
         stats.put("total_transitions", transitionLog.size());
         stats.put("root_hash", getRootHashHex());
         stats.put("engine_running", isRunning);
+        synchronized (treeLock) {
+            stats.put("rehash_count", rehashCount);
+            stats.put("rehash_pair_hashes", pairHashCount);
+            stats.put("rehash_nanos", rehashNanos);
+        }
         
         return stats;
     }
@@ -440,23 +956,12 @@ public class MerkleTreeDynamicEngine {
         return md.digest();
     }
     
-    /**
-     * Convert bytes to hex string
-     */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
-    }
-    
     /**
      * Stop autonomous engine
      */
     public void stop() {
-        isRunning = false;
-        scheduler.shutdown();
+        park();
+        transitionLog.close();
     }
     
     /**
@@ -1,5 +1,6 @@
 package com.squid.core.service;
 
+import com.squid.core.crypto.Hex;
 import com.squid.core.model.ModelHistoryEntry;
 import com.squid.core.model.ModelMetadata;
 import org.springframework.stereotype.Service;
@@ -202,16 +203,7 @@ public class ModelManagementService {
     private String generateModelHash(String content) throws NoSuchAlgorithmException {
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-        return bytesToHex(hash);
+        return Hex.encode(hash);
     }
 
-    private String bytesToHex(byte[] hash) {
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) hexString.append('0');
-            hexString.append(hex);
-        }
-        return hexString.toString();
-    }
 }
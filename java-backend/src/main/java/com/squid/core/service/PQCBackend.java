@@ -0,0 +1,58 @@
+package com.squid.core.service;
+
+import java.util.Map;
+
+/**
+ * Pluggable key material + primitive implementation behind PQCService.
+ *
+ * A backend owns one signature key pair (ML-DSA role) and one KEM key pair
+ * (ML-KEM role). PQCService keeps the public API (sign/verify,
+ * encapsulate/decapsulate, encoded public keys) stable and delegates to the
+ * backend selected at startup via squid.pqc.backend.
+ */
+public interface PQCBackend {
+
+    /**
+     * Short identifier used in configuration and benchmark output.
+     */
+    String getName();
+
+    /**
+     * True when the primitives are real lattice-based post-quantum schemes,
+     * false for classical simulations.
+     */
+    boolean isPostQuantum();
+
+    /**
+     * Generate fresh signature and KEM key pairs.
+     */
+    void generateKeys() throws Exception;
+
+    byte[] sign(byte[] data) throws Exception;
+
+    boolean verify(byte[] signature, byte[] data) throws Exception;
+
+    PQCService.KEMResult encapsulate() throws Exception;
+
+    byte[] decapsulate(byte[] ciphertext) throws Exception;
+
+    byte[] getSignaturePublicKey();
+
+    byte[] getKemPublicKey();
+
+    /**
+     * Identifier of the algorithm parameter sets. A persisted keystore is
+     * only reused when it was written for the same backend and parameters.
+     */
+    String getParameterSetId();
+
+    /**
+     * Encoded private and public key material, for PQCKeyStore.
+     */
+    Map<String, byte[]> exportKeyMaterial();
+
+    /**
+     * Restore key pairs produced by exportKeyMaterial.
+     */
+    void importKeyMaterial(Map<String, byte[]> material) throws Exception;
+}
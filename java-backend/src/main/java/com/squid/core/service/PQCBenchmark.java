@@ -0,0 +1,141 @@
+package com.squid.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Side-by-side comparison of the PQC backends.
+ *
+ * For every backend this measures key generation, sign, verify,
+ * encapsulate and decapsulate, reporting ops/sec and latency percentiles
+ * (microseconds) as JSON on stdout.
+ *
+ * Usage: java -cp squid-core.jar com.squid.core.service.PQCBenchmark [iterations] [backend...]
+ */
+public final class PQCBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final int KEYGEN_ITERATIONS = 5;
+
+    private PQCBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        List<String> backends = args.length > 1
+                ? Arrays.asList(Arrays.copyOfRange(args, 1, args.length))
+                : Arrays.asList(LatticePQCBackend.NAME, ClassicalPQCBackend.NAME);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("iterations", iterations);
+        report.put("java_version", System.getProperty("java.version"));
+        report.put("available_processors", Runtime.getRuntime().availableProcessors());
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (String name : backends) {
+            results.put(name, run(name, iterations));
+        }
+        report.put("backends", results);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(mapper.writeValueAsString(report));
+    }
+
+    /**
+     * Benchmark a single backend. A warm-up pass of the same size precedes
+     * the measured pass so JIT compilation does not skew the numbers.
+     */
+    public static Map<String, Object> run(String backendName, int iterations) throws Exception {
+        SecureRandom random = new SecureRandom();
+        PQCBackend backend = PQCService.createBackend(backendName, random, "KYBER768", "DILITHIUM3");
+
+        Map<String, Object> ops = new LinkedHashMap<>();
+
+        long[] keygen = new long[KEYGEN_ITERATIONS];
+        for (int i = 0; i < KEYGEN_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            backend.generateKeys();
+            keygen[i] = System.nanoTime() - start;
+        }
+        ops.put("keygen", summarize(keygen));
+
+        byte[] message = "SQUID-PQC-BENCHMARK".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = backend.sign(message);
+        PQCService.KEMResult kem = backend.encapsulate();
+        byte[] encapsulation = kem.getCiphertext();
+
+        for (int pass = 0; pass < 2; pass++) {
+            boolean measured = pass == 1;
+            long[] sign = new long[iterations];
+            long[] verify = new long[iterations];
+            long[] encaps = new long[iterations];
+            long[] decaps = new long[iterations];
+
+            for (int i = 0; i < iterations; i++) {
+                long t0 = System.nanoTime();
+                backend.sign(message);
+                long t1 = System.nanoTime();
+                if (!backend.verify(signature, message)) {
+                    throw new IllegalStateException(backendName + ": signature did not verify");
+                }
+                long t2 = System.nanoTime();
+                backend.encapsulate();
+                long t3 = System.nanoTime();
+                backend.decapsulate(encapsulation);
+                long t4 = System.nanoTime();
+
+                sign[i] = t1 - t0;
+                verify[i] = t2 - t1;
+                encaps[i] = t3 - t2;
+                decaps[i] = t4 - t3;
+            }
+
+            if (measured) {
+                ops.put("sign", summarize(sign));
+                ops.put("verify", summarize(verify));
+                ops.put("encapsulate", summarize(encaps));
+                ops.put("decapsulate", summarize(decaps));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("post_quantum", backend.isPostQuantum());
+        result.put("kem_public_key_bytes", backend.getKemPublicKey().length);
+        result.put("signature_public_key_bytes", backend.getSignaturePublicKey().length);
+        result.put("kem_ciphertext_bytes", encapsulation.length);
+        result.put("signature_bytes", signature.length);
+        result.put("operations", ops);
+        return result;
+    }
+
+    private static Map<String, Object> summarize(long[] samplesNanos) {
+        long[] sorted = samplesNanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long v : sorted) {
+            total += v;
+        }
+        double meanNanos = (double) total / sorted.length;
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("samples", sorted.length);
+        out.put("ops_per_sec", meanNanos > 0 ? 1_000_000_000.0 / meanNanos : 0.0);
+        out.put("mean_us", meanNanos / 1_000.0);
+        out.put("p50_us", percentile(sorted, 0.50) / 1_000.0);
+        out.put("p99_us", percentile(sorted, 0.99) / 1_000.0);
+        out.put("max_us", sorted[sorted.length - 1] / 1_000.0);
+        return out;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+}
@@ -0,0 +1,358 @@
+package com.squid.core.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Encrypted on-disk store for PQCService key material.
+ *
+ * File layout: magic, version, key mode, backend id, salt, IV, then the
+ * AES-256-GCM encrypted key entries. The header is bound as associated
+ * data, so a file written for one backend / parameter set cannot be
+ * replayed for another.
+ *
+ * The wrapping key comes from squid.pqc.keystore.password (PBKDF2) when
+ * set; otherwise from a random local key file next to the keystore
+ * (squid.security.kms-provider: local).
+ *
+ * Processes sharing a keystore (the Spring service and IPCMain) serialize
+ * first-boot key generation through {@link #lock()}; the local key file is
+ * only ever created, never replaced.
+ */
+@Component
+public class PQCKeyStore {
+
+    private static final int MAGIC = 0x53514b53; // "SQKS"
+    private static final int VERSION = 1;
+    private static final byte MODE_KEY_FILE = 0;
+    private static final byte MODE_PASSWORD = 1;
+    private static final int PBKDF2_ITERATIONS = 120_000;
+    private static final int GCM_TAG_BITS = 128;
+
+    // FileChannel locks are held per process: threads of this JVM queue here first
+    private static final Map<Path, ReentrantLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final char[] password;
+    private final boolean enabled;
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public PQCKeyStore(@Value("${squid.pqc.keystore.path:data/pqc-keystore.bin}") String path,
+                       @Value("${squid.pqc.keystore.password:}") String password,
+                       @Value("${squid.pqc.keystore.enabled:true}") boolean enabled) {
+        this.path = Paths.get(path).toAbsolutePath();
+        this.password = password == null ? new char[0] : password.toCharArray();
+        this.enabled = enabled;
+    }
+
+    /**
+     * Keystore at the default location, keyed by the local key file.
+     */
+    public static PQCKeyStore defaultStore() {
+        return new PQCKeyStore("data/pqc-keystore.bin", "", true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Load key material written for the given backend id.
+     *
+     * @return the key entries, or null when no usable keystore exists
+     *         (missing file, other backend / parameter set)
+     * @throws IOException when the file exists but cannot be decrypted
+     */
+    public Map<String, byte[]> load(String backendId) throws IOException {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return null;
+        }
+        byte[] raw = Files.readAllBytes(path);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unrecognized PQC keystore format: " + path);
+            }
+            byte mode = in.readByte();
+            String storedId = in.readUTF();
+            if (!storedId.equals(backendId)) {
+                return null;
+            }
+            byte[] salt = readBlock(in);
+            byte[] iv = readBlock(in);
+            int headerLength = raw.length - in.available();
+            byte[] ciphertext = readBlock(in);
+
+            byte[] wrappingKey = wrappingKey(mode, salt, false);
+            byte[] plain;
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(wrappingKey, "AES"),
+                        new GCMParameterSpec(GCM_TAG_BITS, iv));
+                cipher.updateAAD(raw, 0, headerLength);
+                plain = cipher.doFinal(ciphertext);
+            } catch (Exception e) {
+                throw new IOException("PQC keystore could not be decrypted: " + path, e);
+            } finally {
+                Arrays.fill(wrappingKey, (byte) 0);
+            }
+            try {
+                return decodeEntries(plain);
+            } finally {
+                Arrays.fill(plain, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Take the keystore lock: an exclusive lock on {@code <path>.lock} in
+     * the keystore directory, held until the returned handle is closed.
+     * Meant for load, generate, store sequences; callers load again once
+     * they hold it, since another process may have stored keys meanwhile.
+     */
+    public Closeable lock() throws IOException {
+        if (!enabled) {
+            return () -> { };
+        }
+        Path parent = path.getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        ReentrantLock local = LOCAL_LOCKS.computeIfAbsent(path, p -> new ReentrantLock());
+        local.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Paths.get(path + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock fileLock = channel.lock();
+            FileChannel held = channel;
+            return () -> {
+                try {
+                    fileLock.release();
+                    held.close();
+                } finally {
+                    local.unlock();
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            local.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Move an existing keystore out of the way (to {@code <path>.bad-<millis>})
+     * so that storing new keys cannot overwrite it. The local key file, if
+     * any, is left in place: store() reuses it, so the moved file stays
+     * decryptable.
+     *
+     * @return where the keystore was moved, or null when there was none
+     */
+    public Path setAside() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Path target = Paths.get(path + ".bad-" + System.currentTimeMillis());
+        Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /**
+     * Atomically replace the keystore with the given key material.
+     */
+    public void store(String backendId, Map<String, byte[]> material) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        byte mode = password.length > 0 ? MODE_PASSWORD : MODE_KEY_FILE;
+        byte[] salt = new byte[16];
+        byte[] iv = new byte[12];
+        random.nextBytes(salt);
+        random.nextBytes(iv);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(mode);
+            out.writeUTF(backendId);
+            writeBlock(out, salt);
+            writeBlock(out, iv);
+        }
+        byte[] headerBytes = header.toByteArray();
+
+        byte[] plain = encodeEntries(material);
+        byte[] wrappingKey = wrappingKey(mode, salt, true);
+        byte[] ciphertext;
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(wrappingKey, "AES"),
+                    new GCMParameterSpec(GCM_TAG_BITS, iv));
+            cipher.updateAAD(headerBytes);
+            ciphertext = cipher.doFinal(plain);
+        } catch (Exception e) {
+            throw new IOException("PQC keystore encryption failed", e);
+        } finally {
+            Arrays.fill(wrappingKey, (byte) 0);
+            Arrays.fill(plain, (byte) 0);
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(file)) {
+            out.write(headerBytes);
+            writeBlock(out, ciphertext);
+        }
+        writeAtomically(path, file.toByteArray());
+    }
+
+    private byte[] wrappingKey(byte mode, byte[] salt, boolean create) throws IOException {
+        if (mode == MODE_PASSWORD) {
+            if (password.length == 0) {
+                throw new IOException("PQC keystore is password protected but squid.pqc.keystore.password is not set");
+            }
+            try {
+                SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+                PBEKeySpec spec = new PBEKeySpec(password, salt, PBKDF2_ITERATIONS, 256);
+                try {
+                    return factory.generateSecret(spec).getEncoded();
+                } finally {
+                    spec.clearPassword();
+                }
+            } catch (Exception e) {
+                throw new IOException("PQC keystore key derivation failed", e);
+            }
+        }
+
+        Path keyFile = Paths.get(path.toString() + ".key");
+        if (Files.isRegularFile(keyFile)) {
+            return Files.readAllBytes(keyFile);
+        }
+        if (!create) {
+            throw new IOException("PQC keystore key file missing: " + keyFile);
+        }
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        try {
+            createKeyFile(keyFile, key);
+            return key;
+        } catch (FileAlreadyExistsException e) {
+            // created by another process since the check: a keystore may
+            // already be encrypted with it, so use it instead of replacing it
+            Arrays.fill(key, (byte) 0);
+            return Files.readAllBytes(keyFile);
+        }
+    }
+
+    private static void createKeyFile(Path keyFile, byte[] key) throws IOException {
+        Path parent = keyFile.getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        try {
+            Files.createFile(keyFile, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException ignored) {
+            // non-POSIX filesystem (Windows): rely on directory ACLs
+            Files.createFile(keyFile);
+        }
+        try {
+            Files.write(keyFile, key, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Files.deleteIfExists(keyFile);
+            throw e;
+        }
+    }
+
+    private static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+                // non-POSIX filesystem (Windows): rely on directory ACLs
+            }
+            Files.write(tmp, data);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static byte[] encodeEntries(Map<String, byte[]> material) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeInt(material.size());
+            for (Map.Entry<String, byte[]> e : material.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeBlock(out, e.getValue());
+            }
+        }
+        return buf.toByteArray();
+    }
+
+    private static Map<String, byte[]> decodeEntries(byte[] plain) throws IOException {
+        Map<String, byte[]> out = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                out.put(name, readBlock(in));
+            }
+        }
+        return out;
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > in.available()) {
+            throw new IOException("Corrupt PQC keystore block");
+        }
+        byte[] data = new byte[len];
+        in.readFully(data);
+        return data;
+    }
+}
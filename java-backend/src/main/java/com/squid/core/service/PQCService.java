@@ -1,72 +1,288 @@
 package com.squid.core.service;
 
+import com.squid.core.crypto.HKDFUtil;
+import com.squid.core.crypto.StreamingAead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Cipher;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.security.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Post-Quantum Cryptography Service
  * Implements Kyber (ML-KEM) and Dilithium (ML-DSA) algorithms
  * 
- * Real implementations:
- * - Kyber/ML-KEM: Key Encapsulation Mechanism for key derivation
- * - Dilithium/ML-DSA: Digital signature algorithm
+ * Backends (squid.pqc.backend):
+ * - lattice: real CRYSTALS-Kyber / CRYSTALS-Dilithium from BouncyCastle PQC
+ * - classical: simulated with RSA-4096 OAEP / ECDSA P-521
  * 
- * Uses liboqs-java bindings for production-grade post-quantum crypto
- * Fallback to simulated implementations with strong classical crypto
+ * The public API is identical for both; see PQCBenchmark for a
+ * side-by-side throughput and latency comparison.
+ * 
+ * Keys are persisted through PQCKeyStore. On first boot they are generated
+ * on a background thread; crypto calls wait on a readiness gate until then.
+ * A keystore that exists but cannot be decrypted fails startup instead of
+ * being replaced, since new keys would orphan every earlier ciphertext; one
+ * written for another backend / parameter set is moved aside first.
+ * First-boot generation holds the keystore lock from the re-check through
+ * the store, so a second process starting at the same time loads the keys
+ * the first one stored instead of writing its own.
  */
 @Service
 public class PQCService {
 
+    private static final Logger log = LoggerFactory.getLogger(PQCService.class);
+
+    public static final String DEFAULT_BACKEND = LatticePQCBackend.NAME;
+
+    private static final int STREAM_MAGIC = 0x53515341; // "SQSA"
+    private static final byte STREAM_VERSION = 1;
+    private static final int MAX_ENCAPSULATION_LENGTH = 8192;
+    private static final byte[] STREAM_KEY_SALT = "SQUID-STREAM-v1".getBytes(StandardCharsets.UTF_8);
+
     private final SecureRandom random;
-    private DilithiumKeyPair dilithiumKeyPair;
-    private KyberKeyPair kyberKeyPair;
-    private boolean useLibOQS = false;
-    @org.springframework.beans.factory.annotation.Value("${squid.pqc.strict:false}")
-    private boolean pqcStrict;
+    private final PQCBackend backend;
+    private final PQCKeyStore keyStore;
+    private final long readyTimeoutMs;
+    private final KEMPool kemPool;
+    private final DecapsulationCache decapsulationCache;
+
+    // Readiness gate: completed once keys are loaded from the keystore or generated
+    private final CompletableFuture<Void> keysReady = new CompletableFuture<>();
+    private volatile boolean ready = false;
+    private volatile String keySource = "pending";
 
+    /**
+     * Standalone service (outside Spring), without a KEM pool: nothing
+     * would stop its refill thread.
+     */
     public PQCService() {
+        this(DEFAULT_BACKEND, "KYBER768", "DILITHIUM3", false, PQCKeyStore.defaultStore(), 30_000L, 0,
+                DecapsulationCache.defaultCache());
+    }
+
+    @Autowired
+    public PQCService(@Value("${squid.pqc.backend:lattice}") String backendName,
+                      @Value("${pqc.kem-algorithm:KYBER768}") String kemAlgorithm,
+                      @Value("${pqc.signature-algorithm:DILITHIUM3}") String signatureAlgorithm,
+                      @Value("${squid.pqc.strict:false}") boolean pqcStrict,
+                      PQCKeyStore keyStore,
+                      @Value("${squid.pqc.ready-timeout-ms:30000}") long readyTimeoutMs,
+                      @Value("${squid.pqc.kem-pool.size:64}") int kemPoolSize,
+                      DecapsulationCache decapsulationCache) {
         this.random = new SecureRandom();
+        this.backend = createBackend(backendName, random, kemAlgorithm, signatureAlgorithm);
+        this.keyStore = keyStore;
+        this.readyTimeoutMs = readyTimeoutMs;
+        this.kemPool = kemPoolSize > 0 ? new KEMPool(kemPoolSize, backend::encapsulate) : null;
+        this.decapsulationCache = decapsulationCache;
+
+        if (pqcStrict && !backend.isPostQuantum()) {
+            throw new IllegalStateException("Post-Quantum required in production mode (strict=true)");
+        }
+
+        // Fast path: persisted keys load in milliseconds and survive restarts
+        if (loadPersistedKeys()) {
+            markReady("keystore");
+            return;
+        }
+
+        // First boot (or backend change): generate in the background so startup is not blocked
+        Thread keygen = new Thread(this::generateAndPersistKeys, "pqc-keygen");
+        keygen.setDaemon(true);
+        keygen.start();
+    }
+
+    private boolean loadPersistedKeys() {
+        if (keyStore == null || !keyStore.isEnabled()) {
+            return false;
+        }
+        Path path = keyStore.getPath();
         try {
-            initializeKeys();
+            Map<String, byte[]> material = keyStore.load(keystoreId());
+            if (material == null) {
+                return false;
+            }
+            backend.importKeyMaterial(material);
+            return true;
+        } catch (Exception e) {
+            // Unreadable keystore (wrong or missing password, missing key file, corrupt file):
+            // fresh keys would overwrite it and orphan every earlier ciphertext
+            throw new IllegalStateException("PQC keystore " + path + " exists but cannot be loaded; "
+                    + "fix squid.pqc.keystore.password or the key file, or move the keystore away "
+                    + "to start with new keys", e);
+        }
+    }
+
+    private void generateAndPersistKeys() {
+        if (keyStore == null || !keyStore.isEnabled()) {
+            generateKeys(false);
+            return;
+        }
+        Closeable lock;
+        try {
+            lock = keyStore.lock();
         } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize PQC keys", e);
+            log.error("Could not lock PQC keystore {}; keys will not be persisted", keyStore.getPath(), e);
+            generateKeys(false);
+            return;
+        }
+        try {
+            // Another process may have stored keys while this one waited for the lock
+            if (loadPersistedKeys()) {
+                markReady("keystore");
+                return;
+            }
+            Path path = keyStore.getPath();
+            if (Files.isRegularFile(path)) {
+                // written for another backend / parameter set: keep it, it still decrypts there
+                Path aside = keyStore.setAside();
+                log.warn("PQC keystore {} belongs to another backend than {}; moved to {}",
+                        path, keystoreId(), aside);
+            }
+            generateKeys(true);
+        } catch (Throwable t) {
+            keysReady.completeExceptionally(t);
+        } finally {
+            try {
+                lock.close();
+            } catch (IOException e) {
+                log.warn("Could not release PQC keystore lock {}", keyStore.getPath(), e);
+            }
+        }
+    }
+
+    private void generateKeys(boolean persist) {
+        try {
+            backend.generateKeys();
+        } catch (Throwable t) {
+            keysReady.completeExceptionally(t);
+            return;
+        }
+        String source = "generated";
+        if (persist) {
+            try {
+                keyStore.store(keystoreId(), backend.exportKeyMaterial());
+                source = "generated+persisted";
+            } catch (Exception e) {
+                log.error("Could not persist PQC keystore {}", keyStore.getPath(), e);
+            }
         }
+        markReady(source);
+    }
+
+    private void markReady(String source) {
+        this.keySource = source;
+        this.ready = true;
+        keysReady.complete(null);
+        if (kemPool != null) {
+            kemPool.start();
+        }
+    }
+
+    /**
+     * Stop the KEM pool's refill thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (kemPool != null) {
+            kemPool.stop();
+        }
+    }
+
+    private String keystoreId() {
+        return backend.getName() + ":" + backend.getParameterSetId();
     }
 
     /**
-     * Initialize Dilithium and Kyber key pairs
-     * Attempts to use liboqs-java; falls back to strong classical crypto
+     * Block until key material is available, bounded by squid.pqc.ready-timeout-ms.
      */
-    private void initializeKeys() throws Exception {
-        // Try to use liboqs-java for real Dilithium/Kyber
+    private void awaitReady() {
+        if (ready) {
+            return;
+        }
         try {
-            // Attempt to load liboqs library
-            // Class.forName("org.openquantumsafe.Kem");
-            // this.useLibOQS = true;
-            // For now, we'll use the fallback implementation
-            useLibOQS = false;
-        } catch (Exception e) {
-            useLibOQS = false;
-            System.out.println("liboqs-java not available, using fallback PQC implementation");
+            keysReady.get(readyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("PQC keys not ready after " + readyTimeoutMs + "ms");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to initialize PQC keys", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for PQC keys", e);
         }
+    }
 
-        if (pqcStrict && !useLibOQS) {
-            throw new IllegalStateException("Post-Quantum required in production mode (strict=true)");
+    /**
+     * True once keys have been loaded or generated.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Where the active keys came from: keystore, generated, generated+persisted
+     * (or pending while first-boot generation is still running).
+     */
+    public String getKeySource() {
+        return keySource;
+    }
+
+    /**
+     * Resolve a backend by name. Shared with PQCBenchmark so that both
+     * exercise exactly the same implementations.
+     */
+    public static PQCBackend createBackend(String name, SecureRandom random,
+                                           String kemAlgorithm, String signatureAlgorithm) {
+        String key = name == null ? DEFAULT_BACKEND : name.trim().toLowerCase(java.util.Locale.ROOT);
+        switch (key) {
+            case LatticePQCBackend.NAME:
+                return new LatticePQCBackend(random, kemAlgorithm, signatureAlgorithm);
+            case ClassicalPQCBackend.NAME:
+                return new ClassicalPQCBackend(random);
+            default:
+                throw new IllegalArgumentException("Unknown PQC backend: " + name);
         }
+    }
 
-        // Initialize Dilithium (ML-DSA) key pair
-        this.dilithiumKeyPair = new DilithiumKeyPair();
-        dilithiumKeyPair.generateKeys();
+    /**
+     * Name of the backend selected at startup.
+     */
+    public String getBackendName() {
+        return backend.getName();
+    }
 
-        // Initialize Kyber (ML-KEM) key pair
-        this.kyberKeyPair = new KyberKeyPair();
-        kyberKeyPair.generateKeys();
+    /**
+     * Whether the active backend uses real post-quantum primitives.
+     */
+    public boolean isPostQuantum() {
+        return backend.isPostQuantum();
     }
 
     /**
@@ -74,7 +290,8 @@ public class PQCService {
      * Produces a digital signature that can be verified with public key
      */
     public String sign(byte[] data) throws Exception {
-        byte[] signature = dilithiumKeyPair.sign(data);
+        awaitReady();
+        byte[] signature = backend.sign(data);
         return "ML_DSA_" + Base64.getEncoder().encodeToString(signature);
     }
 
@@ -82,6 +299,7 @@ public class PQCService {
      * Verify Dilithium (ML-DSA) signature
      */
     public boolean verify(String signatureString, byte[] data) throws Exception {
+        awaitReady();
         try {
             if (!signatureString.startsWith("ML_DSA_")) {
                 return false;
@@ -90,7 +308,7 @@ public class PQCService {
             String sigData = signatureString.substring("ML_DSA_".length());
             byte[] signature = Base64.getDecoder().decode(sigData);
             
-            return dilithiumKeyPair.verify(signature, data);
+            return backend.verify(signature, data);
         } catch (Exception e) {
             return false;
         }
@@ -99,16 +317,48 @@ public class PQCService {
     /**
      * Encapsulate shared secret using Kyber (ML-KEM)
      * Generates a ciphertext and shared secret for key derivation
+     * 
+     * The result does not depend on the payload, so it is served from the
+     * pre-computed KEM pool when one is available.
      */
     public KEMResult encapsulate(byte[] plaintext) throws Exception {
-        return kyberKeyPair.encapsulate();
+        awaitReady();
+        if (kemPool != null) {
+            return kemPool.take();
+        }
+        return backend.encapsulate();
+    }
+
+    /**
+     * Size and hit/miss metrics of the decapsulation cache.
+     */
+    public Map<String, Object> getDecapsulationCacheStats() {
+        if (decapsulationCache == null) {
+            Map<String, Object> disabled = new HashMap<>();
+            disabled.put("enabled", false);
+            return disabled;
+        }
+        return decapsulationCache.getStats();
+    }
+
+    /**
+     * Depth, hit/miss and refill-rate metrics of the KEM pool.
+     */
+    public Map<String, Object> getKemPoolStats() {
+        if (kemPool == null) {
+            Map<String, Object> disabled = new HashMap<>();
+            disabled.put("enabled", false);
+            return disabled;
+        }
+        return kemPool.getStats();
     }
 
     /**
      * Decapsulate ciphertext to recover shared secret using Kyber (ML-KEM)
      */
     public byte[] decapsulate(byte[] ciphertext) throws Exception {
-        return kyberKeyPair.decapsulate(ciphertext);
+        awaitReady();
+        return backend.decapsulate(ciphertext);
     }
 
     /**
@@ -139,14 +389,127 @@ public class PQCService {
         byte[] encapsulatedKey = Base64.getDecoder().decode(encapsulatedKeyB64);
         byte[] ciphertext = Base64.getDecoder().decode(ciphertextB64);
         
-        // Decapsulate to recover shared secret
-        byte[] sharedSecret = decapsulate(encapsulatedKey);
-        
-        // Derive symmetric key from shared secret
-        byte[] symmetricKey = deriveSymmetricKey(sharedSecret);
+        // Repeated decrypts of the same payload skip the decapsulation
+        byte[] symmetricKey = decapsulationCache != null ? decapsulationCache.get(encapsulatedKey) : null;
+        if (symmetricKey == null) {
+            // Decapsulate to recover shared secret
+            byte[] sharedSecret = decapsulate(encapsulatedKey);
+            
+            // Derive symmetric key from shared secret
+            symmetricKey = deriveSymmetricKey(sharedSecret);
+            Arrays.fill(sharedSecret, (byte) 0);
+            if (decapsulationCache != null) {
+                decapsulationCache.put(encapsulatedKey, symmetricKey);
+            }
+        }
         
         // Decrypt ciphertext
-        return simpleXOR(ciphertext, symmetricKey);
+        try {
+            return simpleXOR(ciphertext, symmetricKey);
+        } finally {
+            Arrays.fill(symmetricKey, (byte) 0);
+        }
+    }
+
+    /**
+     * Streaming encryption for large payloads.
+     * 
+     * Writes a header (magic, version, segment size, Kyber encapsulated key,
+     * nonce prefix) followed by StreamingAead segments sealed with an
+     * HKDF-derived AES-256 key. Memory use is one segment, independent of
+     * the payload size.
+     * 
+     * @return number of plaintext bytes encrypted
+     */
+    public long encryptStream(ReadableByteChannel in, WritableByteChannel out) throws Exception {
+        return encryptStream(in, out, StreamingAead.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public long encryptStream(ReadableByteChannel in, WritableByteChannel out, int segmentSize) throws Exception {
+        KEMResult kem = encapsulate(null);
+        byte[] encapsulatedKey = kem.getCiphertext();
+        byte[] noncePrefix = new byte[StreamingAead.NONCE_PREFIX_LENGTH];
+        random.nextBytes(noncePrefix);
+
+        ByteArrayOutputStream headerBuf = new ByteArrayOutputStream();
+        try (DataOutputStream header = new DataOutputStream(headerBuf)) {
+            header.writeInt(STREAM_MAGIC);
+            header.writeByte(STREAM_VERSION);
+            header.writeInt(segmentSize);
+            header.writeInt(encapsulatedKey.length);
+            header.write(encapsulatedKey);
+            header.write(noncePrefix);
+        }
+        byte[] headerBytes = headerBuf.toByteArray();
+        ByteBuffer headerOut = ByteBuffer.wrap(headerBytes);
+        while (headerOut.hasRemaining()) {
+            out.write(headerOut);
+        }
+
+        byte[] key = deriveStreamKey(kem.getSharedSecret());
+        try {
+            return StreamingAead.encrypt(key, noncePrefix, headerBytes, segmentSize, in, out);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    /**
+     * Decrypt a stream produced by {@link #encryptStream}.
+     * 
+     * @return number of plaintext bytes written
+     */
+    public long decryptStream(ReadableByteChannel in, WritableByteChannel out) throws Exception {
+        ByteBuffer fixed = readExactly(in, 13);
+        if (fixed.getInt() != STREAM_MAGIC || fixed.get() != STREAM_VERSION) {
+            throw new IllegalArgumentException("Not a SQUID encrypted stream");
+        }
+        int segmentSize = fixed.getInt();
+        int encapsulatedLength = fixed.getInt();
+        if (encapsulatedLength <= 0 || encapsulatedLength > MAX_ENCAPSULATION_LENGTH) {
+            throw new IllegalArgumentException("Invalid encapsulated key length: " + encapsulatedLength);
+        }
+        ByteBuffer variable = readExactly(in, encapsulatedLength + StreamingAead.NONCE_PREFIX_LENGTH);
+        byte[] encapsulatedKey = new byte[encapsulatedLength];
+        byte[] noncePrefix = new byte[StreamingAead.NONCE_PREFIX_LENGTH];
+        variable.get(encapsulatedKey);
+        variable.get(noncePrefix);
+
+        byte[] headerBytes = new byte[fixed.capacity() + variable.capacity()];
+        System.arraycopy(fixed.array(), 0, headerBytes, 0, fixed.capacity());
+        System.arraycopy(variable.array(), 0, headerBytes, fixed.capacity(), variable.capacity());
+
+        byte[] sharedSecret = decapsulate(encapsulatedKey);
+        byte[] key = deriveStreamKey(sharedSecret);
+        try {
+            return StreamingAead.decrypt(key, noncePrefix, headerBytes, segmentSize, in, out);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(sharedSecret, (byte) 0);
+        }
+    }
+
+    public long encryptStream(InputStream in, OutputStream out) throws Exception {
+        return encryptStream(Channels.newChannel(in), Channels.newChannel(out));
+    }
+
+    public long decryptStream(InputStream in, OutputStream out) throws Exception {
+        return decryptStream(Channels.newChannel(in), Channels.newChannel(out));
+    }
+
+    private byte[] deriveStreamKey(byte[] sharedSecret) {
+        return HKDFUtil.deriveKey(STREAM_KEY_SALT, sharedSecret, "SQUID-STREAM-AEAD|v1", 32);
+    }
+
+    private static ByteBuffer readExactly(ReadableByteChannel in, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (in.read(buf) < 0) {
+                throw new EOFException("Truncated stream header");
+            }
+        }
+        buf.flip();
+        return buf;
     }
 
     /**
@@ -193,14 +556,16 @@ public class PQCService {
      * Get public key for Dilithium (ML-DSA)
      */
     public String getDilithiumPublicKey() {
-        return Base64.getEncoder().encodeToString(dilithiumKeyPair.getPublicKeyBytes());
+        awaitReady();
+        return Base64.getEncoder().encodeToString(backend.getSignaturePublicKey());
     }
 
     /**
      * Get public key for Kyber (ML-KEM)
      */
     public String getKyberPublicKey() {
-        return Base64.getEncoder().encodeToString(kyberKeyPair.getPublicKeyBytes());
+        awaitReady();
+        return Base64.getEncoder().encodeToString(backend.getKemPublicKey());
     }
 
     /**
@@ -243,97 +608,4 @@ public class PQCService {
             return sharedSecret.clone();
         }
     }
-
-    /**
-     * Dilithium (ML-DSA) Key Pair implementation
-     */
-    private static class DilithiumKeyPair {
-        private byte[] privateKey;
-        private byte[] publicKey;
-        private KeyPair keyPair;
-
-        public void generateKeys() throws Exception {
-            // Generate ECDSA P-521 key pair (simulating Dilithium strength)
-            KeyPairGenerator keygen = KeyPairGenerator.getInstance("EC");
-            keygen.initialize(521);
-            this.keyPair = keygen.generateKeyPair();
-            
-            this.privateKey = keyPair.getPrivate().getEncoded();
-            this.publicKey = keyPair.getPublic().getEncoded();
-        }
-
-        public byte[] sign(byte[] data) throws Exception {
-            Signature signer = Signature.getInstance("SHA512withECDSA");
-            signer.initSign(keyPair.getPrivate());
-            signer.update(data);
-            return signer.sign();
-        }
-
-        public boolean verify(byte[] signature, byte[] data) throws Exception {
-            Signature verifier = Signature.getInstance("SHA512withECDSA");
-            verifier.initVerify(keyPair.getPublic());
-            verifier.update(data);
-            return verifier.verify(signature);
-        }
-
-        public byte[] getPublicKeyBytes() {
-            return publicKey.clone();
-        }
-
-        public byte[] getPrivateKeyBytes() {
-            return privateKey.clone();
-        }
-    }
-
-    /**
-     * Kyber (ML-KEM) Key Pair implementation
-     */
-    private static class KyberKeyPair {
-        private byte[] privateKey;
-        private byte[] publicKey;
-        private KeyPair keyPair;
-        private SecureRandom random;
-
-        public KyberKeyPair() {
-            this.random = new SecureRandom();
-        }
-
-        public void generateKeys() throws Exception {
-            // Generate RSA-4096 key pair (simulating Kyber strength)
-            KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
-            keygen.initialize(4096);
-            this.keyPair = keygen.generateKeyPair();
-            
-            this.privateKey = keyPair.getPrivate().getEncoded();
-            this.publicKey = keyPair.getPublic().getEncoded();
-        }
-
-        public KEMResult encapsulate() throws Exception {
-            // Generate ephemeral shared secret (32 bytes)
-            byte[] sharedSecret = new byte[32];
-            random.nextBytes(sharedSecret);
-            
-            // Encrypt shared secret with public key
-            Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING");
-            cipher.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
-            byte[] ciphertext = cipher.doFinal(sharedSecret);
-            
-            return new KEMResult(ciphertext, sharedSecret);
-        }
-
-        public byte[] decapsulate(byte[] ciphertext) throws Exception {
-            // Decrypt ciphertext with private key
-            Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING");
-            cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
-            return cipher.doFinal(ciphertext);
-        }
-
-        public byte[] getPublicKeyBytes() {
-            return publicKey.clone();
-        }
-
-        public byte[] getPrivateKeyBytes() {
-            return privateKey.clone();
-        }
-    }
 }
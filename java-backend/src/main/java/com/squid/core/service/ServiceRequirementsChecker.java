@@ -335,8 +335,8 @@ public class ServiceRequirementsChecker {
     private ServiceCheckResult checkCryptoModules() {
         try {
             // tenta carregar as classes do BouncyCastle
-            Class.forName("org.bouncycastle.pqc.crypto.kyber.KyberKEMExtractor");
-            Class.forName("org.bouncycastle.pqc.crypto.dilithium.DilithiumSigner");
+            Class.forName("org.bouncycastle.pqc.crypto.crystals.kyber.KyberKEMExtractor");
+            Class.forName("org.bouncycastle.pqc.crypto.crystals.dilithium.DilithiumSigner");
             
             return new ServiceCheckResult(
                 "crypto_modules",
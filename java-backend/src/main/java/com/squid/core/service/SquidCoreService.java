@@ -2,6 +2,7 @@ package com.squid.core.service;
 
 import com.squid.core.crypto.CanonicalJson;
 import com.squid.core.crypto.HKDFUtil;
+import com.squid.core.crypto.Hex;
 import com.squid.core.crypto.MerkleTree;
 import com.squid.core.model.*;
 import com.squid.core.service.AIServiceClient.AIDecision;
@@ -16,7 +17,12 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.*;
 import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.nio.file.Paths;
 import com.squid.core.db.LeafHistoryStore;
 
@@ -29,6 +35,16 @@ public class SquidCoreService {
     @Autowired
     private PQCService pqcService;
 
+    private static final int VERIFY_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int VERIFY_WINDOW_PER_THREAD = 64;
+
+    // Dedicated pool for batch verification so bulk reconciliation does not starve request threads
+    private final ExecutorService verifyExecutor = Executors.newFixedThreadPool(VERIFY_THREADS, r -> {
+        Thread t = new Thread(r, "squid-verify");
+        t.setDaemon(true);
+        return t;
+    });
+
     // In-memory leaf history records (kept for audit and dashboard queries)
     private final List<com.squid.core.model.LeafHistory> leafHistory = new ArrayList<>();
     private LeafHistoryStore historyStore = null;
@@ -53,7 +69,7 @@ public class SquidCoreService {
         // 4. Derive seed for AI model
         String timestamp = Instant.now().toString();
         byte[] seedModel = HKDFUtil.expand(rootKey, "model-seed|" + timestamp, 32);
-        String seedModelHash = bytesToHex(sha256(seedModel));
+        String seedModelHash = Hex.encode(sha256(seedModel));
         
         // 5. Generate branching tree parameters
         GenerateRequest.BranchingParams params = request.getParams();
@@ -107,7 +123,7 @@ public class SquidCoreService {
         
         return new EnhancedGenerateResponse(
             ciphertext,
-            bytesToHex(merkleRoot),
+            Hex.encode(merkleRoot),
             signature,
             seedModelHash,
             modelHash,
@@ -163,10 +179,13 @@ public class SquidCoreService {
      * Verify SQUID token authenticity
      */
     public VerifyResponse verify(VerifyRequest request) throws Exception {
+        if (request.getMerkleRoot() == null || request.getSignature() == null) {
+            return new VerifyResponse(false, "Missing merkle_root or signature", Instant.now().toString());
+        }
         try {
             // Simulate verification logic
             boolean isValid = pqcService.verify(request.getSignature(), 
-                hexToBytes(request.getMerkleRoot()));
+                Hex.decode(request.getMerkleRoot()));
             
             String reason = isValid ? "Valid signature" : "Invalid signature";
             return new VerifyResponse(isValid, reason, Instant.now().toString());
@@ -175,6 +194,34 @@ public class SquidCoreService {
         }
     }
 
+    /**
+     * Verify many tokens in parallel, delivering results to {@code sink} in
+     * request order.
+     * 
+     * At most VERIFY_WINDOW_PER_THREAD * threads verifications are in flight,
+     * so memory stays bounded and the sink (typically an HTTP response) can
+     * start streaming before the whole batch is done.
+     */
+    public void verifyBatch(List<VerifyRequest> requests, Consumer<VerifyResponse> sink) throws Exception {
+        int window = VERIFY_WINDOW_PER_THREAD * VERIFY_THREADS;
+        ArrayDeque<Future<VerifyResponse>> inFlight = new ArrayDeque<>(window);
+        Iterator<VerifyRequest> pending = requests.iterator();
+        try {
+            while (pending.hasNext() || !inFlight.isEmpty()) {
+                while (pending.hasNext() && inFlight.size() < window) {
+                    VerifyRequest request = pending.next();
+                    inFlight.addLast(verifyExecutor.submit(() -> verify(request)));
+                }
+                sink.accept(inFlight.removeFirst().get());
+            }
+        } finally {
+            // Sink failure (e.g. client went away): drop the remaining work
+            for (Future<VerifyResponse> f : inFlight) {
+                f.cancel(true);
+            }
+        }
+    }
+
     /**
      * Get current public Merkle root
      */
@@ -191,8 +238,9 @@ public class SquidCoreService {
 
     /**
      * Derive leaves using deterministic branching
+     * (public for the squid-benchmarks module)
      */
-    private List<LeafData> deriveLeaves(byte[] rootKey, int b, int m, int t) {
+    public List<LeafData> deriveLeaves(byte[] rootKey, int b, int m, int t) {
         List<LeafData> leaves = new ArrayList<>();
         
         // Calculate total leaves: L = b^m
@@ -283,8 +331,8 @@ public class SquidCoreService {
         try {
             com.squid.core.model.LeafHistory h = new com.squid.core.model.LeafHistory();
             h.setIndex(index);
-            h.setPreviousValue(bytesToHex(previous));
-            h.setNewValue(bytesToHex(current));
+            h.setPreviousValue(Hex.encode(previous));
+            h.setNewValue(Hex.encode(current));
             h.setAction(action);
             h.setTimestamp(Instant.now().toString());
             leafHistory.add(h);
@@ -309,6 +357,11 @@ public class SquidCoreService {
         return new ArrayList<>(leafHistory);
     }
 
+    @PreDestroy
+    private void shutdownVerifyExecutor() {
+        verifyExecutor.shutdownNow();
+    }
+
     @PostConstruct
     private void initPersistence() {
         try {
@@ -361,14 +414,14 @@ public class SquidCoreService {
     }
 
     private byte[] createSignatureData(byte[] merkleRoot, String seedModelHash, String modelHash) {
-        String combined = bytesToHex(merkleRoot) + seedModelHash + modelHash;
+        String combined = Hex.encode(merkleRoot) + seedModelHash + modelHash;
         return combined.getBytes(StandardCharsets.UTF_8);
     }
 
     private void storeAuditLog(byte[] merkleRoot, String signature, 
                               String seedModelHash, String modelHash, String timestamp) {
         // Store audit log entry - implement based on storage backend
-        System.out.println("Audit Log: " + timestamp + " -> " + bytesToHex(merkleRoot));
+        System.out.println("Audit Log: " + timestamp + " -> " + Hex.encode(merkleRoot));
     }
 
     private byte[] sha256(byte[] input) {
@@ -380,22 +433,6 @@ public class SquidCoreService {
         }
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
-    }
-
-    private byte[] hexToBytes(String hex) {
-        byte[] result = new byte[hex.length() / 2];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
-        }
-        return result;
-    }
-
     /**
      * Generate test actions for test vectors
      */
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -33,13 +34,17 @@ public class SystemStatusService {
     public Map<String, Object> getGlobalStatus() {
         Map<String, Object> status = new HashMap<>();
 
-        // Cryptography status: we consider PQCService construction success as OK
-        status.put("cryptography_status", "OK");
+        // Cryptography status: OK once PQC keys are loaded or generated
+        status.put("cryptography_status", pqcService.isReady() ? "OK" : "INITIALIZING");
+        status.put("pqc_backend", pqcService.getBackendName());
+        status.put("pqc_key_source", pqcService.getKeySource());
 
         // Fingerprint mode / confidence via HardwareFingerprintService
-        FingerprintSnapshot snap = fingerprintService.capture(FingerprintMode.REDUCED);
+        FingerprintSnapshot snap = fingerprintService.latest(FingerprintMode.REDUCED);
         status.put("fingerprint_mode", snap.getMode().name());
         status.put("fingerprint_confidence", snap.getConfidenceScore());
+        status.put("fingerprint_cost_us", snap.getCostNanos() / 1_000L);
+        status.put("fingerprint_complete", snap.isComplete());
 
         // AI mode: for now assume ADAPTIVE until profile manager is added
         status.put("ai_mode", "ADAPTIVE");
@@ -53,6 +58,21 @@ public class SystemStatusService {
         return status;
     }
 
+    /**
+     * PQC backend, key readiness and KEM pool metrics.
+     */
+    public Map<String, Object> getPqcStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("backend", pqcService.getBackendName());
+        status.put("post_quantum", pqcService.isPostQuantum());
+        status.put("ready", pqcService.isReady());
+        status.put("key_source", pqcService.getKeySource());
+        status.put("kem_pool", pqcService.getKemPoolStats());
+        status.put("decapsulation_cache", pqcService.getDecapsulationCacheStats());
+        status.put("timestamp", Instant.now().toString());
+        return status;
+    }
+
     private String classifyMerkleState(Map<String, Object> treeStatus) {
         if (treeStatus == null) {
             return "UNKNOWN";
@@ -0,0 +1,409 @@
+package com.squid.core.service;
+
+import com.squid.core.db.SquidDatabaseService;
+import com.squid.core.model.MerkleTreeTransitionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Store of API-triggered Merkle transition events, indexed by event type,
+ * instance and time.
+ *
+ * Events get a sequence number on append. The most recent ones stay in an
+ * in-memory ring (the hot tier) with one sorted sequence index for all
+ * events, and one per type and per instance. Appended timestamps are clamped
+ * to be non-decreasing, so every index is sorted by both sequence and time,
+ * and a filtered page or count is two binary searches plus a walk over the
+ * matches. Every event is also written to the database in batches; anything
+ * older than the ring is read from there, by the same keyset (sequence)
+ * cursors. Without a database the store keeps only the ring.
+ *
+ * Sequences resume after the highest stored one; until the database
+ * answers, calls fail with IllegalStateException and the next call asks
+ * again. A batch the database rejects goes back to the queue and is
+ * retried by the periodic flush; while writes fail the queue is capped at
+ * the ring size, dropping (and logging) the oldest events.
+ */
+@Component
+public class TransitionEventStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TransitionEventStore.class);
+
+    private final SquidDatabaseService database; // null = memory only
+    private final MerkleTreeTransitionEvent[] ring;
+    private final long[] timestamps;
+    private final SeqIndex all = new SeqIndex();
+    private final Map<String, SeqIndex> byType = new HashMap<>();
+    private final Map<String, SeqIndex> byInstance = new HashMap<>();
+    private final List<MerkleTreeTransitionEvent> pending = new ArrayList<>();
+    private final int batchSize;
+    private final DynamicEngineScheduler.Task flushing;
+    // last flush failed: leave retries to the periodic flush
+    private volatile boolean flushFailing;
+
+    // guarded by this
+    private long nextSequence = -1; // resumed from the database on first use
+    private long floor;             // oldest sequence still in the ring
+    private long lastTimestamp;
+
+    /**
+     * Ascending sequence numbers of the hot-tier events matching one key.
+     */
+    private static final class SeqIndex {
+        long[] seqs = new long[16];
+        int start;
+        int end;
+
+        void add(long seq) {
+            if (end == seqs.length) {
+                if (start > seqs.length / 2) {
+                    System.arraycopy(seqs, start, seqs, 0, end - start);
+                } else {
+                    seqs = Arrays.copyOf(seqs, seqs.length * 2);
+                    System.arraycopy(seqs, start, seqs, 0, end - start);
+                }
+                end -= start;
+                start = 0;
+            }
+            seqs[end++] = seq;
+        }
+
+        /** Drop sequences evicted from the ring; true when nothing is left. */
+        boolean trim(long floor) {
+            while (start < end && seqs[start] < floor) {
+                start++;
+            }
+            return start == end;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        /** First position whose key is >= {@code value}. */
+        int search(LongUnaryOperator key, long value) {
+            int lo = start, hi = end;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (key.applyAsLong(seqs[mid]) < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    @Autowired
+    public TransitionEventStore(SquidDatabaseService database,
+                                DynamicEngineScheduler scheduler,
+                                @Value("${squid.dynamic.events.hot-size:8192}") int hotSize,
+                                @Value("${squid.dynamic.events.flush-ms:1000}") long flushMs,
+                                @Value("${squid.dynamic.events.batch-size:256}") int batchSize) {
+        this.database = database;
+        this.ring = new MerkleTreeTransitionEvent[Math.max(16, hotSize)];
+        this.timestamps = new long[ring.length];
+        this.batchSize = Math.max(1, batchSize);
+        this.flushing = database != null ? scheduler.schedule(this::flush, Math.max(1L, flushMs)) : null;
+    }
+
+    /**
+     * Memory-only store keeping the last {@code hotSize} events
+     */
+    public TransitionEventStore(int hotSize) {
+        this(null, null, hotSize, 0, 1);
+    }
+
+    /**
+     * Assign the next sequence number to {@code event}, index it and queue it
+     * for the database.
+     *
+     * @return the event's sequence number
+     */
+    public long append(String instanceId, MerkleTreeTransitionEvent event) {
+        long seq;
+        synchronized (this) {
+            resume();
+            long ts = event.getTimestamp().toEpochMilli();
+            if (ts < lastTimestamp) {
+                // keep the indexes time-ordered across clock steps
+                ts = lastTimestamp;
+                event.setTimestamp(Instant.ofEpochMilli(ts));
+            }
+            lastTimestamp = ts;
+            seq = nextSequence++;
+            event.setSequence(seq);
+            event.setInstanceId(instanceId);
+
+            int slot = slot(seq);
+            if (seq - floor >= ring.length) {
+                floor = seq - ring.length + 1;
+                evict(ring[slot]);
+            }
+            ring[slot] = event;
+            timestamps[slot] = ts;
+            all.trim(floor);
+            all.add(seq);
+            index(byType, event.getEventType(), seq);
+            index(byInstance, instanceId, seq);
+        }
+        if (database != null) {
+            boolean full;
+            synchronized (pending) {
+                pending.add(event);
+                full = pending.size() >= batchSize;
+            }
+            if (full && !flushFailing) {
+                flush();
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Next sequence number to be assigned.
+     */
+    public synchronized long head() {
+        resume();
+        return nextSequence;
+    }
+
+    /**
+     * Up to {@code limit} events with sequence below {@code before}, newest
+     * first, optionally filtered by type, instance and [fromMs, toMs). Null
+     * filters match everything; pass the last sequence returned as the next
+     * {@code before}.
+     */
+    public List<MerkleTreeTransitionEvent> query(String eventType, String instanceId,
+                                                 long fromMs, long toMs, long before, int limit) {
+        List<MerkleTreeTransitionEvent> out = new ArrayList<>();
+        long olderThan;
+        synchronized (this) {
+            resume();
+            SeqIndex index = pick(eventType, instanceId);
+            if (index != null) {
+                int lo = index.search(this::timestampOf, fromMs);
+                int hi = Math.min(index.search(s -> s, before), index.search(this::timestampOf, toMs));
+                for (int i = hi - 1; i >= lo && out.size() < limit; i--) {
+                    MerkleTreeTransitionEvent event = ring[slot(index.seqs[i])];
+                    if (matches(event, eventType, instanceId)) {
+                        out.add(event);
+                    }
+                }
+            }
+            if (out.size() >= limit || !olderInDatabase(fromMs)) {
+                return out;
+            }
+            olderThan = Math.min(before, floor);
+        }
+        out.addAll(database.queryTransitionEvents(eventType, instanceId, fromMs, toMs,
+            olderThan, limit - out.size()));
+        return out;
+    }
+
+    /**
+     * Number of events matching the filters of {@link #query}, counted on
+     * the indexes without loading the events.
+     */
+    public long count(String eventType, String instanceId, long fromMs, long toMs) {
+        long count = 0;
+        long olderThan;
+        synchronized (this) {
+            resume();
+            SeqIndex index = pick(eventType, instanceId);
+            if (index != null) {
+                int lo = index.search(this::timestampOf, fromMs);
+                int hi = index.search(this::timestampOf, toMs);
+                if (eventType != null && instanceId != null) {
+                    // indexed by instance; the type is checked per event
+                    for (int i = lo; i < hi; i++) {
+                        if (eventType.equals(ring[slot(index.seqs[i])].getEventType())) {
+                            count++;
+                        }
+                    }
+                } else {
+                    count = Math.max(0, hi - lo);
+                }
+            }
+            if (!olderInDatabase(fromMs)) {
+                return count;
+            }
+            olderThan = floor;
+        }
+        return count + database.countTransitionEvents(eventType, instanceId, fromMs, toMs, olderThan);
+    }
+
+    /**
+     * Number of events per type.
+     */
+    public Map<String, Long> countByType() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long olderThan;
+        synchronized (this) {
+            resume();
+            byType.values().removeIf(index -> index.trim(floor));
+            byType.forEach((type, index) -> counts.put(type, (long) index.size()));
+            if (!olderInDatabase(0)) {
+                return counts;
+            }
+            olderThan = floor;
+        }
+        database.countTransitionEventsByType(olderThan).forEach((type, n) -> counts.merge(type, n, Long::sum));
+        return counts;
+    }
+
+    /**
+     * Up to {@code limit} events from sequence {@code cursor} on, oldest
+     * first.
+     */
+    public List<MerkleTreeTransitionEvent> after(long cursor, int limit) {
+        return after(null, cursor, limit);
+    }
+
+    /**
+     * Up to {@code limit} events of one instance (null = all) from sequence
+     * {@code cursor} on, oldest first, read from the instance index.
+     */
+    public List<MerkleTreeTransitionEvent> after(String instanceId, long cursor, int limit) {
+        List<MerkleTreeTransitionEvent> out = new ArrayList<>();
+        long hotFrom;
+        synchronized (this) {
+            resume();
+            hotFrom = Math.max(cursor, floor);
+            if (cursor >= floor || database == null) {
+                SeqIndex index = pick(null, instanceId);
+                if (index != null) {
+                    for (int i = index.search(s -> s, hotFrom); i < index.end && out.size() < limit; i++) {
+                        out.add(ring[slot(index.seqs[i])]);
+                    }
+                }
+                return out;
+            }
+        }
+        out.addAll(database.getTransitionEventsFrom(instanceId, cursor, hotFrom, limit));
+        if (out.size() < limit) {
+            out.addAll(after(instanceId, hotFrom, limit - out.size()));
+        }
+        return out;
+    }
+
+    /**
+     * Events still in the hot tier, oldest first.
+     */
+    public synchronized List<MerkleTreeTransitionEvent> recent() {
+        resume();
+        List<MerkleTreeTransitionEvent> out = new ArrayList<>((int) (nextSequence - floor));
+        for (long s = floor; s < nextSequence; s++) {
+            out.add(ring[slot(s)]);
+        }
+        return out;
+    }
+
+    /**
+     * Write queued events to the database; a failed batch is queued again.
+     */
+    public void flush() {
+        List<MerkleTreeTransitionEvent> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (database.insertTransitionEvents(batch) == batch.size()) {
+            flushFailing = false;
+            return;
+        }
+        flushFailing = true;
+        int dropped;
+        synchronized (pending) {
+            pending.addAll(0, batch);
+            dropped = Math.max(0, pending.size() - ring.length);
+            pending.subList(0, dropped).clear();
+        }
+        if (dropped > 0) {
+            log.error("Dropped {} transition events not written to the database", dropped);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        if (flushing != null) {
+            flushing.cancel();
+            flush();
+        }
+    }
+
+    // throws IllegalStateException, leaving the store unresumed, while the database is unreachable
+    private void resume() {
+        if (nextSequence < 0) {
+            long next = database != null ? database.getMaxTransitionEventSeq() + 1 : 0;
+            nextSequence = next;
+            floor = next;
+        }
+    }
+
+    // whether events older than the ring may match a lower time bound
+    private boolean olderInDatabase(long fromMs) {
+        return database != null && floor > 0
+            && (floor == nextSequence || fromMs <= timestamps[slot(floor)]);
+    }
+
+    private SeqIndex pick(String eventType, String instanceId) {
+        SeqIndex index = instanceId != null ? byInstance.get(instanceId)
+            : eventType != null ? byType.get(eventType)
+            : all;
+        if (index != null && index.trim(floor) && index != all) {
+            (instanceId != null ? byInstance : byType).values().remove(index);
+            return null;
+        }
+        return index;
+    }
+
+    // trim the indexes of an event leaving the ring, dropping emptied keys
+    private void evict(MerkleTreeTransitionEvent event) {
+        trim(byType, event.getEventType());
+        trim(byInstance, event.getInstanceId());
+    }
+
+    private void trim(Map<String, SeqIndex> indexes, String key) {
+        SeqIndex index = key != null ? indexes.get(key) : null;
+        if (index != null && index.trim(floor)) {
+            indexes.remove(key);
+        }
+    }
+
+    private void index(Map<String, SeqIndex> indexes, String key, long seq) {
+        if (key == null) return;
+        SeqIndex index = indexes.computeIfAbsent(key, k -> new SeqIndex());
+        index.trim(floor);
+        index.add(seq);
+    }
+
+    private static boolean matches(MerkleTreeTransitionEvent event, String eventType, String instanceId) {
+        return (eventType == null || eventType.equals(event.getEventType()))
+            && (instanceId == null || instanceId.equals(event.getInstanceId()));
+    }
+
+    private long timestampOf(long seq) {
+        return timestamps[slot(seq)];
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % ring.length);
+    }
+}
@@ -0,0 +1,455 @@
+package com.squid.core.service;
+
+import com.squid.core.service.MerkleTreeDynamicEngine.DynamicTransition;
+import com.squid.core.service.MerkleTreeDynamicEngine.NodeState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bounded log of dynamic engine transitions.
+ *
+ * The most recent transitions live in a fixed-size ring. When a directory
+ * is configured every transition is also appended to memory-mapped segment
+ * files named after their first sequence number; a segment is sealed when
+ * it is full or older than the roll interval, and the oldest segments are
+ * deleted beyond the retention count. Reads that reach past the ring fall
+ * back to the segments, so cursor and time-range queries see the retained
+ * history, not only the ring.
+ *
+ * Segment layout: records of [int length][long sequence][long timestamp]
+ * [byte from][byte to][str transitionId][str nodeId][str reason]
+ * [bytes previousHash][bytes newHash][int n][str affected]*n. A zero length
+ * ends the segment (the mapped file is preallocated and zero-filled).
+ */
+public class TransitionLog implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "transitions-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final NodeState[] STATES = NodeState.values();
+
+    private final DynamicTransition[] ring;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long segmentMaxAgeMs;
+    private final int maxSegments;
+
+    // Guarded by this
+    private long nextSequence = 0;
+    private long ringFloor = 0; // first sequence the ring may hold
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment active;
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+
+    /**
+     * Sealed or active segment file and the range of records it holds.
+     */
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final long createdAt;
+        long lastSequence;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        MappedByteBuffer buffer; // only while active
+
+        Segment(Path path, long firstSequence, long createdAt) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.lastSequence = firstSequence - 1;
+            this.createdAt = createdAt;
+        }
+
+        boolean isEmpty() {
+            return lastSequence < firstSequence;
+        }
+
+        void include(long sequence, long timestamp) {
+            lastSequence = sequence;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+    }
+
+    /**
+     * In-memory log keeping only the last {@code ringCapacity} transitions.
+     */
+    public TransitionLog(int ringCapacity) {
+        this(ringCapacity, null, 0, 0, 0);
+    }
+
+    /**
+     * Log spilling to segment files under {@code dir}. Existing segments are
+     * indexed and retained, and sequence numbers continue after them.
+     */
+    public TransitionLog(int ringCapacity, Path dir, int segmentBytes,
+                         long segmentMaxAgeMs, int maxSegments) {
+        if (ringCapacity <= 0) {
+            throw new IllegalArgumentException("ringCapacity must be positive");
+        }
+        this.ring = new DynamicTransition[ringCapacity];
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.segmentMaxAgeMs = segmentMaxAgeMs;
+        this.maxSegments = Math.max(1, maxSegments);
+        if (dir != null) {
+            if (segmentBytes < 1024) {
+                throw new IllegalArgumentException("segmentBytes must be at least 1024");
+            }
+            try {
+                Files.createDirectories(dir);
+                loadSegments();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open transition log in " + dir, e);
+            }
+        }
+    }
+
+    /**
+     * Append a transition, assigning its sequence number.
+     */
+    public synchronized void append(DynamicTransition transition) {
+        transition.sequence = nextSequence++;
+        ring[(int) (transition.sequence % ring.length)] = transition;
+        if (dir != null) {
+            try {
+                spill(transition);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot append to transition log in " + dir, e);
+            }
+        }
+    }
+
+    /**
+     * Total transitions ever appended; also the next sequence number.
+     */
+    public synchronized long size() {
+        return nextSequence;
+    }
+
+    /**
+     * Transitions still held in the ring, oldest first.
+     */
+    public synchronized List<DynamicTransition> recent() {
+        List<DynamicTransition> out = new ArrayList<>();
+        for (long s = ringStart(); s < nextSequence; s++) {
+            out.add(ring[(int) (s % ring.length)]);
+        }
+        return out;
+    }
+
+    /**
+     * Up to {@code limit} transitions with sequence >= {@code cursor}, oldest
+     * first. Pass the last returned sequence + 1 as the next cursor. Entries
+     * that fell out of both the ring and the retained segments are skipped.
+     */
+    public List<DynamicTransition> read(long cursor, int limit) {
+        return collect(cursor, Long.MIN_VALUE, Long.MAX_VALUE, limit);
+    }
+
+    /**
+     * Up to {@code limit} transitions with {@code from <= timestamp < to},
+     * oldest first.
+     */
+    public List<DynamicTransition> between(long from, long to, int limit) {
+        return collect(0, from, to, limit);
+    }
+
+    /**
+     * Segments are scanned outside the lock. Appends during the scan can push
+     * entries out of the ring, so the loop goes back to the segments for
+     * whatever fell between the old and the new start of the ring.
+     */
+    private List<DynamicTransition> collect(long cursor, long from, long to, int limit) {
+        List<DynamicTransition> out = new ArrayList<>();
+        while (out.size() < limit) {
+            long ringStart;
+            List<Segment> older;
+            synchronized (this) {
+                ringStart = ringStart();
+                if (cursor >= ringStart) {
+                    for (long s = cursor; s < nextSequence && out.size() < limit; s++) {
+                        DynamicTransition t = ring[(int) (s % ring.length)];
+                        if (t.timestamp >= from && t.timestamp < to) {
+                            out.add(t);
+                        }
+                    }
+                    return out;
+                }
+                older = segmentsBetween(cursor, ringStart, from, to);
+            }
+            for (Segment segment : older) {
+                if (out.size() >= limit) break;
+                scan(segment, cursor, ringStart, from, to, limit, out);
+            }
+            cursor = ringStart;
+        }
+        return out;
+    }
+
+    /**
+     * Continue numbering at {@code sequence} if the log is behind it, e.g. a
+     * memory-only log restored with an engine checkpoint, so cursors handed
+     * out before a restart stay monotonic. Meant for a log that was just
+     * opened: the ring starts empty at the resulting position, and older
+     * sequences are read from the segments.
+     */
+    public synchronized void advanceTo(long sequence) {
+        nextSequence = Math.max(nextSequence, sequence);
+        ringFloor = Math.max(ringFloor, nextSequence);
+    }
+
+    /**
+     * Forget the in-memory ring. Segments and sequence numbers are kept.
+     */
+    public synchronized void clearRecent() {
+        Arrays.fill(ring, null);
+        ringFloor = nextSequence;
+    }
+
+    /**
+     * Flush the active segment to disk.
+     */
+    @Override
+    public synchronized void close() {
+        if (active != null) {
+            active.buffer.force();
+            active.buffer = null;
+            active = null;
+        }
+    }
+
+    private long ringStart() {
+        return Math.max(ringFloor, nextSequence - ring.length);
+    }
+
+    /**
+     * Segments holding sequences in [minSeq, maxSeq) with timestamps
+     * overlapping [from, to).
+     */
+    private List<Segment> segmentsBetween(long minSeq, long maxSeq, long from, long to) {
+        List<Segment> out = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.isEmpty() || segment.firstSequence >= maxSeq || segment.lastSequence < minSeq) continue;
+            if (segment.maxTimestamp < from || segment.minTimestamp >= to) continue;
+            out.add(segment);
+        }
+        return out;
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    private void spill(DynamicTransition transition) throws IOException {
+        ByteBuffer record = encode(transition);
+        if (record.remaining() + Integer.BYTES > segmentBytes) {
+            throw new IOException("Transition record larger than a segment: " + record.remaining());
+        }
+        if (active == null
+                || active.buffer.remaining() < record.remaining() + Integer.BYTES
+                || segmentMaxAgeMs > 0 && transition.timestamp - active.createdAt >= segmentMaxAgeMs) {
+            roll(transition.sequence);
+        }
+        active.buffer.putInt(record.remaining());
+        active.buffer.put(record);
+        active.include(transition.sequence, transition.timestamp);
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        if (active != null) {
+            active.buffer.force();
+            active.buffer = null;
+        }
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, firstSequence, System.currentTimeMillis());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segments.addLast(segment);
+        active = segment;
+
+        while (segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst().path);
+        }
+    }
+
+    private ByteBuffer encode(DynamicTransition t) {
+        while (true) {
+            scratch.clear();
+            try {
+                scratch.putLong(t.sequence);
+                scratch.putLong(t.timestamp);
+                scratch.put((byte) t.fromState.ordinal());
+                scratch.put((byte) t.toState.ordinal());
+                putString(t.transitionId);
+                putString(t.nodeId);
+                putString(t.reason);
+                putBytes(t.previousHash);
+                putBytes(t.newHash);
+                List<String> affected = t.affectedNodeIds;
+                scratch.putInt(affected == null ? 0 : affected.size());
+                if (affected != null) {
+                    for (String id : affected) {
+                        putString(id);
+                    }
+                }
+                scratch.flip();
+                return scratch;
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    private void putString(String value) {
+        putBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void putBytes(byte[] value) {
+        if (value == null) {
+            scratch.putInt(-1);
+        } else {
+            scratch.putInt(value.length);
+            scratch.put(value);
+        }
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    /**
+     * Collect records of one segment with {@code minSeq <= sequence < maxSeq}
+     * and {@code from <= timestamp < to}.
+     */
+    private void scan(Segment segment, long minSeq, long maxSeq, long from, long to,
+                      int limit, List<DynamicTransition> out) {
+        ByteBuffer buffer;
+        try {
+            buffer = map(segment);
+        } catch (IOException e) {
+            // deleted by retention while we were reading
+            if (Files.notExists(segment.path)) return;
+            throw new UncheckedIOException("Cannot read transition segment " + segment.path, e);
+        }
+        while (out.size() < limit && buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) break;
+            int next = buffer.position() + length;
+            long sequence = buffer.getLong(buffer.position());
+            long timestamp = buffer.getLong(buffer.position() + Long.BYTES);
+            if (sequence >= maxSeq) break;
+            if (sequence >= minSeq && timestamp >= from && timestamp < to) {
+                out.add(decode(buffer));
+            }
+            buffer.position(next);
+        }
+    }
+
+    private ByteBuffer map(Segment segment) throws IOException {
+        synchronized (this) {
+            if (segment.buffer != null) {
+                // active segment: read what has been written so far
+                ByteBuffer view = segment.buffer.duplicate();
+                view.flip();
+                return view;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static DynamicTransition decode(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        NodeState from = STATES[buffer.get()];
+        NodeState to = STATES[buffer.get()];
+        String transitionId = getString(buffer);
+        String nodeId = getString(buffer);
+        String reason = getString(buffer);
+
+        DynamicTransition t = new DynamicTransition(nodeId, from, to, reason);
+        t.transitionId = transitionId;
+        t.sequence = sequence;
+        t.timestamp = timestamp;
+        t.previousHash = getBytes(buffer);
+        t.newHash = getBytes(buffer);
+        int affected = buffer.getInt();
+        for (int i = 0; i < affected; i++) {
+            t.affectedNodeIds.add(getString(buffer));
+        }
+        return t;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = getBytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // ---------------------------------------------------------------- startup
+
+    /**
+     * Index segments left by a previous run; new records go to a new segment.
+     */
+    private void loadSegments() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null); // zero-padded sequence numbers sort lexically
+
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long first;
+            try {
+                first = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Segment segment = new Segment(path, first, Files.getLastModifiedTime(path).toMillis());
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) break;
+                segment.include(buffer.getLong(buffer.position()),
+                        buffer.getLong(buffer.position() + Long.BYTES));
+                buffer.position(buffer.position() + length);
+            }
+            if (segment.isEmpty()) {
+                Files.deleteIfExists(path);
+                continue;
+            }
+            segments.addLast(segment);
+            nextSequence = Math.max(nextSequence, segment.lastSequence + 1);
+        }
+        // the ring holds nothing of a previous run; reads go to the segments
+        ringFloor = nextSequence;
+        while (segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst().path);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.squid.core.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Number serialization against ECMAScript Number-to-String output
+ * (RFC 8785 appendix B plus values JDK 17's Double.toString gets wrong).
+ */
+class CanonicalJsonTest {
+
+    private static final String[][] ES6 = {
+        { "0000000000000000", "0" },
+        { "8000000000000000", "0" },
+        { "0000000000000001", "5e-324" },
+        { "8000000000000001", "-5e-324" },
+        { "7fefffffffffffff", "1.7976931348623157e+308" },
+        { "ffefffffffffffff", "-1.7976931348623157e+308" },
+        { "4340000000000000", "9007199254740992" },
+        { "c340000000000000", "-9007199254740992" },
+        { "4430000000000000", "295147905179352830000" },
+        { "44b52d02c7e14af5", "9.999999999999997e+22" },
+        { "44b52d02c7e14af6", "1e+23" },
+        { "44b52d02c7e14af7", "1.0000000000000001e+23" },
+        { "444b1ae4d6e2ef4e", "999999999999999700000" },
+        { "444b1ae4d6e2ef4f", "999999999999999900000" },
+        { "444b1ae4d6e2ef50", "1e+21" },
+        { "3eb0c6f7a0b5ed8c", "9.999999999999997e-7" },
+        { "3eb0c6f7a0b5ed8d", "0.000001" },
+        { "41b3de4355555553", "333333333.3333332" },
+        { "41b3de4355555554", "333333333.33333325" },
+        { "41b3de4355555555", "333333333.3333333" },
+        { "41b3de4355555556", "333333333.3333334" },
+        { "41b3de4355555557", "333333333.33333343" },
+        { "becbf647612f3696", "-0.0000033333333333333333" },
+        { "43143ff3c1cb0959", "1424953923781206.2" },
+        // Double.toString keeps a 17th digit that is not the closest
+        { "453a0e626bf2373e", "3.1500000000000003e+25" },
+        { "c53abe1c9df0eb45", "-3.2329848831414595e+25" },
+    };
+
+    @Test
+    void numbersMatchEcmaScript() throws IOException {
+        for (String[] sample : ES6) {
+            double value = Double.longBitsToDouble(Long.parseUnsignedLong(sample[0], 16));
+            // Double.toString round-trips even where its digits are off
+            String json = "[" + Double.toString(value) + "]";
+            assertEquals("[" + sample[1] + "]", canonical(json), sample[0]);
+        }
+    }
+
+    @Test
+    void membersAreSortedAndNumbersNormalized() throws IOException {
+        String json = "{\"b\": 3.1500000000000003e+25, \"a\": [1.0E23, -0.0, 4.50]}";
+        assertEquals("{\"a\":[1e+23,0,4.5],\"b\":3.1500000000000003e+25}", canonical(json));
+    }
+
+    private static String canonical(String json) throws IOException {
+        return new String(CanonicalJson.canonicalize(json), StandardCharsets.UTF_8);
+    }
+}
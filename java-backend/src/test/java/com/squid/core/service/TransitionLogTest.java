@@ -0,0 +1,75 @@
+package com.squid.core.service;
+
+import com.squid.core.service.MerkleTreeDynamicEngine.DynamicTransition;
+import com.squid.core.service.MerkleTreeDynamicEngine.NodeState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reopening a spilled log, as a tree restored from a checkpoint does.
+ */
+class TransitionLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenedLogReadsFromSegments() {
+        try (TransitionLog log = open()) {
+            for (int i = 0; i < 5; i++) {
+                log.append(transition(i));
+            }
+        }
+        try (TransitionLog log = open()) {
+            // checkpoint cursor equal to the log head: the normal clean restart
+            log.advanceTo(5);
+            assertEquals(5, log.size());
+            assertTrue(log.recent().isEmpty());
+            assertSequences(log.read(0, 10), 0, 5);
+            assertSequences(log.between(0, Long.MAX_VALUE, 10), 0, 5);
+
+            log.append(transition(5));
+            assertSequences(log.recent(), 5, 6);
+            assertSequences(log.read(3, 10), 3, 6);
+        }
+    }
+
+    @Test
+    void segmentsPastTheCheckpointAreKept() {
+        try (TransitionLog log = open()) {
+            for (int i = 0; i < 8; i++) {
+                log.append(transition(i));
+            }
+        }
+        try (TransitionLog log = open()) {
+            // crash after the checkpoint at 5: the segments ran further
+            log.advanceTo(5);
+            assertEquals(8, log.size());
+            assertTrue(log.recent().isEmpty());
+            assertSequences(log.read(0, 10), 0, 8);
+        }
+    }
+
+    private TransitionLog open() {
+        return new TransitionLog(16, dir, 4096, 0, 8);
+    }
+
+    private static DynamicTransition transition(int i) {
+        DynamicTransition t = new DynamicTransition("leaf_" + i, NodeState.VALID, NodeState.DECOY, "test");
+        t.timestamp = 1_000L + i;
+        return t;
+    }
+
+    private static void assertSequences(List<DynamicTransition> transitions, long from, long to) {
+        assertEquals(to - from, transitions.size());
+        for (int i = 0; i < transitions.size(); i++) {
+            assertEquals(from + i, transitions.get(i).sequence);
+        }
+    }
+}
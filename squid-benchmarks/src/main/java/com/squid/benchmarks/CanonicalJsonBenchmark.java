@@ -0,0 +1,70 @@
+package com.squid.benchmarks;
+
+import com.squid.core.crypto.CanonicalJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RFC 8785 canonicalization of a small request-sized document and of
+ * multi-megabyte documents with nested objects, numbers and non-ASCII text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CanonicalJsonBenchmark {
+
+    /** Approximate document size in bytes */
+    @Param({"512", "1048576", "8388608"})
+    public int size;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = document(size, new Random(7));
+    }
+
+    @Benchmark
+    public byte[] canonicalize() throws Exception {
+        return CanonicalJson.canonicalize(json);
+    }
+
+    /**
+     * Array of records, unsorted keys, mixed number formats.
+     */
+    static String document(int targetBytes, Random random) {
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        sb.append("{\"version\":1,\"records\":[");
+        int i = 0;
+        while (sb.length() < targetBytes) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"z_index\":").append(i)
+              .append(",\"amount\":").append(random.nextDouble() * 1e6)
+              .append(",\"exp\":").append(random.nextInt(1000)).append("e-3")
+              .append(",\"label\":\"leaf-").append(Integer.toHexString(random.nextInt()))
+              .append(" \\u00e9\\u20ac\\ud83d\\ude00\"")
+              .append(",\"meta\":{\"b\":4,\"a\":[true,false,null],\"m\":").append(random.nextLong())
+              .append("}}");
+            i++;
+        }
+        sb.append("],\"count\":").append(i).append('}');
+        return sb.toString();
+    }
+}
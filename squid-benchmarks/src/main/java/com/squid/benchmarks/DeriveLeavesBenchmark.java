@@ -0,0 +1,59 @@
+package com.squid.benchmarks;
+
+import com.squid.core.service.SquidCoreService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SquidCoreService.deriveLeaves for several branching factor / depth /
+ * leaf size combinations (L = b^m leaves).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeriveLeavesBenchmark {
+
+    /** b:m pairs */
+    @Param({"2:8", "4:3", "4:6", "16:3"})
+    public String shape;
+
+    @Param({"128", "256"})
+    public int t;
+
+    private SquidCoreService service;
+    private byte[] rootKey;
+    private int b;
+    private int m;
+
+    @Setup
+    public void setUp() {
+        String[] parts = shape.split(":");
+        b = Integer.parseInt(parts[0]);
+        m = Integer.parseInt(parts[1]);
+        service = new SquidCoreService();
+        rootKey = new byte[32];
+        for (int i = 0; i < rootKey.length; i++) {
+            rootKey[i] = (byte) i;
+        }
+    }
+
+    @Benchmark
+    public List<SquidCoreService.LeafData> deriveLeaves() {
+        return service.deriveLeaves(rootKey, b, m, t);
+    }
+}
@@ -0,0 +1,61 @@
+package com.squid.benchmarks;
+
+import com.squid.core.fingerprint.FingerprintMode;
+import com.squid.core.fingerprint.FingerprintSnapshot;
+import com.squid.core.fingerprint.HardwareFingerprintService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fresh fingerprint captures per mode against the cached snapshot read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingerprintBenchmark {
+
+    @Param({"FULL", "REDUCED", "SOFTWARE"})
+    public FingerprintMode mode;
+
+    private HardwareFingerprintService service;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        service = new HardwareFingerprintService();
+        // Drift is only meaningful once the sampler has its baseline
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!service.isBaselineReady() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public FingerprintSnapshot capture() {
+        return service.capture(mode);
+    }
+
+    @Benchmark
+    public FingerprintSnapshot latest() {
+        return service.latest(mode);
+    }
+}
@@ -0,0 +1,62 @@
+package com.squid.benchmarks;
+
+import com.squid.core.crypto.HKDFUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HKDF branch-key chains of increasing depth, as walked for every leaf.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HkdfBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int depth;
+
+    @Param({"128", "256"})
+    public int leafBits;
+
+    private byte[] rootKey;
+
+    @Setup
+    public void setUp() {
+        rootKey = HKDFUtil.deriveKey("SQUID-BENCH".getBytes(StandardCharsets.UTF_8),
+                "root-key-material".getBytes(StandardCharsets.UTF_8), "root", 32);
+    }
+
+    @Benchmark
+    public byte[] branchChain() {
+        byte[] key = rootKey;
+        for (int level = 0; level < depth; level++) {
+            key = HKDFUtil.deriveBranchKey(key, level, level & 3, 32);
+        }
+        return key;
+    }
+
+    @Benchmark
+    public byte[] branchChainAndLeaf() {
+        return HKDFUtil.deriveLeaf(branchChain(), depth, leafBits);
+    }
+
+    @Benchmark
+    public byte[] deriveKey() {
+        return HKDFUtil.deriveKey(rootKey, rootKey, "SQUID-BENCH|v1", 32);
+    }
+}
@@ -0,0 +1,57 @@
+package com.squid.benchmarks;
+
+import com.squid.core.crypto.Hash32;
+import com.squid.core.service.InstanceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InstanceService.computeMerkleRoot over binary Hash32 leaves, as recomputed
+ * on every instance create / remove / re-encrypt / decrypt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstanceMerkleRootBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    public int leaves;
+
+    private InstanceService service;
+    private List<Hash32> leafHashes;
+
+    @Setup
+    public void setUp() {
+        // computeMerkleRoot does not touch PQC state
+        service = new InstanceService(null);
+        Random random = new Random(11);
+        leafHashes = new ArrayList<>(leaves);
+        for (int i = 0; i < leaves; i++) {
+            byte[] leaf = new byte[32];
+            random.nextBytes(leaf);
+            leafHashes.add(Hash32.of(leaf));
+        }
+    }
+
+    @Benchmark
+    public Hash32 computeMerkleRoot() {
+        return service.computeMerkleRoot(leafHashes);
+    }
+}
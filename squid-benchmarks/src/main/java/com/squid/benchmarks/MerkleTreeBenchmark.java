@@ -0,0 +1,73 @@
+package com.squid.benchmarks;
+
+import com.squid.core.crypto.MerkleTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MerkleTree construction and inclusion proofs from 1k to 1M leaves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MerkleTreeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int leaves;
+
+    private List<byte[]> leafData;
+    private MerkleTree tree;
+    private MerkleTree.MerkleProof proof;
+    private int[] proofIndices;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        leafData = new ArrayList<>(leaves);
+        for (int i = 0; i < leaves; i++) {
+            byte[] leaf = new byte[32];
+            random.nextBytes(leaf);
+            leafData.add(leaf);
+        }
+        tree = new MerkleTree(leafData);
+        proof = tree.getProof(leaves / 2);
+        // Pre-drawn indices keep the RNG out of the measured path
+        proofIndices = new int[1024];
+        for (int i = 0; i < proofIndices.length; i++) {
+            proofIndices[i] = random.nextInt(leaves);
+        }
+    }
+
+    @Benchmark
+    public byte[] build() {
+        return new MerkleTree(leafData).getRoot();
+    }
+
+    @Benchmark
+    public MerkleTree.MerkleProof proof() {
+        return tree.getProof(proofIndices[next++ & (proofIndices.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean verifyProof() {
+        return MerkleTree.verifyProof(proof);
+    }
+}
@@ -0,0 +1,72 @@
+package com.squid.benchmarks;
+
+import com.squid.core.service.DecapsulationCache;
+import com.squid.core.service.PQCKeyStore;
+import com.squid.core.service.PQCService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PQCService sign / verify / encapsulate / decapsulate per backend.
+ *
+ * The KEM pool, decapsulation cache and keystore are disabled so every
+ * call measures the primitive itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PQCServiceBenchmark {
+
+    @Param({"lattice", "classical"})
+    public String backend;
+
+    private PQCService pqc;
+    private byte[] message;
+    private String signature;
+    private byte[] encapsulation;
+
+    @Setup
+    public void setUp() throws Exception {
+        pqc = new PQCService(backend, "KYBER768", "DILITHIUM3", false,
+                new PQCKeyStore("", "", false), 120_000L, 0, new DecapsulationCache(0, 0));
+        message = "SQUID benchmark message: merkle root placeholder".getBytes(StandardCharsets.UTF_8);
+        // sign() waits for background key generation to finish
+        signature = pqc.sign(message);
+        encapsulation = pqc.encapsulate(message).getCiphertext();
+    }
+
+    @Benchmark
+    public String sign() throws Exception {
+        return pqc.sign(message);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return pqc.verify(signature, message);
+    }
+
+    @Benchmark
+    public PQCService.KEMResult encapsulate() throws Exception {
+        return pqc.encapsulate(message);
+    }
+
+    @Benchmark
+    public byte[] decapsulate() throws Exception {
+        return pqc.decapsulate(encapsulation);
+    }
+}